@@ -0,0 +1,84 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the binary {@link EmployeeEventCodec} against the legacy {@code toString()} form and JSON. Run with
+ * {@code ./gradlew jmh}. The payload sizes do not vary between events and are listed in the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeEventCodecBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private EmployeeEvent event;
+
+    private byte[] stringPayload;
+
+    private byte[] jsonPayload;
+
+    private byte[] binaryPayload;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        event = new EmployeeEvent(UUID.randomUUID(), EmployeeEvent.EventType.UPDATED);
+        stringPayload = encodeString();
+        jsonPayload = encodeJson();
+        binaryPayload = encodeBinary();
+    }
+
+    @Benchmark
+    public byte[] encodeString() {
+        return event.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public EmployeeEvent decodeString() {
+        var text = new String(stringPayload, StandardCharsets.UTF_8);
+        var separator = text.indexOf(", type=");
+        return new EmployeeEvent(UUID.fromString(text.substring(4, separator)),
+            EmployeeEvent.EventType.valueOf(text.substring(separator + 7, text.length() - 1)));
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public EmployeeEvent decodeJson() throws IOException {
+        return objectMapper.readValue(jsonPayload, EmployeeEvent.class);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return EmployeeEventCodec.encode(event);
+    }
+
+    @Benchmark
+    public EmployeeEvent decodeBinary() {
+        return EmployeeEventCodec.decode(binaryPayload);
+    }
+}
@@ -0,0 +1,128 @@
+package com.dstolis.employeeapi.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dstolis.employeeapi.EmployeeApiApplication;
+import com.dstolis.employeeapi.model.dto.EmployeeCursor;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.entity.Employee;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Reads a page of 1000 employees with two hobbies each, once through managed entities copied into DTOs with their
+ * hobbies read from {@code employee_hobby} and once through the {@link EmployeeQueryRepository} projection. Needs the
+ * database of {@code docker-compose.yml}; run with {@code ./gradlew jmh}, the gc profiler reports the allocation per
+ * page as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmployeeReadPathBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private final List<UUID> ids = new ArrayList<>();
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeRepository employeeRepository;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(EmployeeApiApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("outbox.relay.listen.enabled=false", "employees.cache.invalidation.enabled=false")
+            .run();
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO hobbies (name) VALUES ('hiking'), ('reading') ON CONFLICT (name) DO NOTHING");
+        for (int i = 0; i < ROWS; i++) {
+            var id = UUID.randomUUID();
+            ids.add(id);
+            jdbcTemplate.update("INSERT INTO employees (id, email, full_name, birthday) VALUES (?, ?, ?, DATE '1990-01-01')",
+                id, "benchmark" + i + "@sample.com", "Benchmark Employee " + i);
+            jdbcTemplate.update("""
+                INSERT INTO employee_hobby (employee_id, hobby_id, position)
+                SELECT ?, id, row_number() OVER (ORDER BY name) FROM hobbies WHERE name IN ('hiking', 'reading')""",
+                id);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        ids.forEach(id -> {
+            jdbcTemplate.update("DELETE FROM employee_hobby WHERE employee_id = ?", id);
+            jdbcTemplate.update("DELETE FROM employees WHERE id = ?", id);
+        });
+        context.close();
+    }
+
+    /**
+     * The read path before the projection: managed entities in a read-write transaction, their hobbies initialized
+     * with one query for the whole page, the way the former {@code @BatchSize} element collection loaded them.
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<EmployeeDTO> entities() {
+        return transactionTemplate.execute(status -> {
+            var employees = entityManager
+                .createQuery("SELECT e FROM Employee e WHERE e.id > :after ORDER BY e.id", Employee.class)
+                .setParameter("after", EmployeeCursor.START)
+                .setMaxResults(ROWS)
+                .getResultList();
+            var hobbies = new HashMap<UUID, List<String>>();
+            for (var row : (List<Object[]>) entityManager.createNativeQuery("""
+                    SELECT eh.employee_id, h.name
+                    FROM employee_hobby eh
+                             JOIN hobbies h ON h.id = eh.hobby_id
+                    WHERE eh.employee_id IN (:ids)
+                    ORDER BY eh.employee_id, eh.position""", Object[].class)
+                .setParameter("ids", employees.stream().map(Employee::getId).toList())
+                .getResultList()) {
+                hobbies.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+            employees.forEach(employee -> employee.setHobbies(hobbies.getOrDefault(employee.getId(), List.of())));
+            return employees.stream().map(EmployeeDTO::new).toList();
+        });
+    }
+
+    @Benchmark
+    public List<EmployeeDTO> projection() {
+        return employeeRepository.findDtoPageAfter(EmployeeCursor.START, ROWS);
+    }
+}
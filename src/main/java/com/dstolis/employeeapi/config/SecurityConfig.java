@@ -32,6 +32,7 @@ public class SecurityConfig {
             .csrf().disable()
             .authorizeHttpRequests(authorize -> authorize
                 .requestMatchers(HttpMethod.PUT, EMPLOYEE_PATH).authenticated()
+                .requestMatchers(HttpMethod.PATCH, EMPLOYEE_PATH).authenticated()
                 .requestMatchers(HttpMethod.POST, EMPLOYEE_PATH).authenticated()
                 .requestMatchers(HttpMethod.DELETE, EMPLOYEE_PATH).authenticated()
                 .requestMatchers(HttpMethod.GET, EMPLOYEE_PATH).permitAll()
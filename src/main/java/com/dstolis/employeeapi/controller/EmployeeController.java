@@ -1,29 +1,49 @@
 package com.dstolis.employeeapi.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.dstolis.employeeapi.model.dto.EmployeeBatchResult;
 import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.dto.EmployeePage;
+import com.dstolis.employeeapi.model.dto.EmployeePatch;
+import com.dstolis.employeeapi.model.dto.EmployeeSearch;
 import com.dstolis.employeeapi.model.dto.ErrorResponseDTO;
+import com.dstolis.employeeapi.service.EmployeeBatchService;
+import com.dstolis.employeeapi.service.EmployeeExportService;
 import com.dstolis.employeeapi.service.EmployeeService;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.validation.Valid;
 
 @RestController
@@ -31,11 +51,24 @@ import jakarta.validation.Valid;
 @Tag(name = "Employee Management", description = "The Employee Management API provides endpoints for CRUD operations on employees. It allows clients to add, retrieve, update, and delete employee records. Each operation is secured and requires proper authorization.")
 public class EmployeeController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final String NDJSON = "application/x-ndjson";
+
+    static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
     private final EmployeeService employeeService;
 
+    private final EmployeeExportService employeeExportService;
+
+    private final EmployeeBatchService employeeBatchService;
+
     @Autowired
-    public EmployeeController(final EmployeeService employeeService) {
+    public EmployeeController(final EmployeeService employeeService,
+        final EmployeeExportService employeeExportService, final EmployeeBatchService employeeBatchService) {
         this.employeeService = employeeService;
+        this.employeeExportService = employeeExportService;
+        this.employeeBatchService = employeeBatchService;
     }
 
     @Operation(
@@ -54,32 +87,144 @@ public class EmployeeController {
     @PostMapping
     public ResponseEntity<EmployeeDTO> createEmployee(@RequestBody @Valid EmployeeDTO employee) {
         var createdEmployee = employeeService.createEmployee(employee);
-        return ResponseEntity.ok(createdEmployee);
+        return ResponseEntity.ok().eTag(eTag(createdEmployee.version())).body(createdEmployee);
     }
 
     @Operation(
-        summary = "Get all employees",
-        description = "Retrieves a list of all employees in the system. Can be used to populate employee management views.",
+        summary = "Create or update many employees",
+        description = "Creates or updates up to 1000 employees in one transaction. Every item is validated on its own; an employee with the email of an item is updated, otherwise a new one is created. Invalid items and repeated emails are rejected without affecting the others. The response holds one result per item, in request order.",
         responses = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved list of employees",
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of every item",
                 content = @Content(mediaType = "application/json",
-                    array = @ArraySchema(schema = @Schema(implementation = EmployeeDTO.class))))
+                    array = @ArraySchema(schema = @Schema(implementation = EmployeeBatchResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Empty or too large batch",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class)))
+        },
+        tags = { "Employee Management" }
+    )
+    @PostMapping("/batch")
+    public List<EmployeeBatchResult> upsertEmployees(@RequestBody List<EmployeeDTO> employees) {
+        return employeeBatchService.upsertEmployees(employees);
+    }
+
+    @Operation(
+        summary = "Get a page of employees",
+        description = "Retrieves employees ordered by ID, one page at a time. Pass the cursor from the X-Next-Cursor header (or the next Link) as the after parameter to get the following page; the last page has neither.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the page of employees",
+                headers = {
+                    @Header(name = "X-Next-Cursor", description = "Cursor of the next page, absent on the last page"),
+                    @Header(name = "Link", description = "URL of the next page with rel=\"next\", absent on the last page")
+                },
+                content = @Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = EmployeeDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class)))
         },
         tags = { "Employee Management" }
     )
     @GetMapping
-    public ResponseEntity<List<EmployeeDTO>> getAllEmployees() {
-        var employees = employeeService.getAllEmployees();
-        return ResponseEntity.ok(employees);
+    public ResponseEntity<List<EmployeeDTO>> getEmployees(
+        @Parameter(description = "Maximum number of employees on the page")
+        @RequestParam(defaultValue = "100") int limit,
+        @Parameter(description = "Opaque cursor returned with the previous page")
+        @RequestParam(required = false) String after) {
+        return pageResponse(employeeService.getEmployeePage(after, limit), limit);
+    }
+
+    @Operation(
+        summary = "Search employees",
+        description = "Retrieves the employees matching all given filters, ordered by ID and paged like the list of all employees. Every filter is served by an index.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the page of matching employees",
+                headers = {
+                    @Header(name = "X-Next-Cursor", description = "Cursor of the next page, absent on the last page"),
+                    @Header(name = "Link", description = "URL of the next page with rel=\"next\", absent on the last page")
+                },
+                content = @Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = EmployeeDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid filter, cursor or limit",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class)))
+        },
+        tags = { "Employee Management" }
+    )
+    @GetMapping("/search")
+    public ResponseEntity<List<EmployeeDTO>> searchEmployees(
+        @Parameter(description = "Part of the full name, case-insensitive, at least 3 characters")
+        @RequestParam(required = false) String name,
+        @Parameter(description = "Earliest birthday, inclusive")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate birthdayFrom,
+        @Parameter(description = "Latest birthday, inclusive")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate birthdayTo,
+        @Parameter(description = "Hobby the employee must have")
+        @RequestParam(required = false) String hobby,
+        @Parameter(description = "Maximum number of employees on the page")
+        @RequestParam(defaultValue = "100") int limit,
+        @Parameter(description = "Opaque cursor returned with the previous page")
+        @RequestParam(required = false) String after) {
+        var search = new EmployeeSearch(name, birthdayFrom, birthdayTo, hobby);
+        return pageResponse(employeeService.searchEmployees(search, after, limit), limit);
+    }
+
+    @Operation(
+        summary = "Get upcoming birthdays",
+        description = "Retrieves the employees whose birthday falls within the given number of days from a date, today by default, across the end of the year if need be. Employees born on February 29 are included on February 28 in other years. Ordered by birthday and paged like the list of all employees.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the page of employees",
+                headers = {
+                    @Header(name = "X-Next-Cursor", description = "Cursor of the next page, absent on the last page"),
+                    @Header(name = "Link", description = "URL of the next page with rel=\"next\", absent on the last page")
+                },
+                content = @Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = EmployeeDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid window, cursor or limit",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class)))
+        },
+        tags = { "Employee Management" }
+    )
+    @GetMapping("/birthdays")
+    public ResponseEntity<List<EmployeeDTO>> getUpcomingBirthdays(
+        @Parameter(description = "Number of days after the first day of the window, at most 364")
+        @RequestParam(defaultValue = "7") int days,
+        @Parameter(description = "First day of the window, today if absent")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @Parameter(description = "Maximum number of employees on the page")
+        @RequestParam(defaultValue = "100") int limit,
+        @Parameter(description = "Opaque cursor returned with the previous page")
+        @RequestParam(required = false) String after) {
+        var page = employeeService.getUpcomingBirthdays(from == null ? LocalDate.now() : from, days, after, limit);
+        return pageResponse(page, limit);
+    }
+
+    @Operation(
+        summary = "Export all employees",
+        description = "Streams every employee as newline-delimited JSON, one employee per line. Intended for sync jobs and extracts that need the complete directory; the response is written while the employees are read, so it starts immediately and has no size limit.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully streamed all employees",
+                content = @Content(mediaType = NDJSON, schema = @Schema(implementation = EmployeeDTO.class)))
+        },
+        tags = { "Employee Management" }
+    )
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportEmployees() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .body(employeeExportService::export);
     }
 
     @Operation(
         summary = "Get an employee by ID",
-        description = "Retrieves a single employee record by their unique identifier. Useful for editing employee details or querying their data.",
+        description = "Retrieves a single employee record by their unique identifier. Useful for editing employee details or querying their data. The response carries the version of the employee as ETag; send it back in If-None-Match to get 304 as long as the employee is unchanged.",
         responses = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the employee",
+                headers = @Header(name = "ETag", description = "Version of the employee"),
                 content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = EmployeeDTO.class))),
+            @ApiResponse(responseCode = "304", description = "The employee has not been modified since the version in If-None-Match"),
             @ApiResponse(responseCode = "400", description = "Invalid UUID format",
                 content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = ErrorResponseDTO.class))),
@@ -90,31 +235,73 @@ public class EmployeeController {
         tags = { "Employee Management" }
     )
     @GetMapping("/{id}")
-    public ResponseEntity<EmployeeDTO> getEmployeeById(@PathVariable UUID id) {
-        var employee = employeeService.getEmployeeById(id);
-        return ResponseEntity.ok(employee);
+    public ResponseEntity<EmployeeDTO> getEmployeeById(@PathVariable UUID id, WebRequest request) {
+        EmployeeDTO employee;
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            // Polling clients usually hold the current version, which a version-only query confirms cheaply
+            var version = employeeService.getEmployeeVersion(id);
+            if (request.checkNotModified(eTag(version))) {
+                return null;
+            }
+            employee = employeeService.getEmployeeById(id, version);
+        } else {
+            employee = employeeService.getEmployeeById(id);
+        }
+        return ResponseEntity.ok().eTag(eTag(employee.version())).body(employee);
     }
 
     @Operation(
         summary = "Update an existing employee by ID",
-        description = "Updates the details of an existing employee. The employee to be updated is identified by their unique ID, and the updated employee data must be valid.",
+        description = "Updates the details of an existing employee. The employee to be updated is identified by their unique ID, and the updated employee data must be valid. Send the ETag of the employee in If-Match to only update it if nobody else did in the meantime.",
         responses = {
             @ApiResponse(responseCode = "200", description = "Successfully updated the employee",
+                headers = @Header(name = "ETag", description = "New version of the employee"),
                 content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = EmployeeDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data or invalid employee ID format",
                 content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = ErrorResponseDTO.class))),
             @ApiResponse(responseCode = "404", description = "Employee not found",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class))),
+            @ApiResponse(responseCode = "412", description = "The employee has been modified since the version in If-Match",
                 content = @Content(mediaType = "application/json",
                     schema = @Schema(implementation = ErrorResponseDTO.class)))
         },
         tags = { "Employee Management" }
     )
     @PutMapping("/{id}")
-    public ResponseEntity<EmployeeDTO> updateEmployee(@PathVariable UUID id, @RequestBody @Valid EmployeeDTO employee) {
-        var updatedEmployee = employeeService.updateEmployee(id, employee);
-        return ResponseEntity.ok(updatedEmployee);
+    public ResponseEntity<EmployeeDTO> updateEmployee(@PathVariable UUID id, @RequestBody @Valid EmployeeDTO employee,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var updatedEmployee = employeeService.updateEmployee(id, employee, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(updatedEmployee.version())).body(updatedEmployee);
+    }
+
+    @Operation(
+        summary = "Patch an existing employee by ID",
+        description = "Applies a JSON Merge Patch (RFC 7396) to an employee: fields in the patch replace the current values, null removes them and missing fields are kept. Hobbies are only replaced if the patch contains them. A patch that changes nothing is not written and publishes no event. Send the ETag of the employee in If-Match to only patch it if nobody else updated it in the meantime.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully patched the employee, or nothing to change",
+                headers = @Header(name = "ETag", description = "Current version of the employee"),
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = EmployeeDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid patch, or the patched employee is invalid",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Employee not found",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class))),
+            @ApiResponse(responseCode = "412", description = "The employee has been modified since the version in If-Match",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class)))
+        },
+        tags = { "Employee Management" }
+    )
+    @PatchMapping(value = "/{id}", consumes = MERGE_PATCH_JSON)
+    public ResponseEntity<EmployeeDTO> patchEmployee(@PathVariable UUID id, @RequestBody JsonNode patch,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var patchedEmployee = employeeService.patchEmployee(id, EmployeePatch.of(patch), expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(patchedEmployee.version())).body(patchedEmployee);
     }
 
     @Operation(
@@ -136,4 +323,41 @@ public class EmployeeController {
         employeeService.deleteEmployee(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static ResponseEntity<List<EmployeeDTO>> pageResponse(final EmployeePage page, final int limit) {
+        if (page.nextCursor() == null) {
+            return ResponseEntity.ok(page.employees());
+        }
+        var next = ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("limit", limit)
+            .replaceQueryParam("after", page.nextCursor())
+            .toUriString();
+        return ResponseEntity.ok()
+            .header(NEXT_CURSOR_HEADER, page.nextCursor())
+            .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+            .body(page.employees());
+    }
+
+    private static String eTag(final long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @return the version in a strong {@code If-Match} entity tag, {@code null} if the header is absent or {@code *}
+     */
+    private static Long expectedVersion(final String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var tag = ifMatch.trim();
+        // Weak tags never match strongly, and neither does anything we did not issue
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Falls through
+            }
+        }
+        throw new OptimisticLockException("If-Match " + ifMatch + " does not match the current version.");
+    }
 }
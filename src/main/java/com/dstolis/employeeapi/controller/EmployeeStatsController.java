@@ -0,0 +1,59 @@
+package com.dstolis.employeeapi.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dstolis.employeeapi.model.dto.EmployeeStats;
+import com.dstolis.employeeapi.service.EmployeeStatsService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/employees/stats")
+@Tag(name = "Employee Statistics", description = "Headcount, age distribution, birth months and top hobbies, served from counters that are maintained with every employee change.")
+public class EmployeeStatsController {
+
+    private final EmployeeStatsService employeeStatsService;
+
+    @Autowired
+    public EmployeeStatsController(final EmployeeStatsService employeeStatsService) {
+        this.employeeStatsService = employeeStatsService;
+    }
+
+    @Operation(
+        summary = "Get employee statistics",
+        description = "Returns the headcount, the number of employees per age decade and birth month, and the most popular hobbies. The cost does not depend on the number of employees.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the statistics",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = EmployeeStats.class)))
+        },
+        tags = { "Employee Statistics" }
+    )
+    @GetMapping
+    public EmployeeStats getStats() {
+        return employeeStatsService.getStats();
+    }
+
+    @Operation(
+        summary = "Rebuild employee statistics",
+        description = "Recomputes all counters from the employees. Employee changes wait until the rebuild is done.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully rebuilt the statistics",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = EmployeeStats.class)))
+        },
+        tags = { "Employee Statistics" }
+    )
+    @PostMapping("/rebuild")
+    public EmployeeStats rebuildStats() {
+        return employeeStatsService.rebuildStats();
+    }
+}
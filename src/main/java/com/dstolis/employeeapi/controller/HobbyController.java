@@ -0,0 +1,89 @@
+package com.dstolis.employeeapi.controller;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dstolis.employeeapi.model.dto.ErrorResponseDTO;
+import com.dstolis.employeeapi.model.dto.HobbyCount;
+import com.dstolis.employeeapi.model.dto.HobbyMatches;
+import com.dstolis.employeeapi.service.HobbyIndex;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/hobbies")
+@Tag(name = "Hobbies", description = "Hobby statistics and employees sharing hobbies, answered from an in-memory index that follows employee changes within the outbox relay latency.")
+public class HobbyController {
+
+    private final HobbyIndex hobbyIndex;
+
+    @Autowired
+    public HobbyController(final HobbyIndex hobbyIndex) {
+        this.hobbyIndex = hobbyIndex;
+    }
+
+    @Operation(
+        summary = "Count employees per hobby",
+        description = "Returns every hobby with the number of employees having it, most popular first.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully counted the employees",
+                content = @Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = HobbyCount.class))))
+        },
+        tags = { "Hobbies" }
+    )
+    @GetMapping
+    public List<HobbyCount> countEmployeesByHobby() {
+        return hobbyIndex.countEmployeesByHobby();
+    }
+
+    @Operation(
+        summary = "Find employees having all given hobbies",
+        description = "Returns how many employees have every one of the hobbies, and the IDs of up to limit of them.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully found the employees",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = HobbyMatches.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid limit",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class)))
+        },
+        tags = { "Hobbies" }
+    )
+    @GetMapping("/employees")
+    public HobbyMatches findEmployeesWithAllHobbies(@RequestParam("hobby") List<String> hobbies,
+        @RequestParam(defaultValue = "100") int limit) {
+        return hobbyIndex.findEmployeesWithAllHobbies(hobbies, limit);
+    }
+
+    @Operation(
+        summary = "Find employees sharing a hobby with an employee",
+        description = "Returns how many other employees have at least one hobby in common with the given employee, and the IDs of up to limit of them.",
+        responses = {
+            @ApiResponse(responseCode = "200", description = "Successfully found the employees",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = HobbyMatches.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid employee ID format or limit",
+                content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponseDTO.class)))
+        },
+        tags = { "Hobbies" }
+    )
+    @GetMapping("/shared-with/{employeeId}")
+    public HobbyMatches findEmployeesSharingHobbiesWith(@PathVariable UUID employeeId,
+        @RequestParam(defaultValue = "100") int limit) {
+        return hobbyIndex.findEmployeesSharingHobbiesWith(employeeId, limit);
+    }
+}
@@ -0,0 +1,222 @@
+package com.dstolis.employeeapi.controller.filter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.dstolis.employeeapi.model.dto.ErrorResponseDTO;
+import com.dstolis.employeeapi.service.IdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Makes {@code POST} and {@code PUT} requests to the employee API safe to retry: a request carrying an
+ * {@code Idempotency-Key} header runs once, and retries with the same key get its response replayed from
+ * {@link IdempotencyStore}, without touching {@code employees} or {@code outbox}.
+ * <p>
+ * A retry arriving while the first request still runs gets a {@code 409}, a key reused for a different request a
+ * {@code 422}. Server errors are not stored, so the request can be retried with the same key. Neither is a response
+ * the store failed to keep; retries keep getting a {@code 409} then, since the request did run. Runs after Spring
+ * Security, so unauthenticated requests never claim a key.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String EMPLOYEE_PATH = "/api/employees";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public IdempotencyFilter(final IdempotencyStore idempotencyStore, final ObjectMapper objectMapper) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        var method = request.getMethod();
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        return request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+            || !(method.equals("POST") || method.equals("PUT"))
+            || !(path.equals(EMPLOYEE_PATH) || path.startsWith(EMPLOYEE_PATH + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+        final FilterChain filterChain) throws ServletException, IOException {
+        var key = request.getHeader(IDEMPOTENCY_KEY_HEADER).strip();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST,
+                IDEMPOTENCY_KEY_HEADER + " must have between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        var principal = principal();
+        var cachedRequest = new CachedBodyRequest(request);
+        var requestHash = hash(cachedRequest);
+
+        var claim = idempotencyStore.claim(principal, key, requestHash);
+        switch (claim.state()) {
+            case REPLAY -> replay(claim.response(), response);
+            case IN_PROGRESS -> writeError(request, response, HttpStatus.CONFLICT,
+                "A request with " + IDEMPOTENCY_KEY_HEADER + " " + key + " is still being processed");
+            case MISMATCH -> writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                IDEMPOTENCY_KEY_HEADER + " " + key + " was already used for a different request");
+            case ACQUIRED -> process(cachedRequest, response, filterChain, principal, key, claim.owner(), requestHash);
+        }
+    }
+
+    private void process(final HttpServletRequest request, final HttpServletResponse response,
+        final FilterChain filterChain, final String principal, final String key, final UUID owner,
+        final byte[] requestHash) throws ServletException, IOException {
+        var cachingResponse = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, cachingResponse);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotencyStore.release(principal, key, owner);
+            throw e;
+        }
+        if (cachingResponse.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            idempotencyStore.release(principal, key, owner);
+        } else {
+            idempotencyStore.complete(principal, key, owner, requestHash, new IdempotencyStore.StoredResponse(
+                cachingResponse.getStatus(), cachingResponse.getContentType(),
+                cachingResponse.getHeader(HttpHeaders.ETAG), cachingResponse.getContentAsByteArray()));
+        }
+        cachingResponse.copyBodyToResponse();
+    }
+
+    private static void replay(final IdempotencyStore.StoredResponse stored, final HttpServletResponse response)
+        throws IOException {
+        response.setStatus(stored.status());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.eTag() != null) {
+            response.setHeader(HttpHeaders.ETAG, stored.eTag());
+        }
+        if (stored.body() != null) {
+            response.setContentLength(stored.body().length);
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private void writeError(final HttpServletRequest request, final HttpServletResponse response,
+        final HttpStatus status, final String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+            new ErrorResponseDTO(OffsetDateTime.now(), message, UUID.randomUUID(), request.getRequestURI()));
+    }
+
+    private static String principal() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "" : authentication.getName();
+    }
+
+    /**
+     * SHA-256 over method, URI and body, which identifies the request a key was first used for.
+     */
+    private static byte[] hash(final CachedBodyRequest request) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '?' + request.getQueryString() + '\n')
+                .getBytes(StandardCharsets.UTF_8));
+            digest.update(request.body);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Reads the body upfront, so that it can be hashed before the request is processed and still be read after.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(final HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public BufferedReader getReader() throws UnsupportedEncodingException {
+            var encoding = getCharacterEncoding() == null ? StandardCharsets.UTF_8.name() : getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            var in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The body is all there, so the listener is told right away
+                @Override
+                public void setReadListener(final ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(final byte[] b, final int off, final int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.ObjectError;
@@ -12,10 +13,12 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import com.dstolis.employeeapi.exception.InvalidRequestException;
 import com.dstolis.employeeapi.model.dto.ErrorResponseDTO;
 
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.servlet.http.HttpServletRequest;
 
 @RestControllerAdvice
@@ -48,6 +51,21 @@ public class EmployeeErrorHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler({ OptimisticLockException.class, OptimisticLockingFailureException.class })
+    public ResponseEntity<ErrorResponseDTO> handleOptimisticLockException(Exception ex, HttpServletRequest request) {
+        var error =
+            new ErrorResponseDTO(OffsetDateTime.now(), ex.getMessage(), UUID.randomUUID(), request.getRequestURI());
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponseDTO> handleInvalidRequestException(InvalidRequestException ex,
+        HttpServletRequest request) {
+        var error =
+            new ErrorResponseDTO(OffsetDateTime.now(), ex.getMessage(), UUID.randomUUID(), request.getRequestURI());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponseDTO> handleGenericException(Exception ex,
         HttpServletRequest request) {
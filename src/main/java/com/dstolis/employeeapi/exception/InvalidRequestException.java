@@ -0,0 +1,16 @@
+package com.dstolis.employeeapi.exception;
+
+/**
+ * A request the client has to fix before sending it again, such as an invalid cursor, limit or patch. Answered with
+ * {@code 400 Bad Request}; any other {@link IllegalArgumentException} is a bug and answered with a server error.
+ */
+public class InvalidRequestException extends IllegalArgumentException {
+
+    public InvalidRequestException(final String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,47 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+
+/**
+ * Opaque keyset pagination cursor of the upcoming birthdays: the month and day of the birthday of the last employee on
+ * a page, as {@code MMDD}, followed by its id. Like {@link EmployeeCursor}, clients must not look inside.
+ *
+ * @param monthDay month and day as {@code MMDD}, 0 before the first page
+ * @param id id of the last employee on the page
+ */
+public record BirthdayCursor(int monthDay, UUID id) {
+
+    public static final BirthdayCursor START = new BirthdayCursor(0, EmployeeCursor.START);
+
+    private static final int LENGTH = Short.BYTES + 16;
+
+    public String encode() {
+        var bytes = ByteBuffer.allocate(LENGTH)
+            .putShort((short) monthDay)
+            .putLong(id.getMostSignificantBits())
+            .putLong(id.getLeastSignificantBits())
+            .array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public static BirthdayCursor decode(final String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor " + cursor, e);
+        }
+        if (bytes.length != LENGTH) {
+            throw new InvalidRequestException("Invalid cursor " + cursor);
+        }
+        var buffer = ByteBuffer.wrap(bytes);
+        return new BirthdayCursor(buffer.getShort(), new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
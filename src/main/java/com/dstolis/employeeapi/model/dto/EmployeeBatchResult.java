@@ -0,0 +1,21 @@
+package com.dstolis.employeeapi.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a batch upsert. {@code index} is the position of the item in the request; {@code employee}
+ * is set unless the item was rejected, {@code error} only if it was.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EmployeeBatchResult(int index, Status status, EmployeeDTO employee, String error) {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        REJECTED
+    }
+
+    public static EmployeeBatchResult rejected(final int index, final String error) {
+        return new EmployeeBatchResult(index, Status.REJECTED, null, error);
+    }
+}
@@ -0,0 +1,49 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+
+/**
+ * Opaque keyset pagination cursor: the URL-safe Base64 form of the id of the last employee on a page. Clients must
+ * treat it as an opaque token, so the sort key can change without breaking them.
+ */
+public final class EmployeeCursor {
+
+    /**
+     * Sorts before every other id in Postgres, which compares UUIDs as unsigned bytes.
+     */
+    public static final UUID START = new UUID(0, 0);
+
+    private static final int LENGTH = 16;
+
+    private EmployeeCursor() {
+    }
+
+    public static String encode(final UUID lastId) {
+        var bytes = ByteBuffer.allocate(LENGTH)
+            .putLong(lastId.getMostSignificantBits())
+            .putLong(lastId.getLeastSignificantBits())
+            .array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public static UUID decode(final String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor " + cursor, e);
+        }
+        if (bytes.length != LENGTH) {
+            throw new InvalidRequestException("Invalid cursor " + cursor);
+        }
+        var buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
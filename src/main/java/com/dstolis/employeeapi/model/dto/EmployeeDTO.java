@@ -55,10 +55,20 @@ public record EmployeeDTO(
     LocalDate birthday,
 
     @Schema(description = "List of hobbies of the employee", example = "['Reading', 'Hiking']")
-    List<String> hobbies) {
+    List<String> hobbies,
+
+    @Schema(description = "Version of the employee, incremented on every update and also sent as ETag", accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    Long version) {
+
+    public EmployeeDTO(final UUID id, final String email, final String fullName, final LocalDate birthday,
+        final List<String> hobbies) {
+        this(id, email, fullName, birthday, hobbies, null);
+    }
 
     public EmployeeDTO(final Employee employee) {
+        // Copied, so that serialization never touches a lazy collection after the session is closed
         this(employee.getId(), employee.getEmail(), employee.getFullName(), employee.getBirthday(),
-            employee.getHobbies());
+            employee.getHobbies() == null ? List.of() : List.copyOf(employee.getHobbies()), employee.getVersion());
     }
 }
@@ -24,10 +24,38 @@ package com.dstolis.employeeapi.model.dto;
 
 import java.util.UUID;
 
-public record EmployeeEvent (UUID id, EventType type) {
+/**
+ * Change event of an employee. Thin events only carry {@code id} and {@code type}; full-state events additionally
+ * carry the employee {@code version} after the change and the complete {@code employee} snapshot.
+ */
+public record EmployeeEvent (UUID id, EventType type, Long version, EmployeeDTO employee) {
+
+    public EmployeeEvent(final UUID id, final EventType type) {
+        this(id, type, null, null);
+    }
 
     public enum EventType {
-        CREATED, UPDATED, DELETED
+        CREATED((byte) 1), UPDATED((byte) 2), DELETED((byte) 3);
+
+        // Wire code used by EmployeeEventCodec, independent of the declaration order
+        private final byte code;
+
+        EventType(final byte code) {
+            this.code = code;
+        }
+
+        public byte code() {
+            return code;
+        }
+
+        public static EventType fromCode(final byte code) {
+            for (var type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown employee event type code " + code);
+        }
     }
 
     @Override
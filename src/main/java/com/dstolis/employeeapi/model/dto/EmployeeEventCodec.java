@@ -0,0 +1,131 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary wire format of {@link EmployeeEvent}, used for the outbox payload and the Kafka record value. All numbers
+ * are big-endian, strings are a 4 byte length followed by UTF-8 bytes.
+ * <p>
+ * Version 1, thin event, 18 bytes:
+ * <pre>
+ * | version (1) | type code (1) | id most significant bits (8) | id least significant bits (8) |
+ * </pre>
+ * Version 2, full-state event, the version 1 layout followed by:
+ * <pre>
+ * | employee version (8) | email | full name | birthday epoch day (8) | hobby count (4) | hobby... |
+ * </pre>
+ * An empty payload is a tombstone: the employee was deleted and the record value is sent as {@code null}, so that a
+ * log-compacted topic eventually forgets the employee. The leading version byte lets consumers reject or branch on
+ * payloads written by newer producers.
+ */
+public final class EmployeeEventCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    public static final byte VERSION_2 = 2;
+
+    private static final int VERSION_1_LENGTH = 18;
+
+    /**
+     * Position of the employee version in a version 2 payload, where the single-statement update writes the version
+     * it produced.
+     */
+    public static final int EMPLOYEE_VERSION_OFFSET = VERSION_1_LENGTH;
+
+    private EmployeeEventCodec() {
+    }
+
+    public static byte[] encode(final EmployeeEvent event) {
+        if (event.employee() == null) {
+            return header(ByteBuffer.allocate(VERSION_1_LENGTH), VERSION_1, event).array();
+        }
+        return encodeFullState(event);
+    }
+
+    public static byte[] tombstone() {
+        return new byte[0];
+    }
+
+    public static boolean isTombstone(final byte[] payload) {
+        return payload.length == 0;
+    }
+
+    public static EmployeeEvent decode(final byte[] payload) {
+        if (payload == null || isTombstone(payload)) {
+            throw new IllegalArgumentException("Employee event payload is empty");
+        }
+        var buffer = ByteBuffer.wrap(payload);
+        var version = buffer.get();
+        if (version == VERSION_1 && payload.length == VERSION_1_LENGTH) {
+            var type = EmployeeEvent.EventType.fromCode(buffer.get());
+            return new EmployeeEvent(new UUID(buffer.getLong(), buffer.getLong()), type);
+        }
+        if (version == VERSION_2 && payload.length > VERSION_1_LENGTH) {
+            return decodeFullState(buffer);
+        }
+        throw new IllegalArgumentException(
+            "Unsupported employee event payload version " + version + " of length " + payload.length);
+    }
+
+    private static byte[] encodeFullState(final EmployeeEvent event) {
+        var employee = event.employee();
+        var email = utf8(employee.email());
+        var fullName = utf8(employee.fullName());
+        var hobbies = employee.hobbies() == null ? List.<String>of() : employee.hobbies();
+        var encodedHobbies = hobbies.stream().map(EmployeeEventCodec::utf8).toList();
+
+        var length = VERSION_1_LENGTH + Long.BYTES + Integer.BYTES + email.length + Integer.BYTES + fullName.length
+            + Long.BYTES + Integer.BYTES
+            + encodedHobbies.stream().mapToInt(hobby -> Integer.BYTES + hobby.length).sum();
+
+        var buffer = header(ByteBuffer.allocate(length), VERSION_2, event)
+            .putLong(event.version() == null ? 0 : event.version());
+        putString(buffer, email);
+        putString(buffer, fullName);
+        buffer.putLong(employee.birthday().toEpochDay());
+        buffer.putInt(encodedHobbies.size());
+        encodedHobbies.forEach(hobby -> putString(buffer, hobby));
+        return buffer.array();
+    }
+
+    private static EmployeeEvent decodeFullState(final ByteBuffer buffer) {
+        var type = EmployeeEvent.EventType.fromCode(buffer.get());
+        var id = new UUID(buffer.getLong(), buffer.getLong());
+        var version = buffer.getLong();
+        var email = getString(buffer);
+        var fullName = getString(buffer);
+        var birthday = LocalDate.ofEpochDay(buffer.getLong());
+        var hobbyCount = buffer.getInt();
+        var hobbies = new ArrayList<String>(hobbyCount);
+        for (int i = 0; i < hobbyCount; i++) {
+            hobbies.add(getString(buffer));
+        }
+        return new EmployeeEvent(id, type, version, new EmployeeDTO(id, email, fullName, birthday, hobbies, version));
+    }
+
+    private static ByteBuffer header(final ByteBuffer buffer, final byte version, final EmployeeEvent event) {
+        return buffer.put(version)
+            .put(event.type().code())
+            .putLong(event.id().getMostSignificantBits())
+            .putLong(event.id().getLeastSignificantBits());
+    }
+
+    private static byte[] utf8(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(final ByteBuffer buffer, final byte[] value) {
+        buffer.putInt(value.length).put(value);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        var value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,9 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of employees ordered by id. {@code nextCursor} is {@code null} on the last page.
+ */
+public record EmployeePage(List<EmployeeDTO> employees, String nextCursor) {
+}
@@ -0,0 +1,95 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * JSON Merge Patch (RFC 7396) of an employee: members that are present replace the value, {@code null} removes it and
+ * absent members are kept. Removing the email, full name or birthday makes the patched employee invalid, removing the
+ * hobbies leaves none. Read-only and unknown members are ignored, like in a {@code PUT}.
+ */
+public final class EmployeePatch {
+
+    private static final String EMAIL = "email";
+
+    private static final String FULL_NAME = "fullName";
+
+    private static final String BIRTHDAY = "birthday";
+
+    private static final String HOBBIES = "hobbies";
+
+    private final JsonNode patch;
+
+    private EmployeePatch(final JsonNode patch) {
+        this.patch = patch;
+    }
+
+    /**
+     * @throws InvalidRequestException if the patch is not a JSON object
+     */
+    public static EmployeePatch of(final JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidRequestException("Merge patch must be a JSON object");
+        }
+        return new EmployeePatch(patch);
+    }
+
+    public boolean patchesHobbies() {
+        return patch.has(HOBBIES);
+    }
+
+    /**
+     * @throws InvalidRequestException if a member has the wrong type
+     */
+    public EmployeeDTO applyTo(final EmployeeDTO employee) {
+        return new EmployeeDTO(employee.id(),
+            patch.has(EMAIL) ? text(EMAIL) : employee.email(),
+            patch.has(FULL_NAME) ? text(FULL_NAME) : employee.fullName(),
+            patch.has(BIRTHDAY) ? birthday() : employee.birthday(),
+            patchesHobbies() ? hobbies() : employee.hobbies(),
+            employee.version());
+    }
+
+    private String text(final String member) {
+        var value = patch.get(member);
+        if (value.isNull()) {
+            return null;
+        }
+        if (!value.isTextual()) {
+            throw new InvalidRequestException(member + " must be a string");
+        }
+        return value.textValue();
+    }
+
+    private LocalDate birthday() {
+        var value = text(BIRTHDAY);
+        try {
+            return value == null ? null : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException(BIRTHDAY + " must be a date like 1990-01-01", e);
+        }
+    }
+
+    private List<String> hobbies() {
+        var value = patch.get(HOBBIES);
+        if (value.isNull()) {
+            return List.of();
+        }
+        if (!value.isArray()) {
+            throw new InvalidRequestException(HOBBIES + " must be an array of strings");
+        }
+        var hobbies = new ArrayList<String>(value.size());
+        for (var hobby : value) {
+            if (!hobby.isTextual()) {
+                throw new InvalidRequestException(HOBBIES + " must be an array of strings");
+            }
+            hobbies.add(hobby.textValue());
+        }
+        return hobbies;
+    }
+}
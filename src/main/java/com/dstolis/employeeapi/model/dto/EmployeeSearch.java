@@ -0,0 +1,14 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of an employee search, {@code null} filters are not applied.
+ *
+ * @param name substring of the full name, case-insensitive
+ * @param birthdayFrom earliest birthday, inclusive
+ * @param birthdayTo latest birthday, inclusive
+ * @param hobby hobby the employee must have, exact match
+ */
+public record EmployeeSearch(String name, LocalDate birthdayFrom, LocalDate birthdayTo, String hobby) {
+}
@@ -0,0 +1,12 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics over all employees. Ages are the ones reached in the current year, grouped by decade like {@code 30-39};
+ * birth months are numbered from 1.
+ */
+public record EmployeeStats(long headcount, Map<String, Long> ageGroups, Map<Integer, Long> birthMonths,
+                            List<HobbyCount> topHobbies) {
+}
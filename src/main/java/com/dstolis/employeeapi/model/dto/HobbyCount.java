@@ -0,0 +1,7 @@
+package com.dstolis.employeeapi.model.dto;
+
+/**
+ * Number of employees having a hobby.
+ */
+public record HobbyCount(String hobby, long count) {
+}
@@ -0,0 +1,12 @@
+package com.dstolis.employeeapi.model.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Employees matched by a hobby query: the total {@code count} and the ids of at most the requested number of them.
+ */
+public record HobbyMatches(long count, List<UUID> employeeIds) {
+
+    public static final HobbyMatches NONE = new HobbyMatches(0, List.of());
+}
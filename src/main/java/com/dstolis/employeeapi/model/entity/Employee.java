@@ -6,26 +6,32 @@ import java.util.UUID;
 
 import com.dstolis.employeeapi.model.dto.EmployeeDTO;
 
-import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 
 
 @Entity
-@Table(name = "employees")
+@Table(name = "employees",
+    uniqueConstraints = @UniqueConstraint(name = Employee.EMAIL_CONSTRAINT, columnNames = "email"))
 public class Employee {
 
+    /**
+     * Name of the unique constraint on the email, which tells a taken email apart from other violations.
+     */
+    public static final String EMAIL_CONSTRAINT = "employees_email_key";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private UUID id;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
     @Column(name = "full_name", nullable = false)
@@ -34,11 +40,13 @@ public class Employee {
     @Column(nullable = false)
     private LocalDate birthday;
 
-    @ElementCollection
-    @CollectionTable(name = "employee_hobbies", joinColumns = @JoinColumn(name = "employee_id"))
-    @Column(name = "hobby")
+    // Stored in the hobby dictionary and employee_hobby, which EmployeeCommandRepository writes and the projections read
+    @Transient
     private List<String> hobbies;
 
+    @Version
+    private Long version;
+
     // Default constructor for JPA
     public Employee() {}
 
@@ -89,6 +97,14 @@ public class Employee {
         this.hobbies = hobbies;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(final Long version) {
+        this.version = version;
+    }
+
     // Getters and setters...
 
     @Override
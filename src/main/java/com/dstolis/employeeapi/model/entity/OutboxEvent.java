@@ -38,7 +38,9 @@ public class OutboxEvent {
 
     public enum Status {
         PENDING,
-        PROCESSED
+        PROCESSED,
+        // Dead-lettered after exhausting all publish attempts
+        FAILED
     }
 
     @Id
@@ -47,16 +49,20 @@ public class OutboxEvent {
     private UUID aggregateId;
     private String aggregateType;
     private String eventType;
-    private String payload;
+    private byte[] payload;
     private OffsetDateTime eventTime;
 
     @Enumerated(EnumType.STRING)
     private Status status;
 
+    private int attempts;
+    private OffsetDateTime nextAttemptAt;
+    private String lastError;
+
     public OutboxEvent() {
     }
 
-    public OutboxEvent(final UUID aggregateId, final String aggregateType, final String eventType, final String payload,
+    public OutboxEvent(final UUID aggregateId, final String aggregateType, final String eventType, final byte[] payload,
         final OffsetDateTime eventTime, final Status status) {
         this.aggregateId = aggregateId;
         this.aggregateType = aggregateType;
@@ -98,11 +104,11 @@ public class OutboxEvent {
         this.eventType = eventType;
     }
 
-    public String getPayload() {
+    public byte[] getPayload() {
         return payload;
     }
 
-    public void setPayload(final String payload) {
+    public void setPayload(final byte[] payload) {
         this.payload = payload;
     }
 
@@ -121,4 +127,28 @@ public class OutboxEvent {
     public void setStatus(final Status status) {
         this.status = status;
     }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(final int attempts) {
+        this.attempts = attempts;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(final OffsetDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(final String lastError) {
+        this.lastError = lastError;
+    }
 }
@@ -0,0 +1,53 @@
+package com.dstolis.employeeapi.model.entity;
+
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "outbox_lease")
+public class OutboxLease {
+
+    @Id
+    private Integer partitionId;
+    private String owner;
+    private OffsetDateTime leaseUntil;
+    private Long epoch;
+
+    public OutboxLease() {
+    }
+
+    public Integer getPartitionId() {
+        return partitionId;
+    }
+
+    public void setPartitionId(final Integer partitionId) {
+        this.partitionId = partitionId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(final String owner) {
+        this.owner = owner;
+    }
+
+    public OffsetDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(final OffsetDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public Long getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(final Long epoch) {
+        this.epoch = epoch;
+    }
+}
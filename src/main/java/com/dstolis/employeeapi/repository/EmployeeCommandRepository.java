@@ -0,0 +1,58 @@
+package com.dstolis.employeeapi.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.dstolis.employeeapi.model.entity.Employee;
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+
+/**
+ * Write paths that change an employee, its hobbies and the outbox with a single statement, one round trip. They rely
+ * on the unique constraint on {@code employees.email} instead of looking up the email first, which was also racy.
+ * <p>
+ * Hobbies are stored in the {@code hobbies} dictionary and referenced from {@code employee_hobby}. Replacing the
+ * hobbies of an employee only inserts the added ones, deletes the removed ones and moves the ones whose position
+ * changed; the others are not written at all.
+ */
+public interface EmployeeCommandRepository {
+
+    /**
+     * @param employee employee with its id already assigned
+     * @return whether the employee was inserted, {@code false} if another employee has its email
+     */
+    boolean insertWithEvent(Employee employee, OutboxEvent event);
+
+    /**
+     * Replaces email, full name, birthday and, if asked to, hobbies of the employee and increments its version. With
+     * {@code outbox.events.full-state} enabled, the same statement writes the new version into the event payload.
+     *
+     * @param expectedVersion version the employee must have, {@code null} to update unconditionally
+     * @param replaceHobbies whether to replace the hobbies, otherwise they are neither read nor written
+     * @throws org.springframework.dao.DataIntegrityViolationException if another employee has the email
+     */
+    UpdateResult updateWithEvent(Employee employee, Long expectedVersion, boolean replaceHobbies, OutboxEvent event);
+
+    /**
+     * Inserts the employees, or updates the employee with the same email, and replaces their hobbies with one
+     * statement. Every update increments the version of the employee.
+     *
+     * @param employees employees with distinct emails, with the ids to insert them with
+     * @return the outcome for every employee, in the order given
+     */
+    List<UpsertResult> upsertAll(List<Employee> employees);
+
+    /**
+     * @param found whether the employee exists
+     * @param version new version of the employee, {@code null} if it was not updated
+     */
+    record UpdateResult(boolean found, Long version) {
+    }
+
+    /**
+     * @param id id of the stored employee, the given one if it was created
+     * @param version version of the stored employee
+     * @param created whether the employee was created rather than updated
+     */
+    record UpsertResult(UUID id, long version, boolean created) {
+    }
+}
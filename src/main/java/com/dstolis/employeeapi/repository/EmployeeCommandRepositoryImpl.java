@@ -0,0 +1,224 @@
+package com.dstolis.employeeapi.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dstolis.employeeapi.model.dto.EmployeeEventCodec;
+import com.dstolis.employeeapi.model.entity.Employee;
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+@Transactional
+public class EmployeeCommandRepositoryImpl implements EmployeeCommandRepository {
+
+    // Hobbies come as a JSON array, a repeated hobby is kept once at its first position
+    private static final String HOBBY_INPUT = """
+        hobby_input AS (
+            SELECT hobby_owner.id AS employee_id, h.name, min(h.position) AS position
+            FROM hobby_owner, json_array_elements_text(CAST(:hobbies AS json)) WITH ORDINALITY h(name, position)
+            GROUP BY hobby_owner.id, h.name
+        ),
+        """;
+
+    // Turns hobby_input into the hobbies of the employees in hobby_owner, touching only the rows that change. Names not
+    // yet in the dictionary are added; one inserted concurrently is missing from the snapshot of the statement, so
+    // the conflict is resolved with an update that returns its id.
+    private static final String REPLACE_HOBBIES = """
+        new_hobbies AS (
+            INSERT INTO hobbies (name)
+            SELECT DISTINCT i.name
+            FROM hobby_input i
+            WHERE NOT EXISTS (SELECT 1 FROM hobbies h WHERE h.name = i.name)
+            ON CONFLICT (name) DO UPDATE SET name = EXCLUDED.name
+            RETURNING id, name
+        ),
+        hobby_ids AS (
+            SELECT i.employee_id, coalesce(n.id, h.id) AS hobby_id, i.position
+            FROM hobby_input i
+                     LEFT JOIN new_hobbies n ON n.name = i.name
+                     LEFT JOIN hobbies h ON h.name = i.name
+        ),
+        removed_hobbies AS (
+            DELETE FROM employee_hobby eh
+            USING hobby_owner
+            WHERE eh.employee_id = hobby_owner.id
+              AND NOT EXISTS (SELECT 1 FROM hobby_ids k WHERE k.employee_id = eh.employee_id AND k.hobby_id = eh.hobby_id)
+        ),
+        added_hobbies AS (
+            INSERT INTO employee_hobby (employee_id, hobby_id, position)
+            SELECT employee_id, hobby_id, position FROM hobby_ids
+            ON CONFLICT (employee_id, hobby_id) DO UPDATE SET position = EXCLUDED.position
+            WHERE employee_hobby.position <> EXCLUDED.position
+        )""";
+
+    private static final String INSERT_EVENT = """
+        event AS (
+            INSERT INTO outbox (id, aggregate_id, aggregate_type, event_type, payload, event_time, status)
+            SELECT :eventId, employee.id, :aggregateType, :eventType, %s, :eventTime, :status
+            FROM employee
+        )
+        """;
+
+    // Conflicts on the email insert nothing, neither hobbies nor event, and return no row
+    private static final String INSERT_EMPLOYEE = """
+        WITH employee AS (
+            INSERT INTO employees (id, email, full_name, birthday)
+            VALUES (:id, :email, :fullName, :birthday)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING id, version
+        ),
+        hobby_owner AS (SELECT id FROM employee),
+        """ + HOBBY_INPUT + REPLACE_HOBBIES + ",\n" + INSERT_EVENT.formatted(":payload") + """
+        SELECT version FROM employee""";
+
+    // All parts see the snapshot before the update, so the EXISTS tells a missing employee from an outdated version.
+    // Without replaceHobbies hobby_owner is empty and the hobbies are neither read nor written.
+    private static final String UPDATE_EMPLOYEE = """
+        WITH employee AS (
+            UPDATE employees
+            SET email = :email, full_name = :fullName, birthday = :birthday, version = version + 1
+            WHERE id = :id AND (CAST(:expectedVersion AS bigint) IS NULL OR version = CAST(:expectedVersion AS bigint))
+            RETURNING id, version
+        ),
+        hobby_owner AS (SELECT id FROM employee WHERE CAST(:replaceHobbies AS boolean)),
+        """ + HOBBY_INPUT + REPLACE_HOBBIES + ",\n%s" + """
+        SELECT (SELECT version FROM employee) AS version, EXISTS (SELECT 1 FROM employees WHERE id = :id) AS found""";
+
+    private static final String UPDATE_EMPLOYEE_THIN_EVENT = UPDATE_EMPLOYEE.formatted(
+        INSERT_EVENT.formatted(":payload"));
+
+    private static final String UPDATE_EMPLOYEE_FULL_STATE_EVENT = UPDATE_EMPLOYEE.formatted(
+        INSERT_EVENT.formatted("overlay(:payload PLACING int8send(employee.version) FROM "
+            + (EmployeeEventCodec.EMPLOYEE_VERSION_OFFSET + 1) + " FOR 8)"));
+
+    // Employees come as a JSON array of objects; the ones whose email exists are updated instead of inserted
+    private static final String UPSERT_EMPLOYEES = """
+        WITH input AS (
+            SELECT CAST(i.item ->> 'id' AS uuid) AS id, i.item ->> 'email' AS email, i.item ->> 'fullName' AS full_name,
+                   CAST(i.item ->> 'birthday' AS date) AS birthday, i.item -> 'hobbies' AS hobbies
+            FROM json_array_elements(CAST(:employees AS json)) i(item)
+        ),
+        employee AS (
+            INSERT INTO employees (id, email, full_name, birthday)
+            SELECT id, email, full_name, birthday FROM input
+            ON CONFLICT (email) DO UPDATE
+                SET full_name = EXCLUDED.full_name, birthday = EXCLUDED.birthday, version = employees.version + 1
+            RETURNING id, email, version
+        ),
+        hobby_input AS (
+            SELECT employee.id AS employee_id, h.name, min(h.position) AS position
+            FROM employee
+                     JOIN input ON input.email = employee.email
+                     CROSS JOIN LATERAL json_array_elements_text(input.hobbies) WITH ORDINALITY h(name, position)
+            GROUP BY employee.id, h.name
+        ),
+        hobby_owner AS (SELECT id FROM employee),
+        """ + REPLACE_HOBBIES + """
+
+        SELECT id, email, version FROM employee""";
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final String updateEmployee;
+
+    /**
+     * @param fullState whether the outbox events are full-state, which needs the new version written into the payload
+     */
+    public EmployeeCommandRepositoryImpl(final EntityManager entityManager, final ObjectMapper objectMapper,
+        @Value("${outbox.events.full-state:false}") final boolean fullState) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.updateEmployee = fullState ? UPDATE_EMPLOYEE_FULL_STATE_EVENT : UPDATE_EMPLOYEE_THIN_EVENT;
+    }
+
+    @Override
+    public boolean insertWithEvent(final Employee employee, final OutboxEvent event) {
+        var query = command(INSERT_EMPLOYEE, employee, event)
+            .addScalar("version", Long.class);
+        return !query.getResultList().isEmpty();
+    }
+
+    @Override
+    public UpdateResult updateWithEvent(final Employee employee, final Long expectedVersion,
+        final boolean replaceHobbies, final OutboxEvent event) {
+        var row = (Object[]) command(updateEmployee, employee, event)
+            .setParameter("expectedVersion", expectedVersion, Long.class)
+            .setParameter("replaceHobbies", replaceHobbies)
+            .addScalar("version", Long.class)
+            .addScalar("found", Boolean.class)
+            .getSingleResult();
+        return new UpdateResult((Boolean) row[1], (Long) row[0]);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<UpsertResult> upsertAll(final List<Employee> employees) {
+        var input = new ArrayList<Map<String, Object>>(employees.size());
+        for (var employee : employees) {
+            var item = new LinkedHashMap<String, Object>();
+            item.put("id", employee.getId());
+            item.put("email", employee.getEmail());
+            item.put("fullName", employee.getFullName());
+            item.put("birthday", employee.getBirthday().toString());
+            item.put("hobbies", employee.getHobbies() == null ? List.of() : employee.getHobbies());
+            input.add(item);
+        }
+        var rows = ((NativeQuery<Object[]>) entityManager.createNativeQuery(UPSERT_EMPLOYEES)
+            .unwrap(NativeQuery.class))
+            .setParameter("employees", json(input))
+            .addScalar("id", UUID.class)
+            .addScalar("email", String.class)
+            .addScalar("version", Long.class)
+            .getResultList();
+
+        var rowsByEmail = new HashMap<String, Object[]>();
+        rows.forEach(row -> rowsByEmail.put((String) row[1], row));
+        return employees.stream()
+            .map(employee -> {
+                var row = rowsByEmail.get(employee.getEmail());
+                return new UpsertResult((UUID) row[0], (Long) row[2], employee.getId().equals(row[0]));
+            })
+            .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object> command(final String sql, final Employee employee, final OutboxEvent event) {
+        if (event.getId() == null) {
+            event.setId(UUID.randomUUID());
+        }
+        return entityManager.createNativeQuery(sql)
+            .unwrap(NativeQuery.class)
+            .setParameter("id", employee.getId())
+            .setParameter("email", employee.getEmail())
+            .setParameter("fullName", employee.getFullName())
+            .setParameter("birthday", employee.getBirthday())
+            .setParameter("hobbies", json(employee.getHobbies() == null ? List.of() : employee.getHobbies()))
+            .setParameter("eventId", event.getId())
+            .setParameter("aggregateType", event.getAggregateType())
+            .setParameter("eventType", event.getEventType())
+            .setParameter("payload", event.getPayload())
+            .setParameter("eventTime", event.getEventTime())
+            .setParameter("status", event.getStatus().name());
+    }
+
+    private String json(final Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot write " + value + " as JSON", e);
+        }
+    }
+}
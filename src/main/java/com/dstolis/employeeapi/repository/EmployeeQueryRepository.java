@@ -0,0 +1,36 @@
+package com.dstolis.employeeapi.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.dstolis.employeeapi.model.dto.BirthdayCursor;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.dto.EmployeeSearch;
+
+/**
+ * Read-only projections that build {@link EmployeeDTO} straight from the result set, with the hobbies aggregated in
+ * the same statement. No entity is hydrated, so there are no dirty checking snapshots and no lazy collections.
+ */
+public interface EmployeeQueryRepository {
+
+    Optional<EmployeeDTO> findDtoById(UUID id);
+
+    /**
+     * Keyset page: seeks past {@code after} on the primary key index instead of skipping rows, so every page costs
+     * the same no matter how deep the client pages.
+     */
+    List<EmployeeDTO> findDtoPageAfter(UUID after, int limit);
+
+    /**
+     * Keyset page of the employees matching all given filters. Each filter is served by an index: trigram GIN for the
+     * name, B-tree for the birthday range and {@code employee_hobby (hobby_id, employee_id)} for the hobby.
+     */
+    List<EmployeeDTO> searchDtoPageAfter(EmployeeSearch search, UUID after, int limit);
+
+    /**
+     * Keyset page of the employees whose birthday, as {@code MMDD}, lies between the given days, ordered by that day
+     * and id. Served by the {@code employees (birth_mmdd, id)} index.
+     */
+    List<EmployeeDTO> findDtoPageByBirthMonthDay(int fromMonthDay, int toMonthDay, BirthdayCursor after, int limit);
+}
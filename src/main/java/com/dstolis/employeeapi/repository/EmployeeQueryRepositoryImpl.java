@@ -0,0 +1,153 @@
+package com.dstolis.employeeapi.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dstolis.employeeapi.model.dto.BirthdayCursor;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.dto.EmployeeSearch;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+@Transactional(readOnly = true)
+public class EmployeeQueryRepositoryImpl implements EmployeeQueryRepository {
+
+    // Hobbies come as a JSON array, which maps to a plain string column in any native query
+    private static final String SELECT_EMPLOYEE_DTO = """
+        SELECT e.id, e.email, e.full_name, e.birthday, e.version,
+               CAST((SELECT coalesce(json_agg(h.name ORDER BY eh.position), '[]')
+                     FROM employee_hobby eh
+                              JOIN hobbies h ON h.id = eh.hobby_id
+                     WHERE eh.employee_id = e.id) AS text) AS hobbies
+        FROM employees e
+        """;
+
+    // EmployeeBirthdayLargeTest checks that the plan of this query uses the birth_mmdd index
+    static final String BIRTHDAY_PAGE_QUERY = SELECT_EMPLOYEE_DTO + """
+        WHERE e.birth_mmdd BETWEEN CAST(:fromMonthDay AS smallint) AND CAST(:toMonthDay AS smallint)
+          AND (e.birth_mmdd, e.id) > (CAST(:afterMonthDay AS smallint), :afterId)
+        ORDER BY e.birth_mmdd, e.id
+        LIMIT :limit""";
+
+    private static final TypeReference<List<String>> HOBBIES = new TypeReference<>() {
+    };
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public EmployeeQueryRepositoryImpl(final EntityManager entityManager, final ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Optional<EmployeeDTO> findDtoById(final UUID id) {
+        return employeeQuery(SELECT_EMPLOYEE_DTO + "WHERE e.id = :id")
+            .setParameter("id", id)
+            .getResultList()
+            .stream()
+            .map(this::toDto)
+            .findFirst();
+    }
+
+    @Override
+    public List<EmployeeDTO> findDtoPageAfter(final UUID after, final int limit) {
+        return employeeQuery(SELECT_EMPLOYEE_DTO + "WHERE e.id > :after ORDER BY e.id LIMIT :limit")
+            .setParameter("after", after)
+            .setParameter("limit", limit)
+            .getResultList()
+            .stream()
+            .map(this::toDto)
+            .toList();
+    }
+
+    @Override
+    public List<EmployeeDTO> searchDtoPageAfter(final EmployeeSearch search, final UUID after, final int limit) {
+        var conditions = new ArrayList<String>();
+        conditions.add("e.id > :after");
+        if (search.name() != null) {
+            conditions.add("e.full_name ILIKE :name ESCAPE '\\'");
+        }
+        if (search.birthdayFrom() != null) {
+            conditions.add("e.birthday >= :birthdayFrom");
+        }
+        if (search.birthdayTo() != null) {
+            conditions.add("e.birthday <= :birthdayTo");
+        }
+        if (search.hobby() != null) {
+            conditions.add("EXISTS (SELECT 1 FROM employee_hobby eh WHERE eh.employee_id = e.id"
+                + " AND eh.hobby_id = (SELECT h.id FROM hobbies h WHERE h.name = :hobby))");
+        }
+
+        var query = employeeQuery(SELECT_EMPLOYEE_DTO + "WHERE " + String.join(" AND ", conditions)
+            + " ORDER BY e.id LIMIT :limit")
+            .setParameter("after", after)
+            .setParameter("limit", limit);
+        if (search.name() != null) {
+            query.setParameter("name", "%" + escapeLike(search.name()) + "%");
+        }
+        if (search.birthdayFrom() != null) {
+            query.setParameter("birthdayFrom", search.birthdayFrom());
+        }
+        if (search.birthdayTo() != null) {
+            query.setParameter("birthdayTo", search.birthdayTo());
+        }
+        if (search.hobby() != null) {
+            query.setParameter("hobby", search.hobby());
+        }
+        return query.getResultList()
+            .stream()
+            .map(this::toDto)
+            .toList();
+    }
+
+    @Override
+    public List<EmployeeDTO> findDtoPageByBirthMonthDay(final int fromMonthDay, final int toMonthDay,
+        final BirthdayCursor after, final int limit) {
+        return employeeQuery(BIRTHDAY_PAGE_QUERY)
+            .setParameter("fromMonthDay", fromMonthDay)
+            .setParameter("toMonthDay", toMonthDay)
+            .setParameter("afterMonthDay", after.monthDay())
+            .setParameter("afterId", after.id())
+            .setParameter("limit", limit)
+            .getResultList()
+            .stream()
+            .map(this::toDto)
+            .toList();
+    }
+
+    private static String escapeLike(final String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> employeeQuery(final String sql) {
+        return entityManager.createNativeQuery(sql)
+            .unwrap(NativeQuery.class)
+            .addScalar("id", UUID.class)
+            .addScalar("email", String.class)
+            .addScalar("full_name", String.class)
+            .addScalar("birthday", LocalDate.class)
+            .addScalar("version", Long.class)
+            .addScalar("hobbies", String.class);
+    }
+
+    private EmployeeDTO toDto(final Object[] row) {
+        try {
+            return new EmployeeDTO((UUID) row[0], (String) row[1], (String) row[2], (LocalDate) row[3],
+                objectMapper.readValue((String) row[5], HOBBIES), (Long) row[4]);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid hobbies of employee " + row[0], e);
+        }
+    }
+}
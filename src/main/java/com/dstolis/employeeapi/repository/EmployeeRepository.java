@@ -4,10 +4,19 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.dstolis.employeeapi.model.entity.Employee;
 
-public interface EmployeeRepository extends JpaRepository<Employee, UUID> {
+public interface EmployeeRepository extends JpaRepository<Employee, UUID>, EmployeeQueryRepository,
+    EmployeeCommandRepository {
 
-    Optional<Employee> findByEmail(String email);
+    /**
+     * Reads only the version, for answering conditional requests without hydrating the employee and its hobbies.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT e.version FROM Employee e WHERE e.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
 }
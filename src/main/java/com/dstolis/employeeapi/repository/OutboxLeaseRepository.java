@@ -0,0 +1,85 @@
+package com.dstolis.employeeapi.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.dstolis.employeeapi.model.entity.OutboxLease;
+
+/**
+ * Lease bookkeeping for the outbox relay. All timestamps come from the database clock, so instances with skewed
+ * clocks still agree on which leases are expired.
+ */
+public interface OutboxLeaseRepository extends JpaRepository<OutboxLease, Integer> {
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO outbox_relay_member (owner, heartbeat_until)
+        VALUES (:owner, now() + make_interval(secs => :ttl))
+        ON CONFLICT (owner) DO UPDATE SET heartbeat_until = EXCLUDED.heartbeat_until""", nativeQuery = true)
+    int heartbeat(@Param("owner") String owner, @Param("ttl") int ttlSeconds);
+
+    @Modifying
+    @Query(value = "DELETE FROM outbox_relay_member WHERE heartbeat_until <= now()", nativeQuery = true)
+    int deleteExpiredMembers();
+
+    @Query(value = "SELECT count(*) FROM outbox_relay_member WHERE heartbeat_until > now()", nativeQuery = true)
+    long countActiveMembers();
+
+    /**
+     * Runs in the relay's batch transaction too: the updated lease rows stay locked until it ends, and {@link #claim}
+     * skips locked rows, so a lease cannot change hands while a batch of its partition is being published.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE outbox_lease SET lease_until = now() + make_interval(secs => :ttl)
+        WHERE owner = :owner AND lease_until > now()""", nativeQuery = true)
+    int renew(@Param("owner") String owner, @Param("ttl") int ttlSeconds);
+
+    @Query(value = """
+        SELECT partition_id FROM outbox_lease
+        WHERE owner = :owner AND lease_until > now()
+        ORDER BY partition_id""", nativeQuery = true)
+    List<Integer> findOwnedPartitions(@Param("owner") String owner);
+
+    /**
+     * @return the highest epoch among the live leases of the owner, {@code 0} if it has none
+     */
+    @Query(value = """
+        SELECT coalesce(max(epoch), 0) FROM outbox_lease
+        WHERE owner = :owner AND lease_until > now()""", nativeQuery = true)
+    long findFencingToken(@Param("owner") String owner);
+
+    @Modifying
+    @Query(value = """
+        UPDATE outbox_lease
+        SET owner = :owner, lease_until = now() + make_interval(secs => :ttl), epoch = nextval('outbox_lease_epoch_seq')
+        WHERE partition_id IN (
+            SELECT partition_id FROM outbox_lease
+            WHERE owner IS NULL OR lease_until <= now()
+            ORDER BY partition_id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED)""", nativeQuery = true)
+    int claim(@Param("owner") String owner, @Param("ttl") int ttlSeconds, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+        UPDATE outbox_lease SET owner = NULL, lease_until = NULL
+        WHERE partition_id IN (
+            SELECT partition_id FROM outbox_lease
+            WHERE owner = :owner
+            ORDER BY partition_id DESC
+            LIMIT :limit)""", nativeQuery = true)
+    int release(@Param("owner") String owner, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE outbox_lease SET owner = NULL, lease_until = NULL WHERE owner = :owner", nativeQuery = true)
+    int releaseAll(@Param("owner") String owner);
+
+    @Modifying
+    @Query(value = "DELETE FROM outbox_relay_member WHERE owner = :owner", nativeQuery = true)
+    int deleteMember(@Param("owner") String owner);
+}
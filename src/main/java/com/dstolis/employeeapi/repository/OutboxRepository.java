@@ -1,13 +1,113 @@
 package com.dstolis.employeeapi.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.dstolis.employeeapi.model.entity.OutboxEvent;
 
 public interface OutboxRepository extends JpaRepository<OutboxEvent, UUID> {
 
-    List<OutboxEvent> findAllByStatus(OutboxEvent.Status status);
+    /**
+     * Locks and returns the oldest pending events of the logical partitions leased by the owner. An event belongs to
+     * partition {@code hash(aggregate_id) mod partitionCount}, so all events of one aggregate land in the same
+     * partition. Leases claimed after the fencing token was read have a higher epoch and are left out. Rows locked by
+     * another relay transaction are skipped. Must be called inside a transaction.
+     * <p>
+     * Events waiting for a retry are skipped until their next attempt is due, and so are all later events of the same
+     * aggregate, which keeps the per-aggregate order without holding back other aggregates. Dead-lettered events, in
+     * {@code outbox} or already moved to {@code outbox_dead_letter}, hold back the later events of their aggregate until
+     * they are replayed or discarded.
+     */
+    @Query(value = """
+        SELECT * FROM outbox
+        WHERE status = 'PENDING'
+          AND mod(hashtext(CAST(aggregate_id AS text)) & 2147483647, :partitionCount) IN (
+              SELECT partition_id FROM outbox_lease
+              WHERE owner = :owner AND epoch <= :fencingToken AND lease_until > now())
+          AND (next_attempt_at IS NULL OR next_attempt_at <= localtimestamp)
+          AND NOT EXISTS (SELECT 1
+                          FROM outbox parked
+                          WHERE parked.aggregate_id = outbox.aggregate_id
+                            AND parked.status = 'PENDING'
+                            AND parked.next_attempt_at > localtimestamp
+                            AND parked.event_time < outbox.event_time)
+          AND NOT EXISTS (SELECT 1
+                          FROM outbox failed
+                          WHERE failed.aggregate_id = outbox.aggregate_id
+                            AND failed.status = 'FAILED'
+                            AND failed.event_time < outbox.event_time)
+          AND NOT EXISTS (SELECT 1
+                          FROM outbox_dead_letter dead
+                          WHERE dead.aggregate_id = outbox.aggregate_id
+                            AND dead.event_time < outbox.event_time)
+        ORDER BY event_time, id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<OutboxEvent> claimPendingBatch(@Param("partitionCount") int partitionCount, @Param("owner") String owner,
+        @Param("fencingToken") long fencingToken, @Param("limit") int limit);
+
+    @Query(value = "SELECT count(*) FROM outbox WHERE status = 'PENDING'", nativeQuery = true)
+    long countPending();
+
+    /**
+     * @return dead-lettered events, including the ones moved to {@code outbox_dead_letter}
+     */
+    @Query(value = """
+        SELECT (SELECT count(*) FROM outbox WHERE status = 'FAILED') + (SELECT count(*) FROM outbox_dead_letter)""",
+        nativeQuery = true)
+    long countFailed();
+
+    /**
+     * @return seconds since the oldest pending event was written, {@code null} if nothing is pending
+     */
+    @Query(value = """
+        SELECT CAST(EXTRACT(EPOCH FROM localtimestamp - min(event_time)) AS double precision)
+        FROM outbox
+        WHERE status = 'PENDING'""", nativeQuery = true)
+    Double findOldestPendingAgeSeconds();
+
+    /**
+     * Marks the events as sent, as long as the owner still holds the leases of their partitions with an epoch no higher
+     * than the fencing token. Events of a lease that changed hands stay pending for the new owner.
+     *
+     * @return the number of events marked
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE outbox SET status = 'PROCESSED'
+        WHERE id IN (:ids)
+          AND mod(hashtext(CAST(aggregate_id AS text)) & 2147483647, :partitionCount) IN (
+              SELECT partition_id FROM outbox_lease
+              WHERE owner = :owner AND epoch <= :fencingToken)""", nativeQuery = true)
+    int markProcessed(@Param("ids") Collection<UUID> ids, @Param("partitionCount") int partitionCount,
+        @Param("owner") String owner, @Param("fencingToken") long fencingToken);
+
+    /**
+     * Parks the events until their next attempt, backing off exponentially with the number of attempts so far.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE outbox
+        SET attempts        = attempts + 1,
+            next_attempt_at = localtimestamp
+                + make_interval(secs => least(:initialBackoff * power(2, attempts), :maxBackoff)),
+            last_error      = :error
+        WHERE id IN (:ids)""", nativeQuery = true)
+    int scheduleRetry(@Param("ids") Collection<UUID> ids, @Param("error") String error,
+        @Param("initialBackoff") long initialBackoffSeconds, @Param("maxBackoff") long maxBackoffSeconds);
+
+    @Modifying
+    @Query(value = """
+        UPDATE outbox
+        SET attempts   = attempts + 1,
+            status     = 'FAILED',
+            last_error = :error
+        WHERE id IN (:ids)""", nativeQuery = true)
+    int markFailed(@Param("ids") Collection<UUID> ids, @Param("error") String error);
 }
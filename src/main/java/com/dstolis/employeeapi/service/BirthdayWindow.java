@@ -0,0 +1,67 @@
+package com.dstolis.employeeapi.service;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.List;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+
+/**
+ * The birthdays, as {@code MMDD} ranges, that fall on the days from a date up to a number of days later. A window
+ * across the end of the year splits into the rest of this year and the start of the next. In a year without
+ * February 29 the employees born on that day celebrate on February 28.
+ */
+final class BirthdayWindow {
+
+    /**
+     * Longest window whose two ranges cannot overlap.
+     */
+    static final int MAX_DAYS = 364;
+
+    private static final int DECEMBER_31 = 1231;
+
+    private static final int JANUARY_1 = 101;
+
+    private static final int FEBRUARY_28 = 228;
+
+    private static final int FEBRUARY_29 = 229;
+
+    private BirthdayWindow() {
+    }
+
+    /**
+     * @return the ranges in the order their days come, one or two
+     */
+    static List<Range> of(final LocalDate from, final int days) {
+        if (days < 0 || days > MAX_DAYS) {
+            throw new InvalidRequestException("Days must be between 0 and " + MAX_DAYS);
+        }
+        var to = from.plusDays(days);
+        if (from.getYear() == to.getYear()) {
+            return List.of(new Range(monthDay(from), endOfRange(to)));
+        }
+        return List.of(new Range(monthDay(from), DECEMBER_31), new Range(JANUARY_1, endOfRange(to)));
+    }
+
+    static int monthDay(final LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    private static int endOfRange(final LocalDate to) {
+        var monthDay = monthDay(to);
+        if (monthDay == FEBRUARY_28 && !Year.isLeap(to.getYear())) {
+            return FEBRUARY_29;
+        }
+        return monthDay;
+    }
+
+    /**
+     * Inclusive range of {@code MMDD} values.
+     */
+    record Range(int from, int to) {
+
+        boolean contains(final int monthDay) {
+            return from <= monthDay && monthDay <= to;
+        }
+    }
+}
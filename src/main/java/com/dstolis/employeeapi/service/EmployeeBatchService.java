@@ -0,0 +1,141 @@
+package com.dstolis.employeeapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.dstolis.employeeapi.model.dto.EmployeeBatchResult;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.entity.Employee;
+import com.dstolis.employeeapi.repository.EmployeeCommandRepository;
+import com.dstolis.employeeapi.repository.EmployeeRepository;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Creates or updates many employees in one transaction, matching them by email.
+ * <p>
+ * The employees and their hobbies are upserted with a single statement for the whole batch, which resolves email
+ * conflicts with {@code ON CONFLICT}. The outbox events follow as JDBC batches: with
+ * {@code hibernate.jdbc.batch_size}, ordered inserts and the {@code reWriteBatchedInserts} driver option they go out
+ * as a few multi-row statements instead of one round trip per row.
+ */
+@Service
+public class EmployeeBatchService {
+
+    private final EmployeeRepository employeeRepository;
+
+    private final OutboxRepository outboxRepository;
+
+    private final OutboxEventFactory outboxEventFactory;
+
+    private final EmployeeCache employeeCache;
+
+    private final HobbyIndex hobbyIndex;
+
+    private final Validator validator;
+
+    private final int maxBatchSize;
+
+    @Autowired
+    public EmployeeBatchService(final EmployeeRepository employeeRepository, final OutboxRepository outboxRepository,
+        final OutboxEventFactory outboxEventFactory, final EmployeeCache employeeCache, final HobbyIndex hobbyIndex,
+        final Validator validator, @Value("${employees.batch.max-size:1000}") final int maxBatchSize) {
+        this.employeeRepository = employeeRepository;
+        this.outboxRepository = outboxRepository;
+        this.outboxEventFactory = outboxEventFactory;
+        this.employeeCache = employeeCache;
+        this.hobbyIndex = hobbyIndex;
+        this.validator = validator;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Items that are invalid or repeat the email of an earlier item are rejected, the others are written; an
+     * employee with the email of an item is updated, otherwise one is created.
+     *
+     * @return one result per item, in the order of the items
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<EmployeeBatchResult> upsertEmployees(final List<EmployeeDTO> employees) {
+        if (employees.isEmpty() || employees.size() > maxBatchSize) {
+            throw new InvalidRequestException("Batch must contain between 1 and " + maxBatchSize + " employees");
+        }
+        var results = new EmployeeBatchResult[employees.size()];
+        var indexByEmail = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < employees.size(); i++) {
+            var error = validate(employees.get(i));
+            if (error == null && indexByEmail.putIfAbsent(employees.get(i).email(), i) != null) {
+                error = "Email " + employees.get(i).email() + " appears more than once in the batch";
+            }
+            if (error != null) {
+                results[i] = EmployeeBatchResult.rejected(i, error);
+            }
+        }
+
+        var stored = indexByEmail.values().stream()
+            .map(index -> {
+                var employee = EmployeeService.toEmployee(employees.get(index));
+                employee.setId(UUID.randomUUID());
+                return employee;
+            })
+            .toList();
+        var upserted = stored.isEmpty() ? List.<EmployeeCommandRepository.UpsertResult>of()
+            : employeeRepository.upsertAll(stored);
+        var changes = new ArrayList<Change>(stored.size());
+        var index = indexByEmail.values().iterator();
+        for (int i = 0; i < stored.size(); i++) {
+            var employee = stored.get(i);
+            var result = upserted.get(i);
+            employee.setId(result.id());
+            employee.setVersion(result.version());
+            changes.add(new Change(index.next(), employee,
+                result.created() ? EmployeeBatchResult.Status.CREATED : EmployeeBatchResult.Status.UPDATED));
+        }
+
+        var events = changes.stream()
+            .map(change -> change.status() == EmployeeBatchResult.Status.CREATED
+                ? outboxEventFactory.created(change.employee())
+                : outboxEventFactory.updated(change.employee()))
+            .toList();
+        outboxRepository.saveAll(events);
+
+        for (var change : changes) {
+            var employee = new EmployeeDTO(change.employee());
+            results[change.index()] = new EmployeeBatchResult(change.index(), change.status(), employee, null);
+            if (change.status() == EmployeeBatchResult.Status.UPDATED) {
+                employeeCache.evictAfterCommit(employee.id());
+            }
+            hobbyIndex.putAfterCommit(employee.id(), employee.hobbies());
+        }
+        return Arrays.asList(results);
+    }
+
+    private String validate(final EmployeeDTO employee) {
+        if (employee == null) {
+            return "Employee is required";
+        }
+        var violations = validator.validate(employee);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+
+    private record Change(int index, Employee employee, EmployeeBatchResult.Status status) {
+    }
+}
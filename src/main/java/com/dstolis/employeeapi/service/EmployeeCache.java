@@ -0,0 +1,75 @@
+package com.dstolis.employeeapi.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded in-process cache of employees by id. Caffeine evicts by size with W-TinyLFU admission, which keeps the hot
+ * records of a skewed workload, and drops entries after a TTL as a last resort against missed invalidations.
+ * <p>
+ * Local writes evict after their transaction commits, writes on other replicas are evicted by
+ * {@link EmployeeCacheInvalidator}. Hit, miss and eviction counts are published as {@code cache.*} meters tagged
+ * {@code cache=employees}.
+ * <p>
+ * Only lookups by id are cached. Nothing reads employees by email: creates and updates rely on the unique constraint on
+ * the email instead of looking it up first, so there is no email lookup to serve, and no second key to invalidate.
+ */
+@Component
+public class EmployeeCache {
+
+    private final Cache<UUID, EmployeeDTO> employees;
+
+    @Autowired
+    public EmployeeCache(final MeterRegistry meterRegistry,
+        @Value("${employees.cache.maximum-size:10000}") final long maximumSize,
+        @Value("${employees.cache.expire-after-write-seconds:600}") final long expireAfterWriteSeconds) {
+        this.employees = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, employees, "employees");
+    }
+
+    /**
+     * @return the cached employee, or the one returned by the loader, which is cached unless it throws
+     */
+    public EmployeeDTO get(final UUID id, final Function<UUID, EmployeeDTO> loader) {
+        return employees.get(id, loader);
+    }
+
+    public void evict(final UUID id) {
+        employees.invalidate(id);
+    }
+
+    /**
+     * Evicts once the current transaction committed, so that a concurrent read cannot cache the old row again in
+     * between. Evicts immediately outside a transaction.
+     */
+    public void evictAfterCommit(final UUID id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id);
+            }
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.dstolis.employeeapi.service;
+
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts employees changed on any replica from the local {@link EmployeeCache}. Every instance consumes the events
+ * published by the outbox relay in a consumer group of its own, so stale entries disappear cluster-wide within the
+ * relay latency. Records are keyed by the employee id, the value is not needed.
+ */
+@Component
+@ConditionalOnProperty(name = "employees.cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+public class EmployeeCacheInvalidator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeCacheInvalidator.class);
+
+    private final EmployeeCache employeeCache;
+
+    @Autowired
+    public EmployeeCacheInvalidator(final EmployeeCache employeeCache) {
+        this.employeeCache = employeeCache;
+    }
+
+    @KafkaListener(topics = PublisherService.TOPIC, groupId = "employee-cache-${random.uuid}")
+    public void onEmployeeEvent(final ConsumerRecord<String, byte[]> record) {
+        try {
+            employeeCache.evict(UUID.fromString(record.key()));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            LOGGER.warn("Ignoring employee event with invalid key {} at offset {}", record.key(), record.offset());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.dstolis.employeeapi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams the whole employee directory as newline-delimited JSON, one employee per line.
+ * <p>
+ * Rows are read through a server-side cursor, which the Postgres driver only opens inside a transaction and with a
+ * fetch size, and every row is written to the output stream as soon as it is read. Memory use therefore stays at one
+ * fetch window no matter how many employees there are.
+ */
+@Service
+public class EmployeeExportService {
+
+    private static final String EXPORT_QUERY = """
+        SELECT e.id, e.email, e.full_name, e.birthday, e.version,
+               (SELECT array_agg(h.name ORDER BY eh.position)
+                FROM employee_hobby eh
+                         JOIN hobbies h ON h.id = eh.hobby_id
+                WHERE eh.employee_id = e.id) AS hobbies
+        FROM employees e
+        ORDER BY e.id""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final int fetchSize;
+
+    @Autowired
+    public EmployeeExportService(final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager,
+        final ObjectMapper objectMapper, @Value("${employees.export.fetch-size:1000}") final int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes every employee to the stream. The stream is flushed but not closed.
+     */
+    public void export(final OutputStream out) throws IOException {
+        try (var generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(EXPORT_QUERY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (RowCallbackHandler) rs -> writeRow(generator, rs)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeRow(final JsonGenerator generator, final ResultSet rs) throws SQLException {
+        var employee = new EmployeeDTO(rs.getObject("id", UUID.class), rs.getString("email"),
+            rs.getString("full_name"), rs.getDate("birthday").toLocalDate(), hobbies(rs.getArray("hobbies")),
+            rs.getLong("version"));
+        try {
+            generator.writeObject(employee);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            // Typically the client went away, which also aborts the query
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> hobbies(final Array array) throws SQLException {
+        if (array == null) {
+            return List.of();
+        }
+        try {
+            return Arrays.asList((String[]) array.getArray());
+        } finally {
+            array.free();
+        }
+    }
+}
@@ -1,121 +1,332 @@
 package com.dstolis.employeeapi.service;
 
-import java.time.OffsetDateTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.dstolis.employeeapi.model.dto.BirthdayCursor;
+import com.dstolis.employeeapi.model.dto.EmployeeCursor;
 import com.dstolis.employeeapi.model.dto.EmployeeDTO;
-import com.dstolis.employeeapi.model.dto.EmployeeEvent;
+import com.dstolis.employeeapi.model.dto.EmployeePage;
+import com.dstolis.employeeapi.model.dto.EmployeePatch;
+import com.dstolis.employeeapi.model.dto.EmployeeSearch;
 import com.dstolis.employeeapi.model.entity.Employee;
-import com.dstolis.employeeapi.model.entity.OutboxEvent;
+import com.dstolis.employeeapi.repository.EmployeeCommandRepository;
 import com.dstolis.employeeapi.repository.EmployeeRepository;
 import com.dstolis.employeeapi.repository.OutboxRepository;
 
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 @Service
 public class EmployeeService {
 
+    private static final int MIN_NAME_SEARCH_LENGTH = 3;
+
+    private static final int MAX_PATCH_ATTEMPTS = 3;
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final EmployeeRepository employeeRepository;
 
     private final OutboxRepository outboxRepository;
 
+    private final OutboxEventFactory outboxEventFactory;
+
+    private final EmployeeCache employeeCache;
+
+    private final HobbyIndex hobbyIndex;
+
+    private final Validator validator;
+
+    private final int maxPageSize;
+
     @Autowired
-    public EmployeeService(final EmployeeRepository employeeRepository, final OutboxRepository outboxRepository) {
+    public EmployeeService(final EmployeeRepository employeeRepository, final OutboxRepository outboxRepository,
+        final OutboxEventFactory outboxEventFactory, final EmployeeCache employeeCache, final HobbyIndex hobbyIndex,
+        final Validator validator, @Value("${employees.page.max-size:1000}") final int maxPageSize) {
         this.employeeRepository = employeeRepository;
         this.outboxRepository = outboxRepository;
+        this.outboxEventFactory = outboxEventFactory;
+        this.employeeCache = employeeCache;
+        this.hobbyIndex = hobbyIndex;
+        this.validator = validator;
+        this.maxPageSize = maxPageSize;
     }
 
-    @Transactional(rollbackOn = Exception.class)
+    /**
+     * Inserts the employee, its hobbies and the outbox event with one statement. The unique constraint on the email
+     * decides about duplicates, so two concurrent creates with the same email cannot both succeed.
+     */
+    @Transactional(rollbackFor = Exception.class)
     public EmployeeDTO createEmployee(EmployeeDTO employeeDto) {
-        // Check if employee with the same email already exists
-        employeeRepository.findByEmail(employeeDto.email()).ifPresent(employee -> {
+        var employee = toEmployee(employeeDto);
+        // Assigned upfront, so that the event can be written by the same statement as the employee
+        employee.setId(UUID.randomUUID());
+        employee.setVersion(0L);
+        if (!employeeRepository.insertWithEvent(employee, outboxEventFactory.created(employee))) {
             throw new EntityExistsException("Email " + employeeDto.email() + " already exists!");
-        });
+        }
 
-        var employee = new Employee(employeeDto);
-        var savedEmployee = employeeRepository.save(employee);
+        var createdEmployee = new EmployeeDTO(employee);
+        hobbyIndex.putAfterCommit(createdEmployee.id(), createdEmployee.hobbies());
+        return createdEmployee;
+    }
 
+    /**
+     * @param after cursor returned with the previous page, {@code null} for the first page
+     * @param limit maximum number of employees on the page
+     */
+    @Transactional(readOnly = true)
+    public EmployeePage getEmployeePage(final String after, final int limit) {
+        checkLimit(limit);
+        // One extra row tells whether there is a next page without a count query
+        return toPage(employeeRepository.findDtoPageAfter(EmployeeCursor.decode(after), limit + 1), limit);
+    }
 
-        var payload = new EmployeeEvent(savedEmployee.getId(), EmployeeEvent.EventType.CREATED).toString();
-        var outboxEvent = new OutboxEvent(
-            savedEmployee.getId(),
-            "Employee",
-            "CREATED",
-            payload,
-            OffsetDateTime.now(),
-            OutboxEvent.Status.PENDING
-        );
-        outboxRepository.save(outboxEvent);
+    /**
+     * Pages through the employees matching all filters of the search, like {@link #getEmployeePage(String, int)}.
+     */
+    @Transactional(readOnly = true)
+    public EmployeePage searchEmployees(final EmployeeSearch search, final String after, final int limit) {
+        checkLimit(limit);
+        if (search.name() != null && search.name().strip().length() < MIN_NAME_SEARCH_LENGTH) {
+            // Shorter patterns contain no trigram, so the index could not narrow down the scan
+            throw new InvalidRequestException("Name must have at least " + MIN_NAME_SEARCH_LENGTH + " characters");
+        }
+        if (search.birthdayFrom() != null && search.birthdayTo() != null
+            && search.birthdayFrom().isAfter(search.birthdayTo())) {
+            throw new InvalidRequestException("Birthday range must not end before it starts");
+        }
+        var normalized = new EmployeeSearch(search.name() == null ? null : search.name().strip(),
+            search.birthdayFrom(), search.birthdayTo(), search.hobby());
+        return toPage(employeeRepository.searchDtoPageAfter(normalized, EmployeeCursor.decode(after), limit + 1),
+            limit);
+    }
+
+    /**
+     * Pages through the employees having their birthday on one of the days from {@code from} up to {@code days}
+     * later, in the order of the birthdays.
+     */
+    @Transactional(readOnly = true)
+    public EmployeePage getUpcomingBirthdays(final LocalDate from, final int days, final String after,
+        final int limit) {
+        checkLimit(limit);
+        var ranges = BirthdayWindow.of(from, days);
+        var cursor = BirthdayCursor.decode(after);
+        if (!cursor.equals(BirthdayCursor.START)) {
+            // The cursor was left in one of the ranges, the ones before it are done
+            var current = ranges.stream().filter(range -> range.contains(cursor.monthDay())).findFirst()
+                .orElseThrow(() -> new InvalidRequestException("Invalid cursor " + after));
+            ranges = ranges.subList(ranges.indexOf(current), ranges.size());
+        }
 
-        return new EmployeeDTO(savedEmployee);
+        var employees = new ArrayList<EmployeeDTO>();
+        for (int i = 0; i < ranges.size() && employees.size() <= limit; i++) {
+            var range = ranges.get(i);
+            employees.addAll(employeeRepository.findDtoPageByBirthMonthDay(range.from(), range.to(),
+                i == 0 ? cursor : BirthdayCursor.START, limit + 1 - employees.size()));
+        }
+        if (employees.size() <= limit) {
+            return new EmployeePage(employees, null);
+        }
+        var page = employees.subList(0, limit);
+        var last = page.get(limit - 1);
+        var nextCursor = new BirthdayCursor(BirthdayWindow.monthDay(last.birthday()), last.id());
+        return new EmployeePage(page, nextCursor.encode());
     }
 
-    public List<EmployeeDTO> getAllEmployees() {
-        return employeeRepository.findAll()
-            .stream()
-            .map(EmployeeDTO::new)
-            .toList();
+    private void checkLimit(final int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestException("Limit must be between 1 and " + maxPageSize);
+        }
     }
 
+    private static EmployeePage toPage(final List<EmployeeDTO> employees, final int limit) {
+        if (employees.size() <= limit) {
+            return new EmployeePage(employees, null);
+        }
+        var page = employees.subList(0, limit);
+        return new EmployeePage(page, EmployeeCursor.encode(page.get(limit - 1).id()));
+    }
+
+    /**
+     * Served from {@link EmployeeCache}; a hit does not touch the database, not even for a transaction.
+     */
     public EmployeeDTO getEmployeeById(final UUID uuid) {
-        return employeeRepository.findById(uuid)
-            .map(EmployeeDTO::new)
-            .orElseThrow(() -> new EntityNotFoundException("Employee with ID " + uuid + " not found."));
+        return employeeCache.get(uuid, id -> employeeRepository.findDtoById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Employee with ID " + id + " not found.")));
     }
 
-    @Transactional(rollbackOn = Exception.class)
-    public EmployeeDTO updateEmployee(final UUID id, EmployeeDTO employeeDto) {
-        employeeRepository.findByEmail(employeeDto.email()).ifPresent(employee -> {
-            if (!employee.getId().equals(id)) {
-                throw new EntityExistsException("Email " + employeeDto.email() + " already exists for a different employee!");
-            }
-        });
-        var updatedEmployee = employeeRepository.findById(id)
-            .map(existingEmployee -> {
-                existingEmployee.setEmail(employeeDto.email());
-                existingEmployee.setFullName(employeeDto.fullName());
-                existingEmployee.setBirthday(employeeDto.birthday());
-                existingEmployee.setHobbies(employeeDto.hobbies());
-                return existingEmployee;
-            })
+    /**
+     * Like {@link #getEmployeeById(UUID)}, but reloads a cached employee older than the given version, which another
+     * replica may have written before its event evicted the entry here.
+     */
+    public EmployeeDTO getEmployeeById(final UUID id, final long minimumVersion) {
+        var employee = getEmployeeById(id);
+        if (employee.version() == null || employee.version() < minimumVersion) {
+            employeeCache.evict(id);
+            return getEmployeeById(id);
+        }
+        return employee;
+    }
+
+    @Transactional(readOnly = true)
+    public long getEmployeeVersion(final UUID id) {
+        return employeeRepository.findVersionById(id)
             .orElseThrow(() -> new EntityNotFoundException("Employee with ID " + id + " not found."));
+    }
+
+    /**
+     * Updates the employee, replaces its hobbies and inserts the outbox event with one statement.
+     *
+     * @param expectedVersion version the client based its changes on, {@code null} to overwrite unconditionally. The
+     *     check is not racy: it is part of the {@code UPDATE ... WHERE version = ?} itself.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public EmployeeDTO updateEmployee(final UUID id, EmployeeDTO employeeDto, final Long expectedVersion) {
+        var employee = toEmployee(employeeDto);
+        employee.setId(id);
+        var result = update(employee, expectedVersion, true);
+        if (!result.found()) {
+            throw new EntityNotFoundException("Employee with ID " + id + " not found.");
+        }
+        if (result.version() == null) {
+            throw new OptimisticLockException("Employee with ID " + id + " has been modified meanwhile.");
+        }
+        return updated(employee, result.version(), true);
+    }
 
-        var savedEmployee = employeeRepository.save(updatedEmployee);
+    /**
+     * Applies a JSON Merge Patch to the current state of the employee. A patch that changes nothing writes nothing,
+     * neither the employee nor an outbox event, and returns the employee as it is. Hobbies are only written if the
+     * patch changes them.
+     *
+     * @param expectedVersion version the client based its patch on, {@code null} to patch whatever version is current
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public EmployeeDTO patchEmployee(final UUID id, final EmployeePatch patch, final Long expectedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            // Read from the database, a cached copy may lag behind a write of another replica
+            var current = employeeRepository.findDtoById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Employee with ID " + id + " not found."));
+            if (expectedVersion != null && !expectedVersion.equals(current.version())) {
+                throw new OptimisticLockException("Employee with ID " + id + " has been modified meanwhile.");
+            }
+            var patched = patch.applyTo(current);
+            validate(patched);
+            var hobbiesChanged = patch.patchesHobbies()
+                && !distinct(patched.hobbies()).equals(distinct(current.hobbies()));
+            if (!hobbiesChanged && Objects.equals(patched.email(), current.email())
+                && Objects.equals(patched.fullName(), current.fullName())
+                && Objects.equals(patched.birthday(), current.birthday())) {
+                return current;
+            }
+
+            var employee = toEmployee(patched);
+            employee.setId(id);
+            if (!hobbiesChanged) {
+                // Keeps the stored order, the event and the response carry the full state
+                employee.setHobbies(current.hobbies());
+            }
+            // Guarded by the version that was read, so that the event never mixes the patch with a stale snapshot
+            var result = update(employee, current.version(), hobbiesChanged);
+            if (!result.found()) {
+                throw new EntityNotFoundException("Employee with ID " + id + " not found.");
+            }
+            if (result.version() != null) {
+                return updated(employee, result.version(), hobbiesChanged);
+            }
+            if (expectedVersion != null || attempt == MAX_PATCH_ATTEMPTS) {
+                throw new OptimisticLockException("Employee with ID " + id + " has been modified meanwhile.");
+            }
+        }
+    }
+
+    private EmployeeCommandRepository.UpdateResult update(final Employee employee, final Long expectedVersion,
+        final boolean replaceHobbies) {
+        try {
+            return employeeRepository.updateWithEvent(employee, expectedVersion, replaceHobbies,
+                outboxEventFactory.updated(employee));
+        } catch (DataIntegrityViolationException e) {
+            if (!isEmailTaken(e)) {
+                throw e;
+            }
+            throw new EntityExistsException(
+                "Email " + employee.getEmail() + " already exists for a different employee!");
+        }
+    }
 
-        var payload = new EmployeeEvent(savedEmployee.getId(), EmployeeEvent.EventType.UPDATED).toString();
-        var outboxEvent = new OutboxEvent(
-            savedEmployee.getId(),
-            "Employee",
-            "UPDATED",
-            payload,
-            OffsetDateTime.now(),
-            OutboxEvent.Status.PENDING
-        );
-        outboxRepository.save(outboxEvent);
+    /**
+     * Only a unique violation of the email constraint means that the email is taken; any other violation, such as one
+     * of the hobby tables, is a bug that must not be reported as a conflict.
+     */
+    private static boolean isEmailTaken(final DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return UNIQUE_VIOLATION.equals(violation.getSQLState())
+                    && Employee.EMAIL_CONSTRAINT.equals(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+
+    private EmployeeDTO updated(final Employee employee, final long version, final boolean hobbiesChanged) {
+        employee.setVersion(version);
+        employeeCache.evictAfterCommit(employee.getId());
+
+        var updated = new EmployeeDTO(employee);
+        if (hobbiesChanged) {
+            hobbyIndex.putAfterCommit(employee.getId(), updated.hobbies());
+        }
+        return updated;
+    }
+
+    private void validate(final EmployeeDTO employee) {
+        var violations = validator.validate(employee);
+        if (!violations.isEmpty()) {
+            throw new InvalidRequestException(violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", ")));
+        }
+    }
+
+    /**
+     * The database keeps a repeated hobby once, at its first position. Dropping the repetitions upfront makes the
+     * response, the caches, the hobby index and the event agree with it.
+     */
+    static Employee toEmployee(final EmployeeDTO employeeDto) {
+        var employee = new Employee(employeeDto);
+        employee.setHobbies(distinct(employeeDto.hobbies()));
+        return employee;
+    }
 
-        return new EmployeeDTO(savedEmployee);
+    private static List<String> distinct(final List<String> hobbies) {
+        return hobbies == null ? List.of() : hobbies.stream().distinct().toList();
     }
 
-    @Transactional(rollbackOn = Exception.class)
+    @Transactional(rollbackFor = Exception.class)
     public void deleteEmployee(final UUID id) {
         var employee = employeeRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Employee with ID " + id + " not found."));
         employeeRepository.delete(employee);
-        var payload = new EmployeeEvent(id, EmployeeEvent.EventType.DELETED).toString();
-        var outboxEvent = new OutboxEvent(
-            id,
-            "Employee",
-            "DELETED",
-            payload,
-            OffsetDateTime.now(),
-            OutboxEvent.Status.PENDING
-        );
-        outboxRepository.save(outboxEvent);
+        outboxRepository.save(outboxEventFactory.deleted(id));
+        employeeCache.evictAfterCommit(id);
+        hobbyIndex.removeAfterCommit(id);
     }
 }
@@ -0,0 +1,109 @@
+package com.dstolis.employeeapi.service;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dstolis.employeeapi.model.dto.EmployeeStats;
+import com.dstolis.employeeapi.model.dto.HobbyCount;
+
+/**
+ * Reads the employee statistics from the {@code employee_stat} counters, which database triggers maintain in the
+ * transaction of every write to {@code employees} and {@code employee_hobby}. A read sums a few rows per birth year,
+ * month and hobby and never touches the employees themselves.
+ */
+@Service
+public class EmployeeStatsService {
+
+    private static final String COUNTERS_QUERY = """
+        SELECT dimension, bucket, sum(count) AS count
+        FROM employee_stat
+        WHERE dimension IN ('headcount', 'birth_year', 'birth_month')
+        GROUP BY dimension, bucket
+        HAVING sum(count) > 0""";
+
+    private static final String TOP_HOBBIES_QUERY = """
+        SELECT bucket AS hobby, sum(count) AS count
+        FROM employee_stat
+        WHERE dimension = 'hobby'
+        GROUP BY bucket
+        HAVING sum(count) > 0
+        ORDER BY count DESC, hobby
+        LIMIT ?""";
+
+    private static final String REBUILD_COUNTERS = """
+        INSERT INTO employee_stat (dimension, bucket, slot, count)
+        SELECT s.dimension, s.bucket, 0, count(*)
+        FROM employees e
+                 CROSS JOIN LATERAL (VALUES ('headcount', ''),
+                                            ('birth_year', extract(YEAR FROM e.birthday)::text),
+                                            ('birth_month', extract(MONTH FROM e.birthday)::text))
+            AS s (dimension, bucket)
+        GROUP BY s.dimension, s.bucket
+        UNION ALL
+        SELECT 'hobby', h.name, 0, count(*)
+        FROM employee_hobby eh
+                 JOIN hobbies h ON h.id = eh.hobby_id
+        GROUP BY h.name""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int topHobbies;
+
+    @Autowired
+    public EmployeeStatsService(final JdbcTemplate jdbcTemplate,
+        @Value("${employees.stats.top-hobbies:10}") final int topHobbies) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.topHobbies = topHobbies;
+    }
+
+    @Transactional(readOnly = true)
+    public EmployeeStats getStats() {
+        var headcount = new long[1];
+        var birthYears = new TreeMap<Integer, Long>();
+        var birthMonths = new TreeMap<Integer, Long>();
+        jdbcTemplate.query(COUNTERS_QUERY, (RowCallbackHandler) rs -> {
+            var count = rs.getLong("count");
+            switch (rs.getString("dimension")) {
+                case "headcount" -> headcount[0] = count;
+                case "birth_year" -> birthYears.put(Integer.parseInt(rs.getString("bucket")), count);
+                default -> birthMonths.put(Integer.parseInt(rs.getString("bucket")), count);
+            }
+        });
+        var hobbies = jdbcTemplate.query(TOP_HOBBIES_QUERY,
+            (rs, rowNum) -> new HobbyCount(rs.getString("hobby"), rs.getLong("count")), topHobbies);
+        return new EmployeeStats(headcount[0], ageGroups(birthYears), birthMonths, new ArrayList<>(hobbies));
+    }
+
+    /**
+     * Recomputes all counters from scratch, for example after rows were written with the triggers disabled. Writers
+     * are blocked until the transaction ends, readers are not.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public EmployeeStats rebuildStats() {
+        jdbcTemplate.execute("LOCK TABLE employees, employee_hobby IN SHARE MODE");
+        jdbcTemplate.update("DELETE FROM employee_stat");
+        jdbcTemplate.update(REBUILD_COUNTERS);
+        return getStats();
+    }
+
+    private static Map<String, Long> ageGroups(final TreeMap<Integer, Long> birthYears) {
+        var currentYear = Year.now().getValue();
+        var ageGroups = new LinkedHashMap<String, Long>();
+        // Youngest first, the latest birth years are the lowest ages
+        birthYears.descendingMap().forEach((year, count) -> {
+            var decade = Math.max(currentYear - year, 0) / 10 * 10;
+            ageGroups.merge(decade + "-" + (decade + 9), count, Long::sum);
+        });
+        return ageGroups;
+    }
+}
@@ -0,0 +1,423 @@
+package com.dstolis.employeeapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.dstolis.employeeapi.model.dto.HobbyCount;
+import com.dstolis.employeeapi.model.dto.HobbyMatches;
+
+/**
+ * In-process inverted index from hobbies to the employees having them. Employees are numbered with dense int
+ * ordinals, hobbies are dictionary encoded, and every hobby maps to a compressed {@link RoaringBitmap} of ordinals, so
+ * facet counts are a cardinality lookup and "who else" questions are bitmap intersections and unions.
+ * <p>
+ * The index is built from {@code employee_hobby} once the application is ready. Local writes are applied after
+ * their transaction commits, writes on other replicas are reloaded by {@link HobbyIndexUpdater}. Ordinals of deleted
+ * employees and of employees without hobbies stay unused until the next {@link #rebuild()}, which {@link #compact()}
+ * runs once they make up more than a quarter of all ordinals.
+ */
+@Component
+public class HobbyIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HobbyIndex.class);
+
+    private static final String LOAD_QUERY = """
+        SELECT eh.employee_id, h.name AS hobby
+        FROM employee_hobby eh
+                 JOIN hobbies h ON h.id = eh.hobby_id""";
+
+    private static final String EMPLOYEE_QUERY = """
+        SELECT h.name
+        FROM employee_hobby eh
+                 JOIN hobbies h ON h.id = eh.hobby_id
+        WHERE eh.employee_id = ?
+        ORDER BY eh.position""";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int fetchSize;
+
+    private final int maxPageSize;
+
+    private Bitmaps bitmaps = new Bitmaps();
+
+    /**
+     * Employees changed while a rebuild is running, {@code null} otherwise.
+     */
+    private Set<UUID> changedDuringRebuild;
+
+    @Autowired
+    public HobbyIndex(final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager,
+        @Value("${employees.hobby-index.fetch-size:10000}") final int fetchSize,
+        @Value("${employees.page.max-size:1000}") final int maxPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Builds a new index from the database and swaps it in; queries keep being served by the old one meanwhile.
+     * Employees written during the rebuild are reloaded afterwards, as the scan may have missed their change.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        withWriteLock(() -> changedDuringRebuild = new HashSet<>());
+        long start = System.nanoTime();
+        var fresh = new Bitmaps();
+        // Rows are read through a server-side cursor, see EmployeeExportService
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(LOAD_QUERY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> fresh.add(rs.getObject("employee_id", UUID.class), rs.getString("hobby"))));
+        fresh.optimize();
+
+        Set<UUID> changed = new HashSet<>();
+        withWriteLock(() -> {
+            bitmaps = fresh;
+            changed.addAll(changedDuringRebuild);
+            changedDuringRebuild = null;
+        });
+        changed.forEach(this::reload);
+        LOGGER.info("Built hobby index of {} employees and {} hobbies in {} ms, taking {} bytes",
+            fresh.employeeCount(), fresh.hobbyNames.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            fresh.sizeInBytes());
+    }
+
+    /**
+     * Rebuilds the index if more than a quarter of its ordinals are unused, so that a long-running instance with many
+     * deletes neither grows without bound nor rebuilds for every few of them.
+     */
+    @Scheduled(fixedDelayString = "${employees.hobby-index.compact-interval-seconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void compact() {
+        int unused;
+        int employees;
+        lock.readLock().lock();
+        try {
+            unused = bitmaps.unusedOrdinals.getCardinality();
+            employees = bitmaps.employeeCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (unused * 4L > employees) {
+            LOGGER.info("Rebuilding hobby index, {} of {} employee ordinals are unused", unused, employees);
+            rebuild();
+        }
+    }
+
+    /**
+     * Reloads the hobbies of one employee from the database, removing the employee if it has none or is gone.
+     */
+    public void reload(final UUID id) {
+        put(id, jdbcTemplate.queryForList(EMPLOYEE_QUERY, String.class, id));
+    }
+
+    /**
+     * Sets the hobbies of an employee once the current transaction committed, immediately outside a transaction.
+     */
+    public void putAfterCommit(final UUID id, final Collection<String> hobbies) {
+        afterCommit(() -> put(id, hobbies));
+    }
+
+    public void removeAfterCommit(final UUID id) {
+        afterCommit(() -> put(id, List.of()));
+    }
+
+    void put(final UUID id, final Collection<String> hobbies) {
+        withWriteLock(() -> {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(id);
+            }
+            bitmaps.put(id, hobbies);
+        });
+    }
+
+    /**
+     * @return the number of employees per hobby, most popular first
+     */
+    public List<HobbyCount> countEmployeesByHobby() {
+        lock.readLock().lock();
+        try {
+            var counts = new ArrayList<HobbyCount>();
+            for (int hobby = 0; hobby < bitmaps.hobbyNames.size(); hobby++) {
+                var count = bitmaps.employeesByHobby.get(hobby).getLongCardinality();
+                if (count > 0) {
+                    counts.add(new HobbyCount(bitmaps.hobbyNames.get(hobby), count));
+                }
+            }
+            counts.sort(Comparator.comparingLong(HobbyCount::count).reversed().thenComparing(HobbyCount::hobby));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the employees having every one of the hobbies
+     */
+    public HobbyMatches findEmployeesWithAllHobbies(final Collection<String> hobbies, final int limit) {
+        checkLimit(limit);
+        lock.readLock().lock();
+        try {
+            var selected = new ArrayList<RoaringBitmap>();
+            for (var hobby : new HashSet<>(hobbies)) {
+                var employees = bitmaps.employees(hobby);
+                if (employees == null) {
+                    return HobbyMatches.NONE;
+                }
+                selected.add(employees);
+            }
+            if (selected.isEmpty()) {
+                return HobbyMatches.NONE;
+            }
+            return bitmaps.matches(FastAggregation.and(selected.toArray(RoaringBitmap[]::new)), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the other employees having at least one hobby in common with the given one, none if it has no hobbies
+     */
+    public HobbyMatches findEmployeesSharingHobbiesWith(final UUID id, final int limit) {
+        checkLimit(limit);
+        lock.readLock().lock();
+        try {
+            var ordinal = bitmaps.ordinals.find(id);
+            if (ordinal < 0) {
+                return HobbyMatches.NONE;
+            }
+            var selected = bitmaps.employeesByHobby.stream()
+                .filter(employees -> employees.contains(ordinal))
+                .toArray(RoaringBitmap[]::new);
+            if (selected.length == 0) {
+                return HobbyMatches.NONE;
+            }
+            var shared = FastAggregation.or(selected);
+            shared.remove(ordinal);
+            return bitmaps.matches(shared, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void checkLimit(final int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidRequestException("Limit must be between 1 and " + maxPageSize);
+        }
+    }
+
+    private void withWriteLock(final Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * The index proper. Not thread-safe, guarded by the lock of the enclosing index.
+     */
+    private static final class Bitmaps {
+
+        private final EmployeeOrdinals ordinals = new EmployeeOrdinals();
+
+        private final Map<String, Integer> hobbyIds = new HashMap<>();
+
+        private final List<String> hobbyNames = new ArrayList<>();
+
+        private final List<RoaringBitmap> employeesByHobby = new ArrayList<>();
+
+        /**
+         * Ordinals of employees that are in no bitmap any more.
+         */
+        private final RoaringBitmap unusedOrdinals = new RoaringBitmap();
+
+        void add(final UUID id, final String hobby) {
+            var hobbyId = hobbyIds.computeIfAbsent(hobby, name -> {
+                hobbyNames.add(name);
+                employeesByHobby.add(new RoaringBitmap());
+                return hobbyNames.size() - 1;
+            });
+            employeesByHobby.get(hobbyId).add(ordinals.findOrAdd(id));
+        }
+
+        /**
+         * An employee without hobbies keeps its ordinal but is in no bitmap, which is as good as not indexed. The
+         * ordinal counts as unused until the employee gets hobbies again.
+         */
+        void put(final UUID id, final Collection<String> hobbies) {
+            var ordinal = ordinals.find(id);
+            if (ordinal >= 0) {
+                // Cheaper than keeping the hobbies of every employee around, there are far fewer hobbies than employees
+                employeesByHobby.forEach(employees -> employees.remove(ordinal));
+                if (hobbies.isEmpty()) {
+                    unusedOrdinals.add(ordinal);
+                } else {
+                    unusedOrdinals.remove(ordinal);
+                }
+            }
+            hobbies.forEach(hobby -> add(id, hobby));
+        }
+
+        RoaringBitmap employees(final String hobby) {
+            var hobbyId = hobbyIds.get(hobby);
+            return hobbyId == null ? null : employeesByHobby.get(hobbyId);
+        }
+
+        HobbyMatches matches(final RoaringBitmap employees, final int limit) {
+            var ids = new ArrayList<UUID>(Math.min(limit, employees.getCardinality()));
+            var iterator = employees.getIntIterator();
+            while (iterator.hasNext() && ids.size() < limit) {
+                ids.add(ordinals.get(iterator.next()));
+            }
+            return new HobbyMatches(employees.getLongCardinality(), ids);
+        }
+
+        int employeeCount() {
+            return ordinals.size();
+        }
+
+        long sizeInBytes() {
+            return ordinals.sizeInBytes() + unusedOrdinals.getLongSizeInBytes()
+                + employeesByHobby.stream().mapToLong(RoaringBitmap::getLongSizeInBytes).sum();
+        }
+
+        void optimize() {
+            employeesByHobby.forEach(RoaringBitmap::runOptimize);
+        }
+    }
+
+    /**
+     * Numbers employee ids densely from zero. The ids are stored as two arrays of longs and looked up through an open
+     * addressing table of ordinals, some 30 bytes per employee where a {@code HashMap<UUID, Integer>} takes about 90.
+     */
+    private static final class EmployeeOrdinals {
+
+        private long[] mostSignificantBits = new long[16];
+
+        private long[] leastSignificantBits = new long[16];
+
+        /**
+         * Ordinal plus one per slot, 0 marks a free slot. Kept at most half full, the length is a power of two.
+         */
+        private int[] slots = new int[32];
+
+        private int size;
+
+        /**
+         * @return the ordinal of the id, or -1 if it has none
+         */
+        int find(final UUID id) {
+            var mask = slots.length - 1;
+            for (int slot = hash(id) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                var ordinal = slots[slot] - 1;
+                if (mostSignificantBits[ordinal] == id.getMostSignificantBits()
+                    && leastSignificantBits[ordinal] == id.getLeastSignificantBits()) {
+                    return ordinal;
+                }
+            }
+            return -1;
+        }
+
+        int findOrAdd(final UUID id) {
+            var ordinal = find(id);
+            if (ordinal >= 0) {
+                return ordinal;
+            }
+            if (size == mostSignificantBits.length) {
+                mostSignificantBits = Arrays.copyOf(mostSignificantBits, size * 2);
+                leastSignificantBits = Arrays.copyOf(leastSignificantBits, size * 2);
+            }
+            mostSignificantBits[size] = id.getMostSignificantBits();
+            leastSignificantBits[size] = id.getLeastSignificantBits();
+            if ((size + 1) * 2 > slots.length) {
+                slots = new int[slots.length * 2];
+                for (int i = 0; i < size; i++) {
+                    insert(i);
+                }
+            }
+            insert(size);
+            return size++;
+        }
+
+        UUID get(final int ordinal) {
+            return new UUID(mostSignificantBits[ordinal], leastSignificantBits[ordinal]);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long sizeInBytes() {
+            return (long) mostSignificantBits.length * Long.BYTES * 2 + (long) slots.length * Integer.BYTES;
+        }
+
+        private void insert(final int ordinal) {
+            var mask = slots.length - 1;
+            var slot = hash(mostSignificantBits[ordinal], leastSignificantBits[ordinal]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = ordinal + 1;
+        }
+
+        private static int hash(final UUID id) {
+            return hash(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+
+        private static int hash(final long mostSignificantBits, final long leastSignificantBits) {
+            var hash = Long.hashCode(mostSignificantBits ^ leastSignificantBits) * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.dstolis.employeeapi.service;
+
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the local {@link HobbyIndex} in step with writes on any replica. Like {@link EmployeeCacheInvalidator} every
+ * instance consumes the employee events in a consumer group of its own; the hobbies of the changed employee are
+ * reloaded from the database, because thin events do not carry them.
+ */
+@Component
+@ConditionalOnProperty(name = "employees.hobby-index.events.enabled", havingValue = "true", matchIfMissing = true)
+public class HobbyIndexUpdater {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HobbyIndexUpdater.class);
+
+    private final HobbyIndex hobbyIndex;
+
+    @Autowired
+    public HobbyIndexUpdater(final HobbyIndex hobbyIndex) {
+        this.hobbyIndex = hobbyIndex;
+    }
+
+    @KafkaListener(topics = PublisherService.TOPIC, groupId = "hobby-index-${random.uuid}")
+    public void onEmployeeEvent(final ConsumerRecord<String, byte[]> record) {
+        try {
+            hobbyIndex.reload(UUID.fromString(record.key()));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            LOGGER.warn("Ignoring employee event with invalid key {} at offset {}", record.key(), record.offset());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.dstolis.employeeapi.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Completed responses of requests sent with an {@code Idempotency-Key}, so that retries get the same response without
+ * running the request again. Keys are scoped by principal and kept for a TTL.
+ * <p>
+ * The {@code idempotency_key} table is shared by all replicas: the first request claims the key with one statement
+ * and stores its response when done. A bounded Caffeine cache of completed responses answers repeated retries on the
+ * same replica without touching the database, which keeps retry storms cheap.
+ * <p>
+ * Every claim gets an owner token, and only its owner completes or releases the key. While the request runs, the
+ * heartbeat keeps moving {@code locked_until} ahead, however long it takes; a key is only taken over once its replica
+ * stopped doing so, because it died. A response that could not be stored leaves the key locked for good instead: the
+ * request may well have run, so retries get a {@code 409} until the key expires rather than running it again.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    // Inserts the claim, or takes over one whose replica stopped renewing its lock. Returns nothing while another
+    // request holds the key, and the stored row when it is completed or belongs to a different request. Claims of
+    // replicas that do not renew locks yet have no locked_until and keep the timeout from their creation.
+    private static final String CLAIM = """
+        WITH claimed AS (
+            INSERT INTO idempotency_key (principal, idempotency_key, request_hash, owner, locked_until)
+            VALUES (?, ?, ?, ?, now() + make_interval(secs => ?))
+            ON CONFLICT (principal, idempotency_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash, owner = EXCLUDED.owner,
+                    locked_until = EXCLUDED.locked_until, created_at = now()
+                WHERE idempotency_key.status IS NULL
+                  AND coalesce(idempotency_key.locked_until,
+                               idempotency_key.created_at + make_interval(secs => ?)) < now()
+            RETURNING principal
+        )
+        SELECT true AS claimed, NULL::bytea AS request_hash, NULL::int AS status, NULL::varchar AS content_type,
+               NULL::varchar AS etag, NULL::bytea AS body
+        FROM claimed
+        UNION ALL
+        SELECT false, k.request_hash, k.status, k.content_type, k.etag, k.body
+        FROM idempotency_key k
+        WHERE k.principal = ? AND k.idempotency_key = ? AND NOT EXISTS (SELECT 1 FROM claimed)
+          AND (k.status IS NOT NULL OR k.request_hash <> ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Cache<String, Completed> completed;
+
+    private final long ttlSeconds;
+
+    private final long inProgressTimeoutSeconds;
+
+    /** Owners of the claims whose requests run on this replica, their locks are renewed */
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+
+    /** Owners whose response could not be stored and whose locks could not be made permanent yet */
+    private final Set<UUID> unknown = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public IdempotencyStore(final JdbcTemplate jdbcTemplate, final MeterRegistry meterRegistry,
+        @Value("${employees.idempotency.ttl-seconds:86400}") final long ttlSeconds,
+        @Value("${employees.idempotency.in-progress-timeout-seconds:60}") final long inProgressTimeoutSeconds,
+        @Value("${employees.idempotency.cache.maximum-size:10000}") final long maximumSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlSeconds = ttlSeconds;
+        this.inProgressTimeoutSeconds = inProgressTimeoutSeconds;
+        this.completed = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+    }
+
+    /**
+     * @param requestHash fingerprint of the request, a key reused for a different request is rejected
+     */
+    public Claim claim(final String principal, final String key, final byte[] requestHash) {
+        var cached = completed.getIfPresent(cacheKey(principal, key));
+        if (cached != null) {
+            return Arrays.equals(cached.requestHash(), requestHash) ? Claim.replay(cached.response()) : Claim.MISMATCH;
+        }
+
+        var owner = UUID.randomUUID();
+        var rows = jdbcTemplate.query(CLAIM, (rs, rowNum) -> {
+            if (rs.getBoolean("claimed")) {
+                return Claim.acquired(owner);
+            }
+            if (!Arrays.equals(rs.getBytes("request_hash"), requestHash)) {
+                return Claim.MISMATCH;
+            }
+            var response = new StoredResponse(rs.getInt("status"), rs.getString("content_type"),
+                rs.getString("etag"), rs.getBytes("body"));
+            completed.put(cacheKey(principal, key), new Completed(requestHash, response));
+            return Claim.replay(response);
+        }, principal, key, requestHash, owner, inProgressTimeoutSeconds, inProgressTimeoutSeconds, principal, key,
+            requestHash);
+        var claim = rows.isEmpty() ? Claim.IN_PROGRESS : rows.get(0);
+        if (claim.state() == State.ACQUIRED) {
+            running.add(owner);
+        }
+        return claim;
+    }
+
+    /**
+     * Stores the response of a claimed key; retries get it from now on. When it cannot be stored, the key stays locked
+     * until it expires, since the request did run.
+     *
+     * @param owner owner of the claim, from {@link Claim#owner()}
+     */
+    public void complete(final String principal, final String key, final UUID owner, final byte[] requestHash,
+        final StoredResponse response) {
+        try {
+            var updated = jdbcTemplate.update("""
+                    UPDATE idempotency_key SET status = ?, content_type = ?, etag = ?, body = ?, locked_until = NULL
+                    WHERE principal = ? AND idempotency_key = ? AND owner = ? AND status IS NULL""",
+                response.status(), response.contentType(), response.eTag(), response.body(), principal, key, owner);
+            running.remove(owner);
+            if (updated == 0) {
+                LOGGER.warn("Idempotency key {} was taken over before its response was stored", key);
+                return;
+            }
+            completed.put(cacheKey(principal, key), new Completed(requestHash, response));
+        } catch (DataAccessException e) {
+            LOGGER.error("Failed to store the response for idempotency key {}, retries are rejected until it expires",
+                key, e);
+            unknown.add(owner);
+            lockForever(owner);
+        }
+    }
+
+    /**
+     * Gives up a claimed key without a response, so that a retry runs the request again. When that fails, the key is
+     * taken over once its lock ran out.
+     *
+     * @param owner owner of the claim, from {@link Claim#owner()}
+     */
+    public void release(final String principal, final String key, final UUID owner) {
+        running.remove(owner);
+        try {
+            jdbcTemplate.update("""
+                    DELETE FROM idempotency_key
+                    WHERE principal = ? AND idempotency_key = ? AND owner = ? AND status IS NULL""",
+                principal, key, owner);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Failed to release idempotency key {}, it is free again in {} seconds", key,
+                inProgressTimeoutSeconds, e);
+        }
+    }
+
+    /**
+     * Moves the locks of the requests running on this replica ahead by the in-progress timeout, and retries making the
+     * locks of unknown responses permanent. The interval has to stay well below the timeout.
+     */
+    @Scheduled(fixedDelayString = "${employees.idempotency.heartbeat-interval-seconds:15}", timeUnit = TimeUnit.SECONDS)
+    public void heartbeat() {
+        unknown.forEach(this::lockForever);
+        if (running.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(connection -> {
+                var statement = connection.prepareStatement("""
+                    UPDATE idempotency_key SET locked_until = now() + make_interval(secs => ?)
+                    WHERE owner = ANY (?) AND status IS NULL AND locked_until <> 'infinity'""");
+                statement.setLong(1, inProgressTimeoutSeconds);
+                statement.setArray(2, connection.createArrayOf("uuid", running.toArray()));
+                return statement;
+            });
+        } catch (DataAccessException e) {
+            LOGGER.warn("Failed to renew the locks of {} running idempotent requests", running.size(), e);
+        }
+    }
+
+    private void lockForever(final UUID owner) {
+        try {
+            jdbcTemplate.update(
+                "UPDATE idempotency_key SET locked_until = 'infinity' WHERE owner = ? AND status IS NULL", owner);
+            unknown.remove(owner);
+            running.remove(owner);
+        } catch (DataAccessException e) {
+            // Stays running, so its lock is still renewed until this succeeds
+            LOGGER.warn("Failed to lock the claim of owner {} until it expires, retrying", owner, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${employees.idempotency.cleanup-interval-seconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void deleteExpired() {
+        var deleted = jdbcTemplate.update(
+            "DELETE FROM idempotency_key WHERE created_at < now() - make_interval(secs => ?)", ttlSeconds);
+        if (deleted > 0) {
+            LOGGER.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private static String cacheKey(final String principal, final String key) {
+        return principal + '\n' + key;
+    }
+
+    /**
+     * @param status HTTP status
+     * @param contentType {@code Content-Type} of the body, if any
+     * @param eTag {@code ETag} header, if any
+     */
+    public record StoredResponse(int status, String contentType, String eTag, byte[] body) {
+    }
+
+    /**
+     * Outcome of claiming a key; {@code owner} is only set for {@link State#ACQUIRED}, {@code response} only for
+     * {@link State#REPLAY}.
+     */
+    public record Claim(State state, UUID owner, StoredResponse response) {
+
+        static final Claim IN_PROGRESS = new Claim(State.IN_PROGRESS, null, null);
+
+        static final Claim MISMATCH = new Claim(State.MISMATCH, null, null);
+
+        static Claim acquired(final UUID owner) {
+            return new Claim(State.ACQUIRED, owner, null);
+        }
+
+        static Claim replay(final StoredResponse response) {
+            return new Claim(State.REPLAY, null, response);
+        }
+    }
+
+    public enum State {
+        /** The caller runs the request and completes or releases the key */
+        ACQUIRED,
+        /** Another request with the key is still running */
+        IN_PROGRESS,
+        /** The key was used for a different request */
+        MISMATCH,
+        /** The stored response answers the request */
+        REPLAY
+    }
+
+    private record Completed(byte[] requestHash, StoredResponse response) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.dstolis.employeeapi.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dstolis.employeeapi.model.dto.EmployeeEvent;
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+
+/**
+ * Collapses the events of one relay batch into the shortest sequence per aggregate that leaves consumers in the same
+ * state:
+ * <ul>
+ *     <li>consecutive UPDATED events collapse into the last one,</li>
+ *     <li>UPDATED events followed by a DELETED event are dropped,</li>
+ *     <li>CREATED followed by DELETED becomes a single DELETED, or disappears entirely when
+ *     {@code outbox.relay.coalesce.drop-created-deleted} is set.</li>
+ * </ul>
+ * CREATED followed by UPDATED is kept as is, because a full-state CREATED event carries the state before the update.
+ * Events of unknown types are never merged. The order of the remaining events is preserved.
+ */
+@Component
+public class OutboxEventCoalescer {
+
+    private final boolean enabled;
+
+    private final boolean dropCreatedDeleted;
+
+    @Autowired
+    public OutboxEventCoalescer(@Value("${outbox.relay.coalesce.enabled:true}") final boolean enabled,
+        @Value("${outbox.relay.coalesce.drop-created-deleted:false}") final boolean dropCreatedDeleted) {
+        this.enabled = enabled;
+        this.dropCreatedDeleted = dropCreatedDeleted;
+    }
+
+    /**
+     * @param events the claimed events in publishing order
+     * @return the events that still need to be published, in publishing order
+     */
+    public List<OutboxEvent> coalesce(final List<OutboxEvent> events) {
+        if (!enabled || events.size() < 2) {
+            return events;
+        }
+
+        var positions = new IdentityHashMap<OutboxEvent, Integer>();
+        var byAggregate = new LinkedHashMap<UUID, LinkedList<OutboxEvent>>();
+        for (int i = 0; i < events.size(); i++) {
+            var event = events.get(i);
+            positions.put(event, i);
+            append(byAggregate.computeIfAbsent(event.getAggregateId(), id -> new LinkedList<>()), event);
+        }
+
+        var result = new ArrayList<OutboxEvent>(events.size());
+        byAggregate.values().forEach(result::addAll);
+        result.sort(Comparator.comparing(positions::get));
+        return result;
+    }
+
+    private void append(final LinkedList<OutboxEvent> kept, final OutboxEvent event) {
+        var type = typeOf(event);
+        if (type == EmployeeEvent.EventType.UPDATED) {
+            if (typeOf(kept.peekLast()) == EmployeeEvent.EventType.UPDATED) {
+                kept.removeLast();
+            }
+            kept.addLast(event);
+        } else if (type == EmployeeEvent.EventType.DELETED) {
+            while (typeOf(kept.peekLast()) == EmployeeEvent.EventType.UPDATED) {
+                kept.removeLast();
+            }
+            if (typeOf(kept.peekLast()) == EmployeeEvent.EventType.CREATED) {
+                kept.removeLast();
+                if (dropCreatedDeleted) {
+                    return;
+                }
+            }
+            kept.addLast(event);
+        } else {
+            kept.addLast(event);
+        }
+    }
+
+    private static EmployeeEvent.EventType typeOf(final OutboxEvent event) {
+        if (event == null) {
+            return null;
+        }
+        try {
+            return EmployeeEvent.EventType.valueOf(event.getEventType());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
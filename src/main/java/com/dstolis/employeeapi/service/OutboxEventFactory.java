@@ -0,0 +1,64 @@
+package com.dstolis.employeeapi.service;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.dto.EmployeeEvent;
+import com.dstolis.employeeapi.model.dto.EmployeeEventCodec;
+import com.dstolis.employeeapi.model.entity.Employee;
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+
+/**
+ * Builds the outbox rows for employee changes. With {@code outbox.events.full-state} enabled, created and updated
+ * events carry the complete employee after the change and its version, and deletions become tombstones, so consumers
+ * never have to call back the API.
+ */
+@Component
+public class OutboxEventFactory {
+
+    private static final String AGGREGATE_TYPE = "Employee";
+
+    private final boolean fullState;
+
+    @Autowired
+    public OutboxEventFactory(@Value("${outbox.events.full-state:false}") final boolean fullState) {
+        this.fullState = fullState;
+    }
+
+    public OutboxEvent created(final Employee employee) {
+        return forEmployee(employee, EmployeeEvent.EventType.CREATED);
+    }
+
+    /**
+     * @param employee the employee after the change; a full-state event carries its version before the update, which
+     *     {@link com.dstolis.employeeapi.repository.EmployeeCommandRepository#updateWithEvent} overwrites with the
+     *     incremented one in the same statement
+     */
+    public OutboxEvent updated(final Employee employee) {
+        return forEmployee(employee, EmployeeEvent.EventType.UPDATED);
+    }
+
+    public OutboxEvent deleted(final UUID id) {
+        var payload = fullState
+            ? EmployeeEventCodec.tombstone()
+            : EmployeeEventCodec.encode(new EmployeeEvent(id, EmployeeEvent.EventType.DELETED));
+        return pending(id, EmployeeEvent.EventType.DELETED, payload);
+    }
+
+    private OutboxEvent forEmployee(final Employee employee, final EmployeeEvent.EventType type) {
+        var event = fullState
+            ? new EmployeeEvent(employee.getId(), type, employee.getVersion(), new EmployeeDTO(employee))
+            : new EmployeeEvent(employee.getId(), type);
+        return pending(employee.getId(), type, EmployeeEventCodec.encode(event));
+    }
+
+    private static OutboxEvent pending(final UUID id, final EmployeeEvent.EventType type, final byte[] payload) {
+        return new OutboxEvent(id, AGGREGATE_TYPE, type.name(), payload, OffsetDateTime.now(),
+            OutboxEvent.Status.PENDING);
+    }
+}
@@ -0,0 +1,38 @@
+package com.dstolis.employeeapi.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the outbox relay DOWN once the oldest pending event is older than {@code outbox.health.max-lag-seconds}.
+ */
+@Component
+public class OutboxHealthIndicator implements HealthIndicator {
+
+    private final OutboxMetrics outboxMetrics;
+
+    private final Duration maxLag;
+
+    @Autowired
+    public OutboxHealthIndicator(final OutboxMetrics outboxMetrics,
+        @Value("${outbox.health.max-lag-seconds:300}") final long maxLagSeconds) {
+        this.outboxMetrics = outboxMetrics;
+        this.maxLag = Duration.ofSeconds(maxLagSeconds);
+    }
+
+    @Override
+    public Health health() {
+        var lag = outboxMetrics.getOldestPendingAge();
+        var health = lag.compareTo(maxLag) > 0 ? Health.down() : Health.up();
+        return health
+            .withDetail("pendingEvents", outboxMetrics.getPendingEvents())
+            .withDetail("oldestPendingAgeSeconds", lag.toSeconds())
+            .withDetail("maxLagSeconds", maxLag.toSeconds())
+            .build();
+    }
+}
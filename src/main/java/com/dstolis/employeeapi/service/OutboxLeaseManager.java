@@ -0,0 +1,139 @@
+package com.dstolis.employeeapi.service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.dstolis.employeeapi.repository.OutboxLeaseRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Assigns logical outbox partitions to relay instances through expiring leases. Every instance heartbeats into
+ * {@code outbox_relay_member} and converges to an equal share of the partitions: instances above their share release
+ * the surplus, instances below it pick up free or expired leases. A partition has at most one live owner, which keeps
+ * per-aggregate ordering across replicas.
+ * <p>
+ * Every claim gives the lease a new epoch. The relay claims and marks events only for leases it still holds with an
+ * epoch no higher than the fencing token read at the start of the batch, so a replica that stalled past its lease
+ * cannot publish a partition another replica took over.
+ */
+@Component
+public class OutboxLeaseManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxLeaseManager.class);
+
+    private final OutboxLeaseRepository leaseRepository;
+
+    private final TransactionOperations transactionOperations;
+
+    private final String instanceId;
+
+    private final int leaseTtlSeconds;
+
+    private volatile int partitionCount;
+
+    @Autowired
+    public OutboxLeaseManager(final OutboxLeaseRepository leaseRepository,
+        final TransactionOperations transactionOperations,
+        @Value("${outbox.relay.instance-id:}") final String instanceId,
+        @Value("${outbox.relay.lease-ttl-seconds:60}") final int leaseTtlSeconds) {
+        this.leaseRepository = leaseRepository;
+        this.transactionOperations = transactionOperations;
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.leaseTtlSeconds = leaseTtlSeconds;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.rebalance-interval-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    public void heartbeat() {
+        rebalance();
+    }
+
+    /**
+     * Heartbeats, renews the leases held by this instance and moves it towards its fair share of partitions.
+     *
+     * @return the partitions this instance owns after rebalancing
+     */
+    public List<Integer> rebalance() {
+        return transactionOperations.execute(status -> {
+            leaseRepository.heartbeat(instanceId, leaseTtlSeconds);
+            leaseRepository.deleteExpiredMembers();
+            leaseRepository.renew(instanceId, leaseTtlSeconds);
+
+            partitionCount = (int) leaseRepository.count();
+            var members = Math.max(1, leaseRepository.countActiveMembers());
+            var fairShare = (int) Math.ceil((double) partitionCount / members);
+            var owned = leaseRepository.findOwnedPartitions(instanceId).size();
+
+            if (owned > fairShare) {
+                leaseRepository.release(instanceId, owned - fairShare);
+            } else if (owned < fairShare) {
+                leaseRepository.claim(instanceId, leaseTtlSeconds, fairShare - owned);
+            }
+
+            var partitions = leaseRepository.findOwnedPartitions(instanceId);
+            if (partitions.size() != owned) {
+                LOGGER.info("Outbox relay {} now owns partitions {}", instanceId, partitions);
+            }
+            return partitions;
+        });
+    }
+
+    /**
+     * Extends the leases held by this instance without rebalancing. Joins the caller's transaction if there is one,
+     * and the renewed leases stay locked until it ends.
+     *
+     * @return the leases this instance still owns
+     */
+    public Leases renew() {
+        return transactionOperations.execute(status -> {
+            leaseRepository.renew(instanceId, leaseTtlSeconds);
+            var partitions = leaseRepository.findOwnedPartitions(instanceId);
+            if (partitions.isEmpty()) {
+                return new Leases(partitionCount, partitions, 0);
+            }
+            if (partitionCount == 0) {
+                // Leases that survived a restart with the same instance id are owned before the first rebalance
+                partitionCount = (int) leaseRepository.count();
+            }
+            return new Leases(partitionCount, partitions, leaseRepository.findFencingToken(instanceId));
+        });
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        try {
+            transactionOperations.executeWithoutResult(status -> {
+                leaseRepository.releaseAll(instanceId);
+                leaseRepository.deleteMember(instanceId);
+            });
+        } catch (RuntimeException e) {
+            // The leases simply expire after their TTL
+            LOGGER.warn("Could not release outbox leases of {}", instanceId, e);
+        }
+    }
+
+    /**
+     * @param partitionCount the number of logical partitions, events are assigned by {@code hash mod partitionCount}
+     * @param partitions the partitions owned by this instance
+     * @param fencingToken the highest epoch of these leases, a lease taken over later has a higher one
+     */
+    public record Leases(int partitionCount, List<Integer> partitions, long fencingToken) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.dstolis.employeeapi.service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Outbox relay metrics. The backlog gauges are refreshed on a schedule rather than on every scrape, so scrapes never
+ * hit the database; both queries are served by the partial index on PENDING rows.
+ */
+@Component
+public class OutboxMetrics {
+
+    private final OutboxRepository outboxRepository;
+
+    private final AtomicLong pendingEvents = new AtomicLong();
+
+    private final AtomicLong oldestPendingAgeMillis = new AtomicLong();
+
+    private final AtomicLong failedEvents = new AtomicLong();
+
+    private final Timer publishLatency;
+
+    private final DistributionSummary batchSize;
+
+    private final Counter coalescedEvents;
+
+    private final Counter publishFailures;
+
+    private final Counter deadLetteredEvents;
+
+    @Autowired
+    public OutboxMetrics(final MeterRegistry meterRegistry, final OutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+
+        Gauge.builder("outbox.pending.events", pendingEvents, AtomicLong::get)
+            .description("Number of outbox events waiting to be published")
+            .register(meterRegistry);
+        TimeGauge.builder("outbox.oldest.pending.age", oldestPendingAgeMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .description("Age of the oldest outbox event waiting to be published")
+            .register(meterRegistry);
+        Gauge.builder("outbox.failed.events", failedEvents, AtomicLong::get)
+            .description("Number of dead-lettered outbox events")
+            .register(meterRegistry);
+        publishLatency = Timer.builder("outbox.publish.latency")
+            .description("Time from writing an outbox event to its acknowledgement by the broker")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        batchSize = DistributionSummary.builder("outbox.batch.size")
+            .description("Number of outbox events claimed per relay batch")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        coalescedEvents = Counter.builder("outbox.coalesced.events")
+            .description("Outbox events marked processed without being sent because a later event superseded them")
+            .register(meterRegistry);
+        publishFailures = Counter.builder("outbox.publish.failures")
+            .description("Outbox event sends that failed or were not acknowledged")
+            .register(meterRegistry);
+        deadLetteredEvents = Counter.builder("outbox.dead.lettered.events")
+            .description("Outbox events that exhausted all publish attempts")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.metrics.refresh-interval-seconds:15}", timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        pendingEvents.set(outboxRepository.countPending());
+        var oldestPendingAgeSeconds = outboxRepository.findOldestPendingAgeSeconds();
+        oldestPendingAgeMillis.set(oldestPendingAgeSeconds == null ? 0 : (long) (oldestPendingAgeSeconds * 1000));
+        failedEvents.set(outboxRepository.countFailed());
+    }
+
+    public long getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    public Duration getOldestPendingAge() {
+        return Duration.ofMillis(oldestPendingAgeMillis.get());
+    }
+
+    public void recordBatch(final int claimed, final int sent) {
+        batchSize.record(claimed);
+        coalescedEvents.increment(claimed - sent);
+    }
+
+    public void recordAck(final OutboxEvent event) {
+        publishLatency.record(Duration.between(event.getEventTime(), OffsetDateTime.now()));
+    }
+
+    public void recordFailure() {
+        publishFailures.increment();
+    }
+
+    public void recordDeadLettered(final int count) {
+        deadLetteredEvents.increment(count);
+    }
+}
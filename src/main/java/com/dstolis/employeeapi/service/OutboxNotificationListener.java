@@ -0,0 +1,117 @@
+package com.dstolis.employeeapi.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wakes up the outbox relay as soon as an outbox insert commits. It holds a dedicated, non-pooled connection that
+ * LISTENs on the channel notified by the {@code outbox_event_notify} trigger, so relay latency no longer depends on
+ * the polling interval. The scheduled poll in {@link PublisherService} stays as a safety net.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.relay.listen.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxNotificationListener implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxNotificationListener.class);
+
+    private static final String CHANNEL = "outbox_events";
+
+    private static final int WAIT_MILLIS = 1000;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final PublisherService publisherService;
+
+    private final long reconnectDelayMillis;
+
+    private volatile boolean running;
+
+    private Thread listenerThread;
+
+    @Autowired
+    public OutboxNotificationListener(final DataSourceProperties dataSourceProperties,
+        final PublisherService publisherService,
+        @Value("${outbox.relay.listen.reconnect-delay-ms:5000}") final long reconnectDelayMillis) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.publisherService = publisherService;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "outbox-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (var connection = openConnection()) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                var pgConnection = connection.unwrap(PGConnection.class);
+
+                // Catch up on everything committed while no connection was listening
+                relay();
+                while (running) {
+                    var notifications = pgConnection.getNotifications(WAIT_MILLIS);
+                    if (notifications != null && notifications.length > 0) {
+                        relay();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    LOGGER.warn("Outbox listener connection lost, reconnecting in {} ms", reconnectDelayMillis, e);
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private void relay() {
+        try {
+            publisherService.publishEvents();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Outbox relay run failed, the next notification or poll will retry", e);
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(reconnectDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
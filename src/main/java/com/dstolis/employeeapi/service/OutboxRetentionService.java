@@ -0,0 +1,173 @@
+package com.dstolis.employeeapi.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Maintains the daily range partitions of the {@code outbox} table: creates partitions ahead of time and detaches and
+ * drops partitions older than the retention period. Dead-lettered events of an expired partition are moved to
+ * {@code outbox_dead_letter} first; a partition that still holds pending events is kept. Dropping a partition is a
+ * catalog operation, so removing millions of processed events costs no more than removing a few.
+ * <p>
+ * Detaching still takes an {@code ACCESS EXCLUSIVE} lock on {@code outbox}, and while it waits for that lock every
+ * outbox insert and relay claim queues behind it. {@code DETACH PARTITION CONCURRENTLY} would avoid that, but is not
+ * allowed next to the default partition. So the detach gives up after {@code outbox.partitions.detach-lock-timeout-ms}
+ * and is retried a few times; a partition it never gets the lock for is dropped by the next run.
+ */
+@Service
+public class OutboxRetentionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRetentionService.class);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+    private static final long DETACH_RETRY_PAUSE_MILLIS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int precreateDays;
+
+    private final int retentionDays;
+
+    private final long detachLockTimeoutMillis;
+
+    private final int detachAttempts;
+
+    @Autowired
+    public OutboxRetentionService(final JdbcTemplate jdbcTemplate,
+        @Value("${outbox.partitions.precreate-days:7}") final int precreateDays,
+        @Value("${outbox.partitions.retention-days:7}") final int retentionDays,
+        @Value("${outbox.partitions.detach-lock-timeout-ms:200}") final long detachLockTimeoutMillis,
+        @Value("${outbox.partitions.detach-attempts:5}") final int detachAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.precreateDays = precreateDays;
+        this.retentionDays = retentionDays;
+        this.detachLockTimeoutMillis = detachLockTimeoutMillis;
+        this.detachAttempts = detachAttempts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${outbox.partitions.maintenance-cron:0 15 0 * * *}")
+    public void maintainPartitions() {
+        createUpcomingPartitions(LocalDate.now());
+        dropExpiredPartitions(LocalDate.now().minusDays(retentionDays));
+    }
+
+    void createUpcomingPartitions(final LocalDate today) {
+        for (int i = 0; i <= precreateDays; i++) {
+            var day = today.plusDays(i);
+            var name = "outbox_p" + day.format(PARTITION_SUFFIX);
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF outbox FOR VALUES FROM ('"
+                    + day + "') TO ('" + day.plusDays(1) + "')");
+            } catch (DataAccessException e) {
+                // Typically the default partition already holds rows of that day; they stay there until dropped
+                LOGGER.warn("Could not create outbox partition {}", name, e);
+            }
+        }
+    }
+
+    void dropExpiredPartitions(final LocalDate cutoff) {
+        var partitions = jdbcTemplate.queryForList("""
+            SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+            FROM pg_inherits i
+                     JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'outbox'::regclass""");
+
+        for (var partition : partitions) {
+            var name = (String) partition.get("name");
+            var matcher = UPPER_BOUND.matcher((String) partition.get("bound"));
+            if (!matcher.find() || upperBound(matcher.group(1)).isAfter(cutoff.atStartOfDay())) {
+                continue;
+            }
+            moveDeadLetters(name);
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM \"" + name + "\" WHERE status <> 'PROCESSED')", Boolean.class))) {
+                LOGGER.warn("Keeping expired outbox partition {} because it still holds pending events", name);
+                continue;
+            }
+            if (!detach(name)) {
+                LOGGER.warn("Keeping expired outbox partition {} because outbox stayed locked, the next run retries",
+                    name);
+                continue;
+            }
+            jdbcTemplate.execute("DROP TABLE \"" + name + "\"");
+            LOGGER.info("Dropped expired outbox partition {}", name);
+        }
+    }
+
+    /**
+     * @return whether the partition was detached within the attempts
+     */
+    private boolean detach(final String partition) {
+        for (int attempt = 1; attempt <= detachAttempts; attempt++) {
+            try {
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (var statement = connection.createStatement()) {
+                        statement.execute("SET lock_timeout = " + detachLockTimeoutMillis);
+                        try {
+                            statement.execute("ALTER TABLE outbox DETACH PARTITION \"" + partition + "\"");
+                        } finally {
+                            statement.execute("RESET lock_timeout");
+                        }
+                    }
+                    return null;
+                });
+                return true;
+            } catch (CannotAcquireLockException e) {
+                LOGGER.info("Outbox is locked, attempt {} of {} to detach partition {} gave up after {} ms", attempt,
+                    detachAttempts, partition, detachLockTimeoutMillis);
+            }
+            if (attempt < detachAttempts && !pause()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(DETACH_RETRY_PAUSE_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void moveDeadLetters(final String partition) {
+        // One statement, so that the relay always sees a dead-lettered event in one of the two tables
+        var moved = jdbcTemplate.update("""
+            WITH failed AS (DELETE FROM "%s" WHERE status = 'FAILED' RETURNING *)
+            INSERT INTO outbox_dead_letter (id, aggregate_id, aggregate_type, event_type, payload, event_time, attempts,
+                                            last_error)
+            SELECT id, aggregate_id, aggregate_type, event_type, payload, event_time, attempts, last_error
+            FROM failed""".formatted(partition));
+        if (moved > 0) {
+            LOGGER.info("Moved {} dead-lettered events of expired outbox partition {} to outbox_dead_letter", moved,
+                partition);
+        }
+    }
+
+    private static LocalDateTime upperBound(final String bound) {
+        return Timestamp.valueOf(bound).toLocalDateTime();
+    }
+}
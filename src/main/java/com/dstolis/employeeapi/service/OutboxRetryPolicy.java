@@ -0,0 +1,53 @@
+package com.dstolis.employeeapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+
+/**
+ * Exponential backoff for outbox events whose publishing failed: the n-th retry waits
+ * {@code min(initialBackoff * 2^(n-1), maxBackoff)}. After {@code maxAttempts} failed attempts an event is
+ * dead-lettered with status {@link OutboxEvent.Status#FAILED}.
+ */
+@Component
+public class OutboxRetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long initialBackoffSeconds;
+
+    private final long maxBackoffSeconds;
+
+    @Autowired
+    public OutboxRetryPolicy(@Value("${outbox.relay.retry.max-attempts:12}") final int maxAttempts,
+        @Value("${outbox.relay.retry.initial-backoff-seconds:1}") final long initialBackoffSeconds,
+        @Value("${outbox.relay.retry.max-backoff-seconds:900}") final long maxBackoffSeconds) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffSeconds = initialBackoffSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+    }
+
+    /**
+     * @return whether the failed attempt that is being recorded is the last one allowed for the event
+     */
+    public boolean isExhausted(final OutboxEvent event) {
+        return event.getAttempts() + 1 >= maxAttempts;
+    }
+
+    /**
+     * @return how long the event waits for its next attempt after the failed attempt that is being recorded
+     */
+    public long getBackoffSeconds(final OutboxEvent event) {
+        return (long) Math.min(initialBackoffSeconds * Math.pow(2, event.getAttempts()), maxBackoffSeconds);
+    }
+
+    public long getInitialBackoffSeconds() {
+        return initialBackoffSeconds;
+    }
+
+    public long getMaxBackoffSeconds() {
+        return maxBackoffSeconds;
+    }
+}
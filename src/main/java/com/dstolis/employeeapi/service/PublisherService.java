@@ -1,45 +1,307 @@
 package com.dstolis.employeeapi.service;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 
+import com.dstolis.employeeapi.model.dto.EmployeeEventCodec;
 import com.dstolis.employeeapi.model.entity.OutboxEvent;
 import com.dstolis.employeeapi.repository.OutboxRepository;
 
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PreDestroy;
 
 @Service
 @EnableScheduling
 public class PublisherService {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private static final Logger LOGGER = LoggerFactory.getLogger(PublisherService.class);
 
-    private static final String TOPIC = "employee-events";
+    static final String TOPIC = "employee-events";
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
 
     private final OutboxRepository outboxRepository;
 
+    private final TransactionOperations transactionOperations;
+
+    private final OutboxLeaseManager leaseManager;
+
+    private final OutboxEventCoalescer coalescer;
+
+    private final OutboxMetrics metrics;
+
+    private final OutboxRetryPolicy retryPolicy;
+
+    private final int batchSize;
+
+    private final long sendTimeoutMillis;
+
+    private final ScheduledExecutorService retryScheduler;
+
+    private ScheduledFuture<?> retryWakeup;
+
+    private final ReentrantLock relayLock = new ReentrantLock();
+
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
     @Autowired
-    public PublisherService(final KafkaTemplate<String, String> kafkaTemplate,
-        final OutboxRepository outboxRepository) {
+    public PublisherService(final KafkaTemplate<String, byte[]> kafkaTemplate,
+        final OutboxRepository outboxRepository,
+        final TransactionOperations transactionOperations,
+        final OutboxLeaseManager leaseManager,
+        final OutboxEventCoalescer coalescer,
+        final OutboxMetrics metrics,
+        final OutboxRetryPolicy retryPolicy,
+        @Value("${outbox.relay.batch-size:500}") final int batchSize,
+        @Value("${outbox.relay.send-timeout-ms:30000}") final long sendTimeoutMillis) {
         this.kafkaTemplate = kafkaTemplate;
         this.outboxRepository = outboxRepository;
+        this.transactionOperations = transactionOperations;
+        this.leaseManager = leaseManager;
+        this.coalescer = coalescer;
+        this.metrics = metrics;
+        this.retryPolicy = retryPolicy;
+        this.batchSize = batchSize;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        var retryThreadFactory = new CustomizableThreadFactory("outbox-retry-");
+        retryThreadFactory.setDaemon(true);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(retryThreadFactory);
     }
 
-    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.SECONDS)
-    @Transactional()
+    /**
+     * Drains the outbox partitions leased by this instance in bounded batches. Each batch runs in its own short
+     * transaction, so a large backlog never holds a single connection or row locks for the whole run.
+     * <p>
+     * Normally triggered by {@link OutboxNotificationListener} right after an outbox insert commits, and once the
+     * earliest event parked for a retry is due; the scheduled poll only catches missed notifications. Concurrent calls
+     * are coalesced into a single run: a call arriving while a run is in progress makes that run drain once more
+     * instead of starting a second relay that could reorder events.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
     public void publishEvents() {
-        List<OutboxEvent> events = outboxRepository.findAllByStatus(OutboxEvent.Status.PENDING);
+        wakeupPending.set(true);
+        while (wakeupPending.get() && relayLock.tryLock()) {
+            try {
+                while (wakeupPending.getAndSet(false)) {
+                    drainOutbox();
+                }
+            } finally {
+                relayLock.unlock();
+            }
+        }
+    }
+
+    private void drainOutbox() {
+        Integer published;
+        do {
+            published = transactionOperations.execute(status -> publishBatch());
+        } while (published != null && published == batchSize);
+    }
+
+    private int publishBatch() {
+        // Renewing before every batch keeps the leases alive while draining a large backlog
+        var leases = leaseManager.renew();
+        if (leases.partitions().isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxEvent> events = outboxRepository.claimPendingBatch(leases.partitionCount(),
+            leaseManager.getInstanceId(), leases.fencingToken(), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
 
-        for (OutboxEvent event : events) {
-            kafkaTemplate.send(TOPIC, event.getPayload());
-            event.setStatus(OutboxEvent.Status.PROCESSED);
-            outboxRepository.save(event);
+        // Superseded events are not sent but still marked PROCESSED together with the rest of the batch
+        var eventsToSend = coalescer.coalesce(events);
+        metrics.recordBatch(events.size(), eventsToSend.size());
+        var failures = send(eventsToSend);
+        var processedIds = events.stream()
+            .filter(event -> !failures.containsKey(event))
+            .map(OutboxEvent::getId)
+            .toList();
+        if (!processedIds.isEmpty()) {
+            var marked = outboxRepository.markProcessed(processedIds, leases.partitionCount(),
+                leaseManager.getInstanceId(), leases.fencingToken());
+            if (marked < processedIds.size()) {
+                LOGGER.warn("Outbox relay {} lost the lease of {} sent events, they stay pending for the new owner",
+                    leaseManager.getInstanceId(), processedIds.size() - marked);
+            }
         }
+        parkFailures(failures);
+
+        // Stop draining when nothing got through, the broker is most likely unavailable
+        return !eventsToSend.isEmpty() && failures.size() == eventsToSend.size() ? 0 : events.size();
+    }
+
+    /**
+     * Sends the batch in rounds, each round holding the next event of every aggregate, and waits for the
+     * acknowledgements of a round at once before sending the next. Events of different aggregates fill the producer
+     * batches together, while an event is only sent once the previous event of its aggregate was acknowledged. After
+     * coalescing most aggregates have a single event in a batch, so a batch mostly goes out in one round.
+     * <p>
+     * Once an event of an aggregate failed, its later events are not sent and count as failed too; they are retried
+     * after it. So an aggregate's events never reach the broker twice or out of order because of a failure, as long
+     * as the broker did not take an event it failed to acknowledge within {@code outbox.relay.send-timeout-ms}.
+     *
+     * @return every failed event mapped to its error
+     */
+    private Map<OutboxEvent, String> send(final List<OutboxEvent> events) {
+        var unsent = new LinkedHashMap<UUID, Queue<OutboxEvent>>();
+        events.forEach(event -> unsent.computeIfAbsent(event.getAggregateId(), id -> new ArrayDeque<>()).add(event));
+        // One deadline for all rounds, so a batch never takes longer than a single send timeout
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+
+        var failures = new HashMap<OutboxEvent, String>();
+        while (!unsent.isEmpty()) {
+            var acks = new LinkedHashMap<OutboxEvent, CompletableFuture<?>>();
+            unsent.values().forEach(aggregateEvents -> {
+                var event = aggregateEvents.remove();
+                acks.put(event, sendAsync(event));
+            });
+            unsent.values().removeIf(Queue::isEmpty);
+            awaitAll(acks.values(), deadline);
+
+            acks.forEach((event, ack) -> {
+                var error = errorOf(event, ack);
+                if (error != null) {
+                    failures.put(event, error);
+                    var skipped = unsent.remove(event.getAggregateId());
+                    if (skipped != null) {
+                        skipped.forEach(later -> failures.put(later, "An earlier event of the aggregate failed"));
+                    }
+                }
+            });
+        }
+        return failures;
+    }
+
+    private CompletableFuture<?> sendAsync(final OutboxEvent event) {
+        try {
+            return kafkaTemplate.send(TOPIC, event.getAggregateId().toString(), recordValue(event))
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        metrics.recordAck(event);
+                    }
+                });
+        } catch (RuntimeException e) {
+            // For example when the producer buffer stays full for longer than max.block.ms
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void awaitAll(final Collection<CompletableFuture<?>> acks, final long deadline) {
+        try {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).get(deadline - System.nanoTime(),
+                TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Failed and missing acknowledgements are told apart per event
+        }
+    }
+
+    /**
+     * @return the error if the event was not acknowledged, {@code null} otherwise
+     */
+    private String errorOf(final OutboxEvent event, final CompletableFuture<?> ack) {
+        if (!ack.isDone()) {
+            metrics.recordFailure();
+            LOGGER.warn("Outbox event {} of aggregate {} was not acknowledged within {} ms", event.getId(),
+                event.getAggregateId(), sendTimeoutMillis);
+            return "Not acknowledged within " + sendTimeoutMillis + " ms";
+        }
+        try {
+            ack.join();
+            return null;
+        } catch (CompletionException e) {
+            metrics.recordFailure();
+            LOGGER.warn("Failed to publish outbox event {} of aggregate {}", event.getId(), event.getAggregateId(),
+                e.getCause());
+            return e.getCause().getClass().getSimpleName() + ": " + e.getCause().getMessage();
+        }
+    }
+
+    private static byte[] recordValue(final OutboxEvent event) {
+        // Tombstones are sent with a null value so that log compaction removes the key
+        return EmployeeEventCodec.isTombstone(event.getPayload()) ? null : event.getPayload();
+    }
+
+    private void parkFailures(final Map<OutboxEvent, String> failures) {
+        // Grouped by error so that a broker outage costs one update per batch, not one per event
+        var retries = new LinkedHashMap<String, List<UUID>>();
+        var deadLetters = new LinkedHashMap<String, List<UUID>>();
+        failures.forEach((event, error) -> (retryPolicy.isExhausted(event) ? deadLetters : retries)
+            .computeIfAbsent(error, key -> new ArrayList<>())
+            .add(event.getId()));
+
+        retries.forEach((error, ids) -> outboxRepository.scheduleRetry(ids, error,
+            retryPolicy.getInitialBackoffSeconds(), retryPolicy.getMaxBackoffSeconds()));
+        failures.keySet().stream()
+            .filter(event -> !retryPolicy.isExhausted(event))
+            .mapToLong(retryPolicy::getBackoffSeconds)
+            .min()
+            .ifPresent(this::wakeUpAfter);
+        deadLetters.forEach((error, ids) -> {
+            outboxRepository.markFailed(ids, error);
+            metrics.recordDeadLettered(ids.size());
+            LOGGER.error("Dead-lettered outbox events {} after exhausting all attempts: {}", ids, error);
+        });
+    }
+
+    /**
+     * Runs the relay again once the earliest parked event is due, rather than at the next poll. Events parked before a
+     * restart are still picked up by the poll.
+     */
+    private synchronized void wakeUpAfter(final long delaySeconds) {
+        // A pending wakeup that fires no later covers this one; the running one does not
+        var delayMillis = TimeUnit.SECONDS.toMillis(delaySeconds);
+        if (retryWakeup != null) {
+            var pendingMillis = retryWakeup.getDelay(TimeUnit.MILLISECONDS);
+            if (pendingMillis > 0 && pendingMillis <= delayMillis) {
+                return;
+            }
+            retryWakeup.cancel(false);
+        }
+        retryWakeup = retryScheduler.schedule(this::relayDueRetries, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void relayDueRetries() {
+        try {
+            publishEvents();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Outbox relay run for due retries failed, the next poll will retry", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        retryScheduler.shutdownNow();
     }
 }
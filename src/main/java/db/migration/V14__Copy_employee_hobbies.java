@@ -0,0 +1,98 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Copies {@code employee_hobbies} into the hobby dictionary and {@code employee_hobby} while the table stays in use.
+ * <p>
+ * Employees are copied in batches of {@value #BATCH_SIZE}, each in its own short transaction, instead of one
+ * transaction over the whole table. A batch first locks its employees {@code FOR SHARE}: instances of the previous
+ * release increment the version of an employee whenever they rewrite its hobbies, so they wait for the batch instead
+ * of changing rows that are being copied. Employees created meanwhile are covered by the mirror trigger of V13, and
+ * repeated hobbies of an employee are kept once, at their first position.
+ */
+public class V14__Copy_employee_hobbies extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String LOCK_BATCH = """
+        SELECT id FROM employees WHERE id > ? ORDER BY id LIMIT ? FOR SHARE""";
+
+    private static final String COPY_HOBBIES = """
+        INSERT INTO hobbies (name)
+        SELECT DISTINCT hobby FROM employee_hobbies WHERE employee_id > ? AND employee_id <= ?
+        ON CONFLICT (name) DO NOTHING""";
+
+    private static final String COPY_EMPLOYEE_HOBBIES = """
+        INSERT INTO employee_hobby (employee_id, hobby_id, position)
+        SELECT eh.employee_id, h.id, min(eh.id)
+        FROM employee_hobbies eh
+                 JOIN hobbies h ON h.name = eh.hobby
+        WHERE eh.employee_id > ? AND eh.employee_id <= ?
+        GROUP BY eh.employee_id, h.id
+        ON CONFLICT (employee_id, hobby_id) DO NOTHING""";
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        var connection = context.getConnection();
+        var autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            // Postgres orders uuids by their unsigned bytes, the nil uuid comes first
+            var after = new UUID(0, 0);
+            UUID last;
+            while ((last = copyBatch(connection, after)) != null) {
+                after = last;
+            }
+            try (var statement = connection.createStatement()) {
+                statement.execute("ANALYZE hobbies");
+                statement.execute("ANALYZE employee_hobby");
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * @return the id of the last employee of the batch, {@code null} once all employees were copied
+     */
+    private static UUID copyBatch(final Connection connection, final UUID after) throws SQLException {
+        UUID last = null;
+        try (var statement = connection.prepareStatement(LOCK_BATCH)) {
+            statement.setObject(1, after);
+            statement.setInt(2, BATCH_SIZE);
+            try (var rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    last = rs.getObject(1, UUID.class);
+                }
+            }
+        }
+        if (last == null) {
+            connection.commit();
+            return null;
+        }
+        for (var sql : new String[] {COPY_HOBBIES, COPY_EMPLOYEE_HOBBIES}) {
+            try (var statement = connection.prepareStatement(sql)) {
+                statement.setObject(1, after);
+                statement.setObject(2, last);
+                statement.executeUpdate();
+            }
+        }
+        connection.commit();
+        return last;
+    }
+}
@@ -0,0 +1,9 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Serves full_name ILIKE '%...%', a B-tree can only serve prefix matches
+CREATE INDEX employees_full_name_trgm_idx ON employees USING gin (full_name gin_trgm_ops);
+
+CREATE INDEX employees_birthday_idx ON employees (birthday);
+
+-- employee_hobbies (employee_id) is already indexed since V9
+CREATE INDEX employee_hobbies_hobby_idx ON employee_hobbies (hobby, employee_id);
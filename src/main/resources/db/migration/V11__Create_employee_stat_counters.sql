@@ -0,0 +1,106 @@
+-- Pre-aggregated employee statistics, kept up to date by the triggers below in the transaction of every write.
+-- Every counter is split into slots picked by the writing backend, so that concurrent transactions do not queue up
+-- on the row lock of a hot counter like the headcount. Readers sum the slots.
+CREATE TABLE employee_stat
+(
+    dimension VARCHAR(16)  NOT NULL,
+    bucket    VARCHAR(255) NOT NULL,
+    slot      SMALLINT     NOT NULL,
+    count     BIGINT       NOT NULL,
+    PRIMARY KEY (dimension, bucket, slot)
+);
+
+CREATE OR REPLACE FUNCTION add_employee_stats(birthdays DATE[], sign INT) RETURNS void AS
+$$
+INSERT INTO employee_stat (dimension, bucket, slot, count)
+SELECT s.dimension, s.bucket, pg_backend_pid() % 8, sign * count(*)
+FROM unnest(birthdays) AS e (birthday)
+         CROSS JOIN LATERAL (VALUES ('headcount', ''),
+                                    ('birth_year', extract(YEAR FROM e.birthday)::text),
+                                    ('birth_month', extract(MONTH FROM e.birthday)::text)) AS s (dimension, bucket)
+GROUP BY s.dimension, s.bucket
+ON CONFLICT (dimension, bucket, slot) DO UPDATE SET count = employee_stat.count + excluded.count
+$$ LANGUAGE sql;
+
+CREATE OR REPLACE FUNCTION add_hobby_stats(hobbies TEXT[], sign INT) RETURNS void AS
+$$
+INSERT INTO employee_stat (dimension, bucket, slot, count)
+SELECT 'hobby', h.hobby, pg_backend_pid() % 8, sign * count(*)
+FROM unnest(hobbies) AS h (hobby)
+GROUP BY h.hobby
+ON CONFLICT (dimension, bucket, slot) DO UPDATE SET count = employee_stat.count + excluded.count
+$$ LANGUAGE sql;
+
+-- Statement level triggers with transition tables, so that bulk writes update every counter once per statement
+CREATE OR REPLACE FUNCTION count_employees() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM add_employee_stats(ARRAY(SELECT birthday FROM new_employees), 1);
+    ELSIF TG_OP = 'DELETE' THEN
+        PERFORM add_employee_stats(ARRAY(SELECT birthday FROM old_employees), -1);
+    ELSE
+        PERFORM add_employee_stats(ARRAY(SELECT o.birthday
+                                         FROM old_employees o
+                                                  JOIN new_employees n USING (id)
+                                         WHERE o.birthday <> n.birthday), -1);
+        PERFORM add_employee_stats(ARRAY(SELECT n.birthday
+                                         FROM old_employees o
+                                                  JOIN new_employees n USING (id)
+                                         WHERE o.birthday <> n.birthday), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION count_employee_hobbies() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM add_hobby_stats(ARRAY(SELECT hobby::text FROM old_hobbies), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM add_hobby_stats(ARRAY(SELECT hobby::text FROM new_hobbies), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER employees_stat_insert
+    AFTER INSERT ON employees
+    REFERENCING NEW TABLE AS new_employees
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employees();
+
+CREATE TRIGGER employees_stat_update
+    AFTER UPDATE ON employees
+    REFERENCING OLD TABLE AS old_employees NEW TABLE AS new_employees
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employees();
+
+CREATE TRIGGER employees_stat_delete
+    AFTER DELETE ON employees
+    REFERENCING OLD TABLE AS old_employees
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employees();
+
+CREATE TRIGGER employee_hobbies_stat_insert
+    AFTER INSERT ON employee_hobbies
+    REFERENCING NEW TABLE AS new_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employee_hobbies();
+
+CREATE TRIGGER employee_hobbies_stat_update
+    AFTER UPDATE ON employee_hobbies
+    REFERENCING OLD TABLE AS old_hobbies NEW TABLE AS new_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employee_hobbies();
+
+CREATE TRIGGER employee_hobbies_stat_delete
+    AFTER DELETE ON employee_hobbies
+    REFERENCING OLD TABLE AS old_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employee_hobbies();
+
+SELECT add_employee_stats(ARRAY(SELECT birthday FROM employees), 1);
+SELECT add_hobby_stats(ARRAY(SELECT hobby::text FROM employee_hobbies), 1);
@@ -0,0 +1,8 @@
+-- Month and day of the birthday as MMDD, e.g. 1231, so that upcoming birthdays are ranges over one index regardless
+-- of the birth year. Adding a stored generated column rewrites the table once.
+ALTER TABLE employees
+    ADD COLUMN birth_mmdd SMALLINT GENERATED ALWAYS AS
+        ((EXTRACT(MONTH FROM birthday) * 100 + EXTRACT(DAY FROM birthday))::SMALLINT) STORED;
+
+-- The id makes the index serve the keyset order of the birthday pages
+CREATE INDEX employees_birth_mmdd_idx ON employees (birth_mmdd, id);
@@ -0,0 +1,69 @@
+-- Hobbies are stored once in a dictionary and referenced by id. employee_hobby holds each hobby of an employee once,
+-- in the order given by position, so that updates can add and remove single rows instead of rewriting the list.
+CREATE TABLE hobbies
+(
+    id   SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE employee_hobby
+(
+    employee_id UUID NOT NULL REFERENCES employees (id) ON DELETE CASCADE,
+    hobby_id    INT  NOT NULL REFERENCES hobbies (id),
+    position    INT  NOT NULL,
+    PRIMARY KEY (employee_id, hobby_id)
+);
+
+-- The primary key serves the hobbies of an employee, this one the employees having a hobby
+CREATE INDEX employee_hobby_hobby_idx ON employee_hobby (hobby_id, employee_id);
+
+-- Instances of the previous release keep writing employee_hobbies until they are replaced. Their writes are mirrored
+-- into the new tables, also while V14 copies the existing rows.
+CREATE OR REPLACE FUNCTION mirror_employee_hobbies() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO hobbies (name) VALUES (NEW.hobby) ON CONFLICT (name) DO NOTHING;
+        INSERT INTO employee_hobby (employee_id, hobby_id, position)
+        SELECT NEW.employee_id, h.id, NEW.id
+        FROM hobbies h
+        WHERE h.name = NEW.hobby
+          AND NEW.employee_id IS NOT NULL
+        ON CONFLICT (employee_id, hobby_id) DO NOTHING;
+    ELSE
+        DELETE
+        FROM employee_hobby eh USING hobbies h
+        WHERE eh.employee_id = OLD.employee_id
+          AND eh.hobby_id = h.id
+          AND h.name = OLD.hobby;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER employee_hobbies_mirror
+    AFTER INSERT OR DELETE
+    ON employee_hobbies
+    FOR EACH ROW
+EXECUTE FUNCTION mirror_employee_hobbies();
+
+-- The application no longer writes employee_hobbies, so deleting an employee has to take its old rows along. The
+-- constraint is added NOT VALID to skip the scan under the exclusive lock, V15 validates it.
+DO
+$$
+    DECLARE
+        constraint_name NAME;
+    BEGIN
+        FOR constraint_name IN SELECT conname
+                               FROM pg_constraint
+                               WHERE conrelid = 'employee_hobbies'::regclass
+                                 AND contype = 'f'
+            LOOP
+                EXECUTE format('ALTER TABLE employee_hobbies DROP CONSTRAINT %I', constraint_name);
+            END LOOP;
+    END
+$$;
+
+ALTER TABLE employee_hobbies
+    ADD CONSTRAINT employee_hobbies_employee_id_fkey FOREIGN KEY (employee_id) REFERENCES employees (id)
+        ON DELETE CASCADE NOT VALID;
@@ -0,0 +1,46 @@
+-- Checks the existing rows against the foreign key added in V13, without blocking writers
+ALTER TABLE employee_hobbies
+    VALIDATE CONSTRAINT employee_hobbies_employee_id_fkey;
+
+-- The hobby counters follow employee_hobby from now on. Writers wait while the counters are recomputed, which also
+-- drops the counts of hobbies that V14 copied only once per employee.
+LOCK TABLE employee_hobbies, employee_hobby IN SHARE MODE;
+
+DROP TRIGGER employee_hobbies_stat_insert ON employee_hobbies;
+DROP TRIGGER employee_hobbies_stat_update ON employee_hobbies;
+DROP TRIGGER employee_hobbies_stat_delete ON employee_hobbies;
+DROP FUNCTION count_employee_hobbies();
+
+-- Rows only ever get inserted and deleted, updates merely move a hobby to another position
+CREATE OR REPLACE FUNCTION count_employee_hobby() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM add_hobby_stats(ARRAY(SELECT h.name::text
+                                      FROM new_hobbies n
+                                               JOIN hobbies h ON h.id = n.hobby_id), 1);
+    ELSE
+        PERFORM add_hobby_stats(ARRAY(SELECT h.name::text
+                                      FROM old_hobbies o
+                                               JOIN hobbies h ON h.id = o.hobby_id), -1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER employee_hobby_stat_insert
+    AFTER INSERT ON employee_hobby
+    REFERENCING NEW TABLE AS new_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employee_hobby();
+
+CREATE TRIGGER employee_hobby_stat_delete
+    AFTER DELETE ON employee_hobby
+    REFERENCING OLD TABLE AS old_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION count_employee_hobby();
+
+DELETE FROM employee_stat WHERE dimension = 'hobby';
+SELECT add_hobby_stats(ARRAY(SELECT h.name::text
+                             FROM employee_hobby eh
+                                      JOIN hobbies h ON h.id = eh.hobby_id), 1);
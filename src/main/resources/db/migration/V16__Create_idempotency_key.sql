@@ -0,0 +1,17 @@
+-- Responses of requests sent with an Idempotency-Key, shared by all instances. status is NULL while the first request
+-- is still being processed; retries then get a 409 instead of running it a second time.
+CREATE TABLE idempotency_key
+(
+    principal       VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    BYTEA        NOT NULL,
+    status          INT,
+    content_type    VARCHAR(255),
+    etag            VARCHAR(255),
+    body            BYTEA,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    PRIMARY KEY (principal, idempotency_key)
+);
+
+-- Serves the cleanup of expired keys
+CREATE INDEX idempotency_key_created_at_idx ON idempotency_key (created_at);
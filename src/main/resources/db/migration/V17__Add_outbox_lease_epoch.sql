@@ -0,0 +1,7 @@
+-- Fencing token of a lease. Every claim draws a new epoch from one sequence, so any lease taken over after a relay
+-- started a batch has a higher epoch than the ones that relay saw. Claiming and marking events checks the epoch, which
+-- stops a relay whose lease expired and changed hands from publishing the partition any further.
+CREATE SEQUENCE outbox_lease_epoch_seq;
+
+ALTER TABLE outbox_lease
+    ADD COLUMN epoch BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,20 @@
+-- Dead-lettered events moved out of expired outbox partitions, so that those partitions can still be dropped. They stay
+-- here until an operator replays or discards them and, like FAILED events in outbox, hold back the later events of their
+-- aggregate.
+CREATE TABLE outbox_dead_letter
+(
+    id             UUID                        NOT NULL PRIMARY KEY,
+    aggregate_id   UUID                        NOT NULL,
+    aggregate_type VARCHAR(255)                NOT NULL,
+    event_type     VARCHAR(255)                NOT NULL,
+    payload        BYTEA                       NOT NULL,
+    event_time     TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    attempts       INT                         NOT NULL,
+    last_error     TEXT,
+    moved_at       TIMESTAMP WITH TIME ZONE    NOT NULL DEFAULT now()
+);
+
+CREATE INDEX outbox_dead_letter_aggregate_idx ON outbox_dead_letter (aggregate_id, event_time);
+
+-- Finds dead-lettered events that hold back later events of the same aggregate
+CREATE INDEX outbox_failed_aggregate_idx ON outbox (aggregate_id, event_time) WHERE status = 'FAILED';
@@ -0,0 +1,21 @@
+-- Hibernate's schema update used to add a unique constraint with a generated name on top of employees_email_key.
+-- Which of the two reports a taken email was arbitrary; the service recognizes the violation by the name of the
+-- constraint, so only employees_email_key is kept.
+DO
+$$
+    DECLARE
+        duplicate RECORD;
+    BEGIN
+        FOR duplicate IN
+            SELECT c.conname
+            FROM pg_constraint c
+                     JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attname = 'email'
+            WHERE c.conrelid = 'employees'::regclass
+              AND c.contype = 'u'
+              AND c.conkey = ARRAY [a.attnum]
+              AND c.conname <> 'employees_email_key'
+            LOOP
+                EXECUTE format('ALTER TABLE employees DROP CONSTRAINT %I', duplicate.conname);
+            END LOOP;
+    END
+$$;
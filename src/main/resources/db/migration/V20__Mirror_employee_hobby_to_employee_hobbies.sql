@@ -0,0 +1,68 @@
+-- Instances of the previous release still read employee_hobbies until they are replaced, so the hobbies written by
+-- this release are mirrored back. Every statement on employee_hobby rewrites the old rows of the employees it touched
+-- in the order of their positions, which is the order of their ids for the previous release.
+--
+-- The two mirrors would trigger each other. A write coming from the other mirror runs one trigger level deeper and is
+-- skipped; so are the deletes cascading from a deleted employee, which both tables do on their own.
+CREATE OR REPLACE FUNCTION mirror_employee_hobbies() RETURNS trigger AS
+$$
+BEGIN
+    IF pg_trigger_depth() > 1 THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO hobbies (name) VALUES (NEW.hobby) ON CONFLICT (name) DO NOTHING;
+        INSERT INTO employee_hobby (employee_id, hobby_id, position)
+        SELECT NEW.employee_id, h.id, NEW.id
+        FROM hobbies h
+        WHERE h.name = NEW.hobby
+          AND NEW.employee_id IS NOT NULL
+        ON CONFLICT (employee_id, hobby_id) DO NOTHING;
+    ELSE
+        DELETE
+        FROM employee_hobby eh USING hobbies h
+        WHERE eh.employee_id = OLD.employee_id
+          AND eh.hobby_id = h.id
+          AND h.name = OLD.hobby;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION mirror_employee_hobby() RETURNS trigger AS
+$$
+BEGIN
+    IF pg_trigger_depth() > 1 THEN
+        RETURN NULL;
+    END IF;
+    DELETE
+    FROM employee_hobbies
+    WHERE employee_id IN (SELECT employee_id FROM changed_hobbies);
+    INSERT INTO employee_hobbies (employee_id, hobby)
+    SELECT eh.employee_id, h.name
+    FROM employee_hobby eh
+             JOIN hobbies h ON h.id = eh.hobby_id
+    WHERE eh.employee_id IN (SELECT employee_id FROM changed_hobbies)
+    ORDER BY eh.employee_id, eh.position;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables allow only one event per trigger
+CREATE TRIGGER employee_hobby_mirror_insert
+    AFTER INSERT ON employee_hobby
+    REFERENCING NEW TABLE AS changed_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION mirror_employee_hobby();
+
+CREATE TRIGGER employee_hobby_mirror_update
+    AFTER UPDATE ON employee_hobby
+    REFERENCING NEW TABLE AS changed_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION mirror_employee_hobby();
+
+CREATE TRIGGER employee_hobby_mirror_delete
+    AFTER DELETE ON employee_hobby
+    REFERENCING OLD TABLE AS changed_hobbies
+    FOR EACH STATEMENT
+EXECUTE FUNCTION mirror_employee_hobby();
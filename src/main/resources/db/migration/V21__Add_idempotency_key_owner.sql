@@ -0,0 +1,12 @@
+-- The request holding a key gets a token of its own, and only that request can complete or release the key. Its
+-- instance keeps moving locked_until ahead while the request runs, so a slow request is never taken over; a key is
+-- only taken over once the instance stopped doing so. A locked_until of infinity marks a request whose response could
+-- not be stored: it may well have run, so the key is never taken over and retries get a 409 until it expires.
+ALTER TABLE idempotency_key
+    ADD COLUMN owner        UUID,
+    ADD COLUMN locked_until TIMESTAMPTZ;
+
+-- Keys claimed before, by requests that will not move locked_until, keep the previous timeout
+UPDATE idempotency_key
+SET locked_until = created_at + INTERVAL '60 seconds'
+WHERE status IS NULL;
@@ -0,0 +1,17 @@
+-- One row per logical outbox partition. The number of rows defines the partition count.
+CREATE TABLE outbox_lease
+(
+    partition_id INT PRIMARY KEY,
+    owner        VARCHAR(255),
+    lease_until  TIMESTAMP WITH TIME ZONE
+);
+
+INSERT INTO outbox_lease (partition_id)
+SELECT generate_series(0, 15);
+
+-- Relay instances that are alive, used to compute each instance's fair share of partitions
+CREATE TABLE outbox_relay_member
+(
+    owner           VARCHAR(255) PRIMARY KEY,
+    heartbeat_until TIMESTAMP WITH TIME ZONE NOT NULL
+);
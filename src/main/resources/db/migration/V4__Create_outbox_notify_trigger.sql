@@ -0,0 +1,14 @@
+-- Wakes up listening outbox relays. Notifications are delivered on commit and deduplicated per transaction.
+CREATE OR REPLACE FUNCTION notify_outbox_event() RETURNS trigger AS
+$$
+BEGIN
+    PERFORM pg_notify('outbox_events', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER outbox_event_notify
+    AFTER INSERT
+    ON outbox
+    FOR EACH STATEMENT
+EXECUTE FUNCTION notify_outbox_event();
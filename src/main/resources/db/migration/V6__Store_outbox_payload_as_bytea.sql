@@ -0,0 +1,3 @@
+-- Payloads are binary encoded by EmployeeEventCodec from now on. Existing text payloads keep their UTF-8 bytes.
+ALTER TABLE outbox
+    ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, 'UTF8');
@@ -0,0 +1,3 @@
+-- Incremented on every change, carried by full-state events and used for optimistic locking
+ALTER TABLE employees
+    ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
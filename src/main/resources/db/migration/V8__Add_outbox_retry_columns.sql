@@ -0,0 +1,12 @@
+ALTER TABLE outbox
+    ADD COLUMN attempts INT DEFAULT 0 NOT NULL;
+ALTER TABLE outbox
+    ADD COLUMN next_attempt_at TIMESTAMP WITHOUT TIME ZONE;
+ALTER TABLE outbox
+    ADD COLUMN last_error TEXT;
+
+-- Finds parked events that hold back later events of the same aggregate
+CREATE INDEX outbox_retry_idx ON outbox (aggregate_id, event_time) WHERE status = 'PENDING' AND next_attempt_at IS NOT NULL;
+
+-- Dead-lettered events, kept for inspection and manual replay
+CREATE INDEX outbox_failed_idx ON outbox (event_time) WHERE status = 'FAILED';
@@ -0,0 +1,2 @@
+-- Loading the hobbies of an employee scanned the whole table, the foreign key has no index of its own
+CREATE INDEX employee_hobbies_employee_id_idx ON employee_hobbies (employee_id);
@@ -0,0 +1,29 @@
+package com.dstolis.employeeapi;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Marks a large data volume test. These only run with {@code ./gradlew largeTest}, against a {@code large_test} schema
+ * of their own that Flyway migrates like the default one, so that the million rows they seed and delete never meet the
+ * data of the default suite. The outbox relay of their contexts only runs once at startup, so that it never drains
+ * the outbox that {@code OutboxRelayLargeTest} relays on its own.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("large")
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:postgresql://localhost:5443/employee?reWriteBatchedInserts=true"
+        + "&currentSchema=large_test,public",
+    "spring.flyway.schemas=large_test",
+    "spring.flyway.default-schema=large_test",
+    "outbox.relay.rebalance-interval-seconds=3600",
+    "outbox.relay.poll-interval-seconds=3600",
+    "outbox.relay.listen.enabled=false"})
+public @interface LargeTest {
+}
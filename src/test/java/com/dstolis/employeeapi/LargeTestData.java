@@ -0,0 +1,64 @@
+package com.dstolis.employeeapi;
+
+import java.time.LocalDate;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Seeds the schema of a {@link LargeTest} with generated employees and hobbies, a few statements for a million rows.
+ */
+public final class LargeTestData {
+
+    /** Names like {@code Employee 42} */
+    public static final String NUMBERED_NAMES = "'Employee ' || g";
+
+    /** Two random hex words, so that a four character substring matches a few hundred employees */
+    public static final String RANDOM_NAMES =
+        "initcap(substr(md5(g::text), 1, 8)) || ' ' || initcap(substr(md5((g * 7)::text), 1, 10))";
+
+    private LargeTestData() {
+    }
+
+    /**
+     * Inserts employees {@code employee1@sample.com} to {@code employee<rows>@sample.com}, with birthdays spread over
+     * about forty years from {@code firstBirthday}.
+     *
+     * @param fullName SQL expression of the name of employee {@code g}, such as {@link #NUMBERED_NAMES}
+     */
+    public static void insertEmployees(final JdbcTemplate jdbcTemplate, final int rows, final String fullName,
+        final LocalDate firstBirthday) {
+        jdbcTemplate.update("""
+            INSERT INTO employees (id, email, full_name, birthday, version)
+            SELECT gen_random_uuid(), 'employee' || g || '@sample.com', %s, CAST(? AS date) + (g %% 15000), 0
+            FROM generate_series(1, ?) g""".formatted(fullName), firstBirthday, rows);
+        jdbcTemplate.execute("ANALYZE employees");
+    }
+
+    /**
+     * Gives every employee two of the hobbies {@code hobby0} to {@code hobby<hobbies - 1>}, picked by a hash of its
+     * id. The second one is {@code stride} hobbies after the first.
+     */
+    public static void insertHobbies(final JdbcTemplate jdbcTemplate, final int hobbies, final int stride) {
+        jdbcTemplate.update("""
+            INSERT INTO hobbies (name)
+            SELECT 'hobby' || g FROM generate_series(0, ? - 1) g
+            ON CONFLICT (name) DO NOTHING""", hobbies);
+        jdbcTemplate.update("""
+            INSERT INTO employee_hobby (employee_id, hobby_id, position)
+            SELECT e.id, h.id, n + 1
+            FROM employees e
+                     CROSS JOIN generate_series(0, 1) n
+                     JOIN hobbies h ON h.name = 'hobby' || ((abs(hashtext(e.id::text)) + n * ?) % ?)""",
+            stride, hobbies);
+        jdbcTemplate.execute("ANALYZE employee_hobby");
+    }
+
+    /**
+     * Deletes the employees, their hobbies and their outbox events; the schema belongs to the large tests alone.
+     */
+    public static void deleteAll(final JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM employee_hobby");
+        jdbcTemplate.update("DELETE FROM employees");
+        jdbcTemplate.update("DELETE FROM outbox");
+    }
+}
@@ -0,0 +1,57 @@
+package com.dstolis.employeeapi;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Latencies of repeated runs of one operation, for the large tests to assert on and log.
+ */
+public final class Latencies {
+
+    private final long[] sortedNanos;
+
+    private Latencies(final long[] nanos) {
+        Arrays.sort(nanos);
+        this.sortedNanos = nanos;
+    }
+
+    /**
+     * Runs the operation {@code warmups} times without measuring it, then {@code runs} times measured. It gets the
+     * index of the run, counted separately for both.
+     */
+    public static Latencies measure(final int warmups, final int runs, final IntConsumer operation) {
+        for (int i = 0; i < warmups; i++) {
+            operation.accept(i);
+        }
+        var nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            operation.accept(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return new Latencies(nanos);
+    }
+
+    /**
+     * @return nanoseconds a single run of the operation took
+     */
+    public static long time(final Runnable operation) {
+        long start = System.nanoTime();
+        operation.run();
+        return System.nanoTime() - start;
+    }
+
+    public long median() {
+        return percentile(50);
+    }
+
+    public long percentile(final int percent) {
+        return sortedNanos[Math.min(sortedNanos.length * percent / 100, sortedNanos.length - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("median %.3f ms, p95 %.3f ms, p99 %.3f ms", median() / 1e6, percentile(95) / 1e6,
+            percentile(99) / 1e6);
+    }
+}
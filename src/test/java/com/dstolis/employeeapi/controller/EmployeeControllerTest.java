@@ -1,17 +1,27 @@
 package com.dstolis.employeeapi.controller;
 
 import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+import java.sql.Date;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
+import javax.sql.DataSource;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -20,6 +30,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 
 import com.dstolis.employeeapi.model.dto.EmployeeDTO;
@@ -38,6 +49,12 @@ class EmployeeControllerTest {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
     @BeforeEach
     public void setup() {
         RestAssured.port = port;
@@ -65,6 +82,180 @@ class EmployeeControllerTest {
             .body("hobbies", is(employeeDTO.hobbies()));
     }
 
+    @Test
+    void testCreateEmployee_WithIdempotencyKey_ShouldReplayResponseOnRetry() {
+        var key = UUID.randomUUID().toString();
+        var employeeDTO = new EmployeeDTO(
+            null, "idempotent@sample.com", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+
+        var created = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("Idempotency-Key", key)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .header("Idempotent-Replayed", nullValue())
+            .extract()
+            .response();
+
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("Idempotency-Key", key)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .header("Idempotent-Replayed", is("true"))
+            .header("ETag", is(created.header("ETag")))
+            .body("id", is(created.jsonPath().getString("id")));
+        assertEquals(1, countOutboxEvents(created.jsonPath().getUUID("id")));
+
+        // The same key for another request does not create a second employee
+        var changedEmployeeDTO = new EmployeeDTO(
+            null, "idempotent-changed@sample.com", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("Idempotency-Key", key)
+            .body(changedEmployeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(422);
+
+        assertEquals(1, employeeRepository.count());
+    }
+
+    @Test
+    void testCreateEmployee_WithIdempotencyKey_ShouldReplayClientErrors() {
+        var key = UUID.randomUUID().toString();
+        var invalidEmployeeDTO = new EmployeeDTO(
+            null, "not-an-email", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+
+        for (var replayed : new String[] {null, "true"}) {
+            given().auth().basic("admin", "admin")
+                .contentType(ContentType.JSON)
+                .header("Idempotency-Key", key)
+                .body(invalidEmployeeDTO)
+                .when()
+                .post("/api/employees")
+                .then()
+                .statusCode(400)
+                .header("Idempotent-Replayed", is(replayed))
+                .body("message", is("Invalid email format"));
+        }
+    }
+
+    @Test
+    void testUpdateEmployee_WithIdempotencyKey_ShouldReplayResponseOnRetry() {
+        var id = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(new EmployeeDTO(null, "idempotent-put@sample.com", "Sample Name", LocalDate.of(1990, 1, 1),
+                List.of("hiking")))
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract()
+            .jsonPath().getUUID("id");
+        var key = UUID.randomUUID().toString();
+        var updatedEmployeeDTO = new EmployeeDTO(
+            null, "idempotent-put@sample.com", "Updated Name",
+            LocalDate.of(1990, 1, 1), List.of("reading")
+        );
+
+        var updated = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("Idempotency-Key", key)
+            .body(updatedEmployeeDTO)
+            .when()
+            .put("/api/employees/" + id)
+            .then()
+            .statusCode(200)
+            .header("Idempotent-Replayed", nullValue())
+            .extract()
+            .response();
+
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("Idempotency-Key", key)
+            .body(updatedEmployeeDTO)
+            .when()
+            .put("/api/employees/" + id)
+            .then()
+            .statusCode(200)
+            .header("Idempotent-Replayed", is("true"))
+            .header("ETag", is(updated.header("ETag")))
+            .body("fullName", is("Updated Name"));
+
+        // One event for the create and one for the update, none for the replay
+        assertEquals(2, countOutboxEvents(id));
+    }
+
+    @Test
+    void testCreateEmployee_WithIdempotencyKey_ShouldRejectRetryWhileFirstRequestRuns() throws Exception {
+        var key = UUID.randomUUID().toString();
+        var employeeDTO = new EmployeeDTO(
+            null, "idempotent-concurrent@sample.com", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+        CompletableFuture<Integer> first;
+        try (var connection = dataSource.getConnection()) {
+            // An uncommitted employee with the same email holds the first request on the unique index
+            connection.setAutoCommit(false);
+            try (var statement = connection.prepareStatement("""
+                INSERT INTO employees (id, email, full_name, birthday, version) VALUES (?, ?, 'Blocking', ?, 0)""")) {
+                statement.setObject(1, UUID.randomUUID());
+                statement.setString(2, employeeDTO.email());
+                statement.setDate(3, Date.valueOf(employeeDTO.birthday()));
+                statement.executeUpdate();
+            }
+
+            first = CompletableFuture.supplyAsync(() -> given().auth().basic("admin", "admin")
+                .contentType(ContentType.JSON)
+                .header("Idempotency-Key", key)
+                .body(employeeDTO)
+                .when()
+                .post("/api/employees")
+                .then()
+                .extract()
+                .statusCode());
+            await().atMost(Duration.ofSeconds(10)).until(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM idempotency_key WHERE idempotency_key = ?", Integer.class, key) == 1);
+
+            given().auth().basic("admin", "admin")
+                .contentType(ContentType.JSON)
+                .header("Idempotency-Key", key)
+                .body(employeeDTO)
+                .when()
+                .post("/api/employees")
+                .then()
+                .statusCode(409);
+
+            connection.rollback();
+        }
+
+        assertEquals(200, first.get());
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("Idempotency-Key", key)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .header("Idempotent-Replayed", is("true"));
+        assertEquals(1, employeeRepository.count());
+    }
+
     @Test
     void testCreateEmployee_ExistingEmail() {
         var initialEmployeeDTO = new EmployeeDTO(
@@ -131,6 +322,95 @@ class EmployeeControllerTest {
             .body("hobbies", is(updatedEmployeeDTO.hobbies()));
     }
 
+    @Test
+    void testGetEmployeeById_WithCurrentETag_ShouldReturnNotModified() {
+        var employeeDTO = new EmployeeDTO(
+            null, "etag@sample.com", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+
+        var id = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract()
+            .path("id");
+
+        var eTag = given()
+            .get("/api/employees/{id}", id)
+            .then()
+            .statusCode(200)
+            .header("ETag", notNullValue())
+            .extract()
+            .header("ETag");
+
+        given()
+            .header("If-None-Match", eTag)
+            .get("/api/employees/{id}", id)
+            .then()
+            .statusCode(304)
+            .header("ETag", is(eTag));
+    }
+
+    @Test
+    void testUpdateEmployee_WithOutdatedIfMatch_ShouldReturnPreconditionFailed() {
+        var employeeDTO = new EmployeeDTO(
+            null, "ifmatch@sample.com", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+
+        var created = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract()
+            .response();
+        var id = created.jsonPath().getUUID("id");
+        var eTag = created.header("ETag");
+
+        var firstUpdate = new EmployeeDTO(
+            null, "ifmatch@sample.com", "First Update",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+        var newETag = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("If-Match", eTag)
+            .body(firstUpdate)
+            .when()
+            .put("/api/employees/" + id)
+            .then()
+            .statusCode(200)
+            .extract()
+            .header("ETag");
+
+        // A second client still holding the first ETag must not overwrite the update
+        var lostUpdate = new EmployeeDTO(
+            null, "ifmatch@sample.com", "Lost Update",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .header("If-Match", eTag)
+            .body(lostUpdate)
+            .when()
+            .put("/api/employees/" + id)
+            .then()
+            .statusCode(412);
+
+        given()
+            .get("/api/employees/{id}", id)
+            .then()
+            .statusCode(200)
+            .header("ETag", is(newETag))
+            .body("fullName", is(firstUpdate.fullName()));
+    }
+
     @Test
     void testUpdateEmployee_NonExistentEmployee() {
         var nonExistentId = UUID.randomUUID();
@@ -201,6 +481,95 @@ class EmployeeControllerTest {
             .body("message", is("Email another@sample.com already exists for a different employee!"));
     }
 
+    @Test
+    void testPatchEmployee_ShouldOnlyChangePatchedFields() {
+        var employeeDTO = new EmployeeDTO(
+            null, "patch@sample.com", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking", "reading")
+        );
+
+        var created = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract()
+            .response();
+        var id = created.jsonPath().getUUID("id");
+
+        given().auth().basic("admin", "admin")
+            .contentType("application/merge-patch+json")
+            .header("If-Match", created.header("ETag"))
+            .body("{\"fullName\": \"Patched Name\"}")
+            .when()
+            .patch("/api/employees/" + id)
+            .then()
+            .statusCode(200)
+            .header("ETag", is("\"1\""))
+            .body("fullName", is("Patched Name"))
+            .body("email", is("patch@sample.com"))
+            .body("hobbies", contains("hiking", "reading"));
+
+        // Sending the same values again changes nothing, so the version stays
+        given().auth().basic("admin", "admin")
+            .contentType("application/merge-patch+json")
+            .body("{\"fullName\": \"Patched Name\", \"hobbies\": [\"hiking\", \"reading\"]}")
+            .when()
+            .patch("/api/employees/" + id)
+            .then()
+            .statusCode(200)
+            .header("ETag", is("\"1\""));
+
+        given()
+            .get("/api/employees/{id}", id)
+            .then()
+            .statusCode(200)
+            .header("ETag", is("\"1\""))
+            .body("fullName", is("Patched Name"))
+            .body("hobbies", contains("hiking", "reading"));
+    }
+
+    @Test
+    void testPatchEmployee_RemovingEmail_ShouldReturnBadRequest() {
+        var employeeDTO = new EmployeeDTO(
+            null, "patchinvalid@sample.com", "Sample Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        );
+
+        var id = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract()
+            .jsonPath()
+            .getUUID("id");
+
+        given().auth().basic("admin", "admin")
+            .contentType("application/merge-patch+json")
+            .body("{\"email\": null}")
+            .when()
+            .patch("/api/employees/" + id)
+            .then()
+            .statusCode(400)
+            .body("message", is("Email is required"));
+    }
+
+    @Test
+    void testPatchEmployee_WithoutCredentials_ShouldReturnUnauthorized() {
+        given()
+            .contentType("application/merge-patch+json")
+            .body("{\"fullName\": \"Patched Name\"}")
+            .when()
+            .patch("/api/employees/" + UUID.randomUUID())
+            .then()
+            .statusCode(401);
+    }
+
     @Test
     void testGetAllEmployees() {
         var employeeDTO = new EmployeeDTO(
@@ -223,6 +592,210 @@ class EmployeeControllerTest {
             .body("$", hasSize(greaterThan(0))); // at least 0 employees
     }
 
+    @Test
+    void testGetEmployees_ShouldPageWithCursor() {
+        for (int i = 0; i < 3; i++) {
+            var employeeDTO = new EmployeeDTO(
+                null, "page" + i + "@sample.com", "Sample Name",
+                LocalDate.of(1990, 1, 1), List.of("hiking")
+            );
+            given().auth().basic("admin", "admin")
+                .contentType(ContentType.JSON)
+                .body(employeeDTO)
+                .when()
+                .post("/api/employees")
+                .then()
+                .statusCode(200);
+        }
+
+        var cursor = given()
+            .queryParam("limit", 2)
+            .get("/api/employees")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(2))
+            .header("Link", containsString("rel=\"next\""))
+            .extract()
+            .header("X-Next-Cursor");
+
+        given()
+            .queryParam("limit", 2)
+            .queryParam("after", cursor)
+            .get("/api/employees")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(1))
+            .header("X-Next-Cursor", nullValue())
+            .header("Link", nullValue());
+    }
+
+    @Test
+    void testGetEmployees_WithInvalidCursor_ShouldReturnBadRequest() {
+        given()
+            .queryParam("after", "not-a-cursor")
+            .get("/api/employees")
+            .then()
+            .statusCode(400)
+            .body("path", is("/api/employees"));
+    }
+
+    @Test
+    void testSearchEmployees_ShouldCombineFilters() {
+        var employees = List.of(
+            new EmployeeDTO(null, "anna@sample.com", "Anna Smithson", LocalDate.of(1985, 6, 1), List.of("chess")),
+            new EmployeeDTO(null, "bob@sample.com", "Bob Smith", LocalDate.of(1992, 3, 4), List.of("chess", "golf")),
+            new EmployeeDTO(null, "carl@sample.com", "Carl Smith", LocalDate.of(1993, 7, 8), List.of("golf"))
+        );
+        employees.forEach(employeeDTO -> given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200));
+
+        given()
+            .queryParam("name", "smith")
+            .queryParam("birthdayFrom", "1990-01-01")
+            .queryParam("hobby", "chess")
+            .get("/api/employees/search")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(1))
+            .body("[0].email", is("bob@sample.com"));
+
+        given()
+            .queryParam("name", "SMITH")
+            .get("/api/employees/search")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(3));
+    }
+
+    @Test
+    void testSearchEmployees_WithTooShortName_ShouldReturnBadRequest() {
+        given()
+            .queryParam("name", "sm")
+            .get("/api/employees/search")
+            .then()
+            .statusCode(400)
+            .body("path", is("/api/employees/search"));
+    }
+
+    @Test
+    void testGetUpcomingBirthdays_ShouldWrapAroundYearEndAndPage() {
+        List.of(
+            new EmployeeDTO(null, "jan@sample.com", "January Born", LocalDate.of(1985, 1, 2), List.of()),
+            new EmployeeDTO(null, "dec@sample.com", "December Born", LocalDate.of(1992, 12, 31), List.of()),
+            new EmployeeDTO(null, "jun@sample.com", "June Born", LocalDate.of(1993, 6, 1), List.of())
+        ).forEach(employeeDTO -> given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employeeDTO)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200));
+
+        var nextCursor = given()
+            .queryParam("from", "2023-12-30")
+            .queryParam("days", 5)
+            .queryParam("limit", 1)
+            .get("/api/employees/birthdays")
+            .then()
+            .statusCode(200)
+            .body("email", contains("dec@sample.com"))
+            .extract().header(EmployeeController.NEXT_CURSOR_HEADER);
+
+        given()
+            .queryParam("from", "2023-12-30")
+            .queryParam("days", 5)
+            .queryParam("limit", 1)
+            .queryParam("after", nextCursor)
+            .get("/api/employees/birthdays")
+            .then()
+            .statusCode(200)
+            .body("email", contains("jan@sample.com"))
+            .header(EmployeeController.NEXT_CURSOR_HEADER, nullValue());
+    }
+
+    @Test
+    void testGetUpcomingBirthdays_InCommonYear_ShouldCelebrateFebruary29OnFebruary28() {
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(new EmployeeDTO(null, "leap@sample.com", "Leap Born", LocalDate.of(1996, 2, 29), List.of()))
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200);
+
+        given()
+            .queryParam("from", "2023-02-28")
+            .queryParam("days", 0)
+            .get("/api/employees/birthdays")
+            .then()
+            .statusCode(200)
+            .body("email", contains("leap@sample.com"));
+
+        given()
+            .queryParam("from", "2024-02-28")
+            .queryParam("days", 0)
+            .get("/api/employees/birthdays")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(0));
+    }
+
+    @Test
+    void testUpsertEmployees_ShouldReportEveryItem() {
+        var id = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(new EmployeeDTO(null, "existing@sample.com", "Old Name", LocalDate.of(1990, 1, 1), List.of()))
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract()
+            .path("id");
+
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(List.of(
+                new EmployeeDTO(null, "new@sample.com", "New Name", LocalDate.of(1991, 2, 3), List.of("golf")),
+                new EmployeeDTO(null, "existing@sample.com", "New Name", LocalDate.of(1990, 1, 1), List.of("chess")),
+                new EmployeeDTO(null, "not-an-email", "Invalid Email", LocalDate.of(1992, 3, 4), List.of()),
+                new EmployeeDTO(null, "new@sample.com", "Repeated Email", LocalDate.of(1993, 4, 5), List.of())
+            ))
+            .when()
+            .post("/api/employees/batch")
+            .then()
+            .statusCode(200)
+            .body("index", contains(0, 1, 2, 3))
+            .body("status", contains("CREATED", "UPDATED", "REJECTED", "REJECTED"))
+            .body("[0].employee.id", notNullValue())
+            .body("[1].employee.id", is(id))
+            .body("[1].employee.fullName", is("New Name"))
+            .body("[1].employee.version", is(1))
+            .body("[2].error", is("Invalid email format"))
+            .body("[3].error", is("Email new@sample.com appears more than once in the batch"));
+
+        given()
+            .get("/api/employees/{id}", id)
+            .then()
+            .statusCode(200)
+            .body("hobbies", contains("chess"));
+    }
+
+    @Test
+    void testUpsertEmployees_WithoutCredentials_ShouldReturnUnauthorized() {
+        given()
+            .contentType(ContentType.JSON)
+            .body(List.of(new EmployeeDTO(null, "new@sample.com", "New Name", LocalDate.of(1991, 2, 3), List.of())))
+            .when()
+            .post("/api/employees/batch")
+            .then()
+            .statusCode(401);
+    }
+
     @Test
     void testGetEmployeeById() {
         var employeeDTO = new EmployeeDTO(
@@ -314,4 +887,9 @@ class EmployeeControllerTest {
             )
         );
     }
+
+    private int countOutboxEvents(final UUID employeeId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM outbox WHERE aggregate_id = ?", Integer.class,
+            employeeId);
+    }
 }
@@ -0,0 +1,152 @@
+package com.dstolis.employeeapi.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.restassured.RestAssured;
+
+/**
+ * Exports employees inserted with plain SQL, so that the test only ever touches its own rows and leaves the caches and
+ * the hobby index of the shared context alone.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(partitions = 1, brokerProperties = {"listeners=PLAINTEXT://localhost:9092", "port=9092"})
+class EmployeeExportControllerTest {
+
+    private static final String EMAIL_PREFIX = "export-test-";
+
+    // More than the socket buffers of both ends hold, so that a client which stops reading blocks the export
+    private static final int MANY_ROWS = 200_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup() {
+        RestAssured.port = port;
+        cleanup();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM employee_hobby WHERE employee_id IN "
+            + "(SELECT id FROM employees WHERE email LIKE ?)", EMAIL_PREFIX + '%');
+        jdbcTemplate.update("DELETE FROM employees WHERE email LIKE ?", EMAIL_PREFIX + '%');
+    }
+
+    @Test
+    void testExportEmployees_ShouldStreamOneEmployeePerLine() {
+        insertEmployees(3);
+        jdbcTemplate.update("INSERT INTO hobbies (name) VALUES ('hiking'), ('reading') ON CONFLICT (name) DO NOTHING");
+        jdbcTemplate.update("""
+            INSERT INTO employee_hobby (employee_id, hobby_id, position)
+            SELECT e.id, h.id, CASE h.name WHEN 'reading' THEN 1 ELSE 2 END
+            FROM employees e
+                     JOIN hobbies h ON h.name IN ('hiking', 'reading')
+            WHERE e.email = ?""", EMAIL_PREFIX + "1@sample.com");
+
+        // Act
+        var body = given()
+            .when()
+            .get("/api/employees/export")
+            .then()
+            .statusCode(200)
+            .contentType("application/x-ndjson")
+            // Streamed in chunks rather than buffered to learn its length
+            .header("Content-Length", nullValue())
+            .extract().asString();
+
+        // Assert
+        assertTrue(body.endsWith("\n"), "Every line must be terminated");
+        var exported = body.lines()
+            .map(this::readEmployee)
+            .filter(employee -> employee.email().startsWith(EMAIL_PREFIX))
+            .toList();
+        assertEquals(List.of(EMAIL_PREFIX + "1@sample.com", EMAIL_PREFIX + "2@sample.com",
+            EMAIL_PREFIX + "3@sample.com"), exported.stream().map(EmployeeDTO::email).sorted().toList());
+        exported.forEach(employee -> assertEquals(
+            employee.email().equals(EMAIL_PREFIX + "1@sample.com") ? List.of("reading", "hiking") : List.of(),
+            employee.hobbies(), "Hobbies of " + employee.email()));
+        // Postgres orders UUIDs by their bytes, which matches the order of their text form
+        var ids = exported.stream().map(employee -> employee.id().toString()).toList();
+        assertEquals(ids.stream().sorted().toList(), ids, "Employees must be exported in id order");
+    }
+
+    @Test
+    void testExportEmployees_WhenClientAborts_ShouldCloseCursor() throws Exception {
+        insertEmployees(MANY_ROWS);
+
+        try (var socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", port));
+            // Act
+            socket.getOutputStream().write("""
+                GET /api/employees/export HTTP/1.1\r
+                Host: localhost\r
+                Connection: close\r
+                \r
+                """.getBytes(StandardCharsets.US_ASCII));
+            var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            var statusLine = reader.readLine();
+            assertTrue(statusLine.startsWith("HTTP/1.1 200"), statusLine);
+
+            // The client stops reading, so the export waits for the socket with its cursor open
+            await().atMost(Duration.ofSeconds(10)).until(() -> openExportCursors() == 1);
+        }
+
+        // Assert: closing the socket aborts the export, which has to end its transaction and hand back the connection
+        await().atMost(Duration.ofSeconds(30)).until(() -> openExportCursors() == 0);
+    }
+
+    private void insertEmployees(final int count) {
+        jdbcTemplate.update("""
+            INSERT INTO employees (id, email, full_name, birthday, version)
+            SELECT gen_random_uuid(), ?::text || g || '@sample.com', 'Employee ' || g,
+                   DATE '1970-01-01' + (g % 15000), 0
+            FROM generate_series(1, ?) g""", EMAIL_PREFIX, count);
+    }
+
+    private int openExportCursors() {
+        return jdbcTemplate.queryForObject("""
+            SELECT count(*) FROM pg_stat_activity
+            WHERE pid <> pg_backend_pid() AND state <> 'idle'
+              AND query LIKE '%array_agg(h.name ORDER BY eh.position)%'""", Integer.class);
+    }
+
+    private EmployeeDTO readEmployee(final String line) {
+        try {
+            return objectMapper.readValue(line, EmployeeDTO.class);
+        } catch (Exception e) {
+            throw new AssertionError("Not an employee: " + line, e);
+        }
+    }
+}
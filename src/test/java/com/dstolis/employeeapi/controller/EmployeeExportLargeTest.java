@@ -0,0 +1,78 @@
+package com.dstolis.employeeapi.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exports a million employees. Run with {@code ./gradlew largeTest}, which limits the heap to a fraction of what the
+ * materialized directory would need, so the test only passes if the export really streams.
+ */
+@LargeTest
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class EmployeeExportLargeTest {
+
+    private static final int ROWS = 1_000_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup() {
+        cleanup();
+        LargeTestData.insertEmployees(jdbcTemplate, ROWS, LargeTestData.NUMBERED_NAMES, LocalDate.of(1970, 1, 1));
+        LargeTestData.insertHobbies(jdbcTemplate, 2, 1);
+    }
+
+    @AfterEach
+    void cleanup() {
+        LargeTestData.deleteAll(jdbcTemplate);
+    }
+
+    @Test
+    void testExportEmployees_ShouldStreamEveryEmployee() throws Exception {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/employees/export")).build();
+        var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-ndjson", response.headers().firstValue("Content-Type").orElseThrow());
+
+        int lines = 0;
+        try (var reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                var employee = objectMapper.readValue(line, EmployeeDTO.class);
+                assertEquals(List.of("hobby0", "hobby1"), employee.hobbies().stream().sorted().toList());
+                lines++;
+            }
+        }
+        assertEquals(ROWS, lines);
+    }
+}
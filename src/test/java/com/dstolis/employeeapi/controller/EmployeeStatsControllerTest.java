@@ -0,0 +1,124 @@
+package com.dstolis.employeeapi.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.repository.EmployeeRepository;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(partitions = 1, brokerProperties = {"listeners=PLAINTEXT://localhost:9092", "port=9092"})
+class EmployeeStatsControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @BeforeEach
+    public void setup() {
+        RestAssured.port = port;
+        employeeRepository.deleteAll();
+    }
+
+    @Test
+    void testGetStats_ShouldFollowCreateUpdateAndDelete() {
+        var alice = createEmployee(new EmployeeDTO(null, "alice@sample.com", "Alice", LocalDate.of(1990, 3, 14),
+            List.of("hiking", "reading")));
+        createEmployee(new EmployeeDTO(null, "bob@sample.com", "Bob", LocalDate.of(1991, 3, 1), List.of("hiking")));
+
+        given()
+            .when()
+            .get("/api/employees/stats")
+            .then()
+            .statusCode(200)
+            .body("headcount", is(2))
+            .body("birthMonths.'3'", is(2))
+            .body("topHobbies.hobby", contains("hiking", "reading"))
+            .body("topHobbies.count", contains(2, 1));
+
+        given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(new EmployeeDTO(null, "alice@sample.com", "Alice", LocalDate.of(1990, 7, 14), List.of("chess")))
+            .when()
+            .put("/api/employees/" + alice)
+            .then()
+            .statusCode(200);
+
+        given()
+            .when()
+            .get("/api/employees/stats")
+            .then()
+            .statusCode(200)
+            .body("headcount", is(2))
+            .body("birthMonths.'3'", is(1))
+            .body("birthMonths.'7'", is(1))
+            .body("topHobbies.hobby", contains("chess", "hiking"));
+
+        given().auth().basic("admin", "admin")
+            .when()
+            .delete("/api/employees/" + alice)
+            .then()
+            .statusCode(204);
+
+        var bobDecade = (Year.now().getValue() - 1991) / 10 * 10;
+        given()
+            .when()
+            .get("/api/employees/stats")
+            .then()
+            .statusCode(200)
+            .body("headcount", is(1))
+            .body("birthMonths.'7'", nullValue())
+            .body("topHobbies.hobby", contains("hiking"))
+            .body("ageGroups.'" + bobDecade + "-" + (bobDecade + 9) + "'", is(1));
+    }
+
+    @Test
+    void testRebuildStats_ShouldRequireAuthenticationAndKeepCounts() {
+        createEmployee(new EmployeeDTO(null, "alice@sample.com", "Alice", LocalDate.of(1990, 3, 14),
+            List.of("hiking")));
+
+        given()
+            .when()
+            .post("/api/employees/stats/rebuild")
+            .then()
+            .statusCode(401);
+
+        given().auth().basic("admin", "admin")
+            .when()
+            .post("/api/employees/stats/rebuild")
+            .then()
+            .statusCode(200)
+            .body("headcount", is(1))
+            .body("birthMonths.'3'", is(1))
+            .body("topHobbies.hobby", contains("hiking"));
+    }
+
+    private static String createEmployee(final EmployeeDTO employee) {
+        return given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employee)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract().path("id");
+    }
+}
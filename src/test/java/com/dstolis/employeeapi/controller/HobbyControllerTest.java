@@ -0,0 +1,127 @@
+package com.dstolis.employeeapi.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.repository.EmployeeRepository;
+import com.dstolis.employeeapi.service.HobbyIndex;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(partitions = 1, brokerProperties = {"listeners=PLAINTEXT://localhost:9092", "port=9092"})
+class HobbyControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private HobbyIndex hobbyIndex;
+
+    @BeforeEach
+    public void setup() {
+        RestAssured.port = port;
+        employeeRepository.deleteAll();
+        // Deleting through the repository bypasses the index
+        hobbyIndex.rebuild();
+    }
+
+    @Test
+    void testCountEmployeesByHobby_ShouldFollowWrites() {
+        var alice = createEmployee("alice@sample.com", List.of("hiking", "reading"));
+        createEmployee("bob@sample.com", List.of("hiking"));
+
+        given()
+            .when()
+            .get("/api/hobbies")
+            .then()
+            .statusCode(200)
+            .body("hobby", contains("hiking", "reading"))
+            .body("count", contains(2, 1));
+
+        given().auth().basic("admin", "admin")
+            .when()
+            .delete("/api/employees/" + alice)
+            .then()
+            .statusCode(204);
+
+        given()
+            .when()
+            .get("/api/hobbies")
+            .then()
+            .statusCode(200)
+            .body("hobby", contains("hiking"))
+            .body("count", contains(1));
+    }
+
+    @Test
+    void testFindEmployees_ShouldIntersectAndShareHobbies() {
+        var alice = createEmployee("alice@sample.com", List.of("hiking", "reading"));
+        var bob = createEmployee("bob@sample.com", List.of("hiking"));
+        var carol = createEmployee("carol@sample.com", List.of("reading", "chess"));
+
+        given()
+            .queryParam("hobby", "hiking", "reading")
+            .when()
+            .get("/api/hobbies/employees")
+            .then()
+            .statusCode(200)
+            .body("count", is(1))
+            .body("employeeIds", contains(alice.toString()));
+
+        given()
+            .when()
+            .get("/api/hobbies/shared-with/" + carol)
+            .then()
+            .statusCode(200)
+            .body("count", is(1))
+            .body("employeeIds", contains(alice.toString()));
+
+        given()
+            .queryParam("limit", 1)
+            .when()
+            .get("/api/hobbies/shared-with/" + alice)
+            .then()
+            .statusCode(200)
+            .body("count", is(2))
+            .body("employeeIds", hasSize(1));
+
+        given()
+            .queryParam("limit", 0)
+            .when()
+            .get("/api/hobbies/shared-with/" + bob)
+            .then()
+            .statusCode(400);
+    }
+
+    private UUID createEmployee(final String email, final List<String> hobbies) {
+        var employee = new EmployeeDTO(null, email, "Sample Name", LocalDate.of(1990, 1, 1), hobbies);
+        var id = given().auth().basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(employee)
+            .when()
+            .post("/api/employees")
+            .then()
+            .statusCode(200)
+            .extract().path("id");
+        return UUID.fromString(id.toString());
+    }
+}
@@ -0,0 +1,152 @@
+package com.dstolis.employeeapi.controller.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.dstolis.employeeapi.service.IdempotencyStore;
+import com.dstolis.employeeapi.service.IdempotencyStore.Claim;
+import com.dstolis.employeeapi.service.IdempotencyStore.State;
+import com.dstolis.employeeapi.service.IdempotencyStore.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    private static final String KEY = "filter-test";
+
+    private static final String BODY = "{\"email\":\"filter@sample.com\"}";
+
+    private final UUID owner = UUID.randomUUID();
+
+    private IdempotencyFilter idempotencyFilter;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Captor
+    private ArgumentCaptor<StoredResponse> responseCaptor;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setup() {
+        idempotencyFilter = new IdempotencyFilter(idempotencyStore, new ObjectMapper());
+        request = new MockHttpServletRequest("POST", "/api/employees");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, KEY);
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        response = new MockHttpServletResponse();
+        when(idempotencyStore.claim(eq(""), eq(KEY), any())).thenReturn(new Claim(State.ACQUIRED, owner, null));
+    }
+
+    @Test
+    void doFilter_withSuccessfulResponse_shouldCompleteTheKey() throws Exception {
+        // When
+        idempotencyFilter.doFilter(request, response, (req, res) -> {
+            ((HttpServletResponse) res).setStatus(201);
+            res.getOutputStream().write(req.getInputStream().readAllBytes());
+        });
+
+        // Then
+        verify(idempotencyStore).complete(eq(""), eq(KEY), eq(owner), any(), responseCaptor.capture());
+        verify(idempotencyStore, never()).release(any(), any(), any());
+        assertEquals(201, responseCaptor.getValue().status());
+        assertEquals(BODY, new String(responseCaptor.getValue().body(), StandardCharsets.UTF_8));
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    void doFilter_withServerError_shouldReleaseTheKey() throws Exception {
+        // When
+        idempotencyFilter.doFilter(request, response, (req, res) -> ((HttpServletResponse) res).setStatus(503));
+
+        // Then
+        verify(idempotencyStore).release("", KEY, owner);
+        verify(idempotencyStore, never()).complete(any(), any(), any(), any(), any());
+        assertEquals(503, response.getStatus());
+    }
+
+    @Test
+    void doFilter_whenChainThrows_shouldReleaseTheKeyAndRethrow() {
+        // Given
+        FilterChain failingChain = (req, res) -> {
+            throw new IllegalStateException("Failed");
+        };
+
+        // When
+        assertThrows(IllegalStateException.class, () -> idempotencyFilter.doFilter(request, response, failingChain));
+
+        // Then
+        verify(idempotencyStore).release("", KEY, owner);
+        verify(idempotencyStore, never()).complete(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void doFilter_withReadListener_shouldHandOverTheWholeBody() throws Exception {
+        // Given
+        var read = new ByteArrayOutputStream();
+        var allDataRead = new boolean[1];
+
+        // When
+        idempotencyFilter.doFilter(request, response, (req, res) -> {
+            var in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    readReady(in, read);
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead[0] = true;
+                }
+
+                @Override
+                public void onError(final Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+        });
+
+        // Then
+        assertEquals(BODY, read.toString(StandardCharsets.UTF_8));
+        assertTrue(allDataRead[0]);
+    }
+
+    private static void readReady(final ServletInputStream in, final ByteArrayOutputStream read) throws IOException {
+        var buffer = new byte[8];
+        while (in.isReady() && !in.isFinished()) {
+            int n = in.read(buffer);
+            if (n > 0) {
+                read.write(buffer, 0, n);
+            }
+        }
+    }
+}
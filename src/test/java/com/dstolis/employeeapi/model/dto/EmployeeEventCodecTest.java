@@ -0,0 +1,55 @@
+package com.dstolis.employeeapi.model.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class EmployeeEventCodecTest {
+
+    @ParameterizedTest
+    @EnumSource(EmployeeEvent.EventType.class)
+    void encodeDecode_shouldRoundTrip(EmployeeEvent.EventType type) {
+        var event = new EmployeeEvent(UUID.randomUUID(), type);
+
+        var payload = EmployeeEventCodec.encode(event);
+
+        assertEquals(18, payload.length);
+        assertEquals(EmployeeEventCodec.VERSION_1, payload[0]);
+        assertEquals(event, EmployeeEventCodec.decode(payload));
+    }
+
+    @Test
+    void encodeDecode_withFullState_shouldRoundTrip() {
+        var id = UUID.randomUUID();
+        var employee = new EmployeeDTO(id, "jane@example.com", "Jane Doe", LocalDate.of(1992, 2, 29),
+            List.of("yoga", "schwimmen über 5 km"), 7L);
+        var event = new EmployeeEvent(id, EmployeeEvent.EventType.UPDATED, 7L, employee);
+
+        var payload = EmployeeEventCodec.encode(event);
+
+        assertEquals(EmployeeEventCodec.VERSION_2, payload[0]);
+        assertEquals(event, EmployeeEventCodec.decode(payload));
+    }
+
+    @Test
+    void decode_whenVersionIsUnknown_shouldFail() {
+        var payload = EmployeeEventCodec.encode(new EmployeeEvent(UUID.randomUUID(), EmployeeEvent.EventType.CREATED));
+        payload[0] = 42;
+
+        assertThrows(IllegalArgumentException.class, () -> EmployeeEventCodec.decode(payload));
+    }
+
+    @Test
+    void decode_whenPayloadIsLegacyText_shouldFail() {
+        var payload = new EmployeeEvent(UUID.randomUUID(), EmployeeEvent.EventType.CREATED).toString().getBytes();
+
+        assertThrows(IllegalArgumentException.class, () -> EmployeeEventCodec.decode(payload));
+    }
+}
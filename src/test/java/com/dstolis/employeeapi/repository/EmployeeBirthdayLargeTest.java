@@ -0,0 +1,84 @@
+package com.dstolis.employeeapi.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.Latencies;
+import com.dstolis.employeeapi.service.EmployeeService;
+
+/**
+ * Looks up upcoming birthdays among a million employees. Checks the plan of the page query for the
+ * {@code birth_mmdd} index, logs the latency of a window across the end of the year and asserts that its median
+ * stays below 10 ms. Run with {@code ./gradlew largeTest}.
+ */
+@LargeTest
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EmployeeBirthdayLargeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeBirthdayLargeTest.class);
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int RUNS = 50;
+
+    private static final long MAX_MEDIAN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void setup() {
+        cleanup();
+        LargeTestData.insertEmployees(jdbcTemplate, ROWS, LargeTestData.NUMBERED_NAMES, LocalDate.of(1960, 1, 1));
+    }
+
+    @AfterAll
+    void cleanup() {
+        LargeTestData.deleteAll(jdbcTemplate);
+    }
+
+    @Test
+    void upcomingBirthdays_shouldUseTheMonthDayIndex() {
+        var parameters = Map.<String, Object>of("fromMonthDay", 1228, "toMonthDay", 1231, "afterMonthDay", 0,
+            "afterId", new UUID(0, 0), "limit", 101);
+        var plan = String.join("\n", new NamedParameterJdbcTemplate(jdbcTemplate).queryForList(
+            "EXPLAIN " + EmployeeQueryRepositoryImpl.BIRTHDAY_PAGE_QUERY, parameters, String.class));
+
+        assertTrue(plan.contains("employees_birth_mmdd_idx"), plan);
+        // The hobbies of the page may well be read with a sequential scan, the few hobbies fit in one page
+        assertFalse(plan.contains("Seq Scan on employees"), plan);
+    }
+
+    @Test
+    void upcomingBirthdays_acrossEndOfYear_shouldAnswerWithinTenMilliseconds() {
+        var from = LocalDate.of(2023, 12, 28);
+        var latencies = Latencies.measure(5, RUNS,
+            i -> assertEquals(100, employeeService.getUpcomingBirthdays(from, 7, null, 100).employees().size()));
+
+        LOGGER.info("Upcoming birthdays: {}", latencies);
+        assertTrue(latencies.median() < MAX_MEDIAN_NANOS, "Upcoming birthdays: " + latencies);
+    }
+}
@@ -0,0 +1,46 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.dstolis.employeeapi.service.BirthdayWindow.Range;
+
+class BirthdayWindowTest {
+
+    @Test
+    void of_withinOneYear_shouldReturnOneRange() {
+        assertEquals(List.of(new Range(614, 621)), BirthdayWindow.of(LocalDate.of(2023, 6, 14), 7));
+        assertEquals(List.of(new Range(614, 614)), BirthdayWindow.of(LocalDate.of(2023, 6, 14), 0));
+    }
+
+    @Test
+    void of_acrossEndOfYear_shouldSplitIntoTwoRanges() {
+        assertEquals(List.of(new Range(1228, 1231), new Range(101, 104)),
+            BirthdayWindow.of(LocalDate.of(2023, 12, 28), 7));
+    }
+
+    @Test
+    void of_endingOnFebruary28OfCommonYear_shouldIncludeFebruary29() {
+        assertEquals(List.of(new Range(221, 229)), BirthdayWindow.of(LocalDate.of(2023, 2, 21), 7));
+        assertEquals(List.of(new Range(1231, 1231), new Range(101, 229)),
+            BirthdayWindow.of(LocalDate.of(2022, 12, 31), 59));
+    }
+
+    @Test
+    void of_endingOnFebruary28OfLeapYear_shouldLeaveFebruary29ForTheNextDay() {
+        assertEquals(List.of(new Range(221, 228)), BirthdayWindow.of(LocalDate.of(2024, 2, 21), 7));
+        assertEquals(List.of(new Range(229, 301)), BirthdayWindow.of(LocalDate.of(2024, 2, 29), 1));
+    }
+
+    @Test
+    void of_withInvalidDays_shouldThrow() {
+        assertThrows(InvalidRequestException.class, () -> BirthdayWindow.of(LocalDate.of(2023, 6, 14), -1));
+        assertThrows(InvalidRequestException.class, () -> BirthdayWindow.of(LocalDate.of(2023, 6, 14), 365));
+    }
+}
@@ -0,0 +1,80 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.Latencies;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+
+/**
+ * Creates the same number of employees one by one and through batches, logs the rows per second of both and
+ * asserts that batches are at least ten times faster. Run with {@code ./gradlew largeTest}.
+ */
+@LargeTest
+@SpringBootTest
+class EmployeeBatchLargeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeBatchLargeTest.class);
+
+    private static final int ROWS = 5_000;
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private static final double MIN_SPEEDUP = 10;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeBatchService employeeBatchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void cleanup() {
+        LargeTestData.deleteAll(jdbcTemplate);
+    }
+
+    @Test
+    void upsertEmployees_shouldBeTenTimesFasterThanSingleCreates() {
+        var single = employees("single");
+        long singleNanos = Latencies.time(() -> single.forEach(employeeService::createEmployee));
+        double singleRowsPerSecond = ROWS / (singleNanos / 1e9);
+
+        var batched = employees("batched");
+        long batchedNanos = Latencies.time(() -> {
+            for (int i = 0; i < ROWS; i += BATCH_SIZE) {
+                employeeBatchService.upsertEmployees(batched.subList(i, i + BATCH_SIZE));
+            }
+        });
+        double batchedRowsPerSecond = ROWS / (batchedNanos / 1e9);
+
+        double speedup = batchedRowsPerSecond / singleRowsPerSecond;
+        LOGGER.info("Create employees: single {} rows/s, batched {} rows/s, speedup {}",
+            Math.round(singleRowsPerSecond), Math.round(batchedRowsPerSecond), String.format("%.1fx", speedup));
+        assertTrue(speedup >= MIN_SPEEDUP, "Batches were only " + speedup + " times faster");
+    }
+
+    private static List<EmployeeDTO> employees(final String prefix) {
+        return IntStream.range(0, ROWS)
+            .mapToObj(i -> new EmployeeDTO(null, prefix + i + "@sample.com", "Employee " + i,
+                LocalDate.of(1960, 1, 1).plusDays(i % 15000), List.of("hobby" + i % 20, "hobby" + i % 7)))
+            .toList();
+    }
+}
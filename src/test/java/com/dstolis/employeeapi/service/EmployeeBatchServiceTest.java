@@ -0,0 +1,150 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.dstolis.employeeapi.model.dto.EmployeeBatchResult;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.entity.Employee;
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+import com.dstolis.employeeapi.repository.EmployeeCommandRepository;
+import com.dstolis.employeeapi.repository.EmployeeRepository;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeBatchServiceTest {
+
+    private EmployeeBatchService employeeBatchService;
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private HobbyIndex hobbyIndex;
+
+    @Captor
+    private ArgumentCaptor<List<Employee>> employeesCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<OutboxEvent>> outboxEventsCaptor;
+
+    @BeforeEach
+    void setup() {
+        var validator = Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()
+            .getValidator();
+        employeeBatchService = new EmployeeBatchService(employeeRepository, outboxRepository,
+            new OutboxEventFactory(false), new EmployeeCache(new SimpleMeterRegistry(), 100, 60), hobbyIndex,
+            validator, 3);
+    }
+
+    @Test
+    void testUpsertEmployees_ShouldCreateUpdateAndRejectPerItem() {
+        // Given
+        var existingId = UUID.randomUUID();
+        upsertExisting(Map.of("existing@example.com", existingId));
+
+        // When
+        var results = employeeBatchService.upsertEmployees(List.of(
+            new EmployeeDTO(null, "new@example.com", "New Name", LocalDate.of(1991, 2, 3), List.of("golf")),
+            new EmployeeDTO(null, "existing@example.com", "New Name", LocalDate.of(1990, 1, 1), List.of("chess")),
+            new EmployeeDTO(null, "new@example.com", "Again", LocalDate.of(1991, 2, 3), List.of())
+        ));
+
+        // Then
+        assertEquals(EmployeeBatchResult.Status.CREATED, results.get(0).status());
+        assertEquals("new@example.com", results.get(0).employee().email());
+        assertEquals(0L, results.get(0).employee().version());
+        assertEquals(EmployeeBatchResult.Status.UPDATED, results.get(1).status());
+        assertEquals(existingId, results.get(1).employee().id());
+        assertEquals("New Name", results.get(1).employee().fullName());
+        assertEquals(4L, results.get(1).employee().version());
+        assertEquals(EmployeeBatchResult.Status.REJECTED, results.get(2).status());
+        assertEquals(2, results.get(2).index());
+
+        verify(employeeRepository, times(1)).upsertAll(employeesCaptor.capture());
+        assertEquals(List.of("new@example.com", "existing@example.com"),
+            employeesCaptor.getValue().stream().map(Employee::getEmail).toList());
+        verify(outboxRepository, times(1)).saveAll(outboxEventsCaptor.capture());
+        assertEquals(List.of("CREATED", "UPDATED"),
+            outboxEventsCaptor.getValue().stream().map(OutboxEvent::getEventType).toList());
+        verify(hobbyIndex, times(1)).putAfterCommit(existingId, List.of("chess"));
+    }
+
+    @Test
+    void testUpsertEmployees_WithInvalidItem_ShouldOnlyRejectThatItem() {
+        // Given
+        upsertExisting(Map.of());
+
+        // When
+        var results = employeeBatchService.upsertEmployees(List.of(
+            new EmployeeDTO(null, "not-an-email", "", LocalDate.of(1991, 2, 3), List.of()),
+            new EmployeeDTO(null, "valid@example.com", "Valid Name", LocalDate.of(1991, 2, 3), List.of())
+        ));
+
+        // Then
+        assertEquals(EmployeeBatchResult.Status.REJECTED, results.get(0).status());
+        assertEquals("Full name is required, Invalid email format", results.get(0).error());
+        assertEquals(EmployeeBatchResult.Status.CREATED, results.get(1).status());
+    }
+
+    @Test
+    void testUpsertEmployees_WithOnlyInvalidItems_ShouldNotWrite() {
+        var results = employeeBatchService.upsertEmployees(List.of(
+            new EmployeeDTO(null, "not-an-email", "Invalid Email", LocalDate.of(1991, 2, 3), List.of())));
+
+        assertEquals(EmployeeBatchResult.Status.REJECTED, results.get(0).status());
+        verify(employeeRepository, never()).upsertAll(anyList());
+    }
+
+    @Test
+    void testUpsertEmployees_WithEmptyOrTooLargeBatch_ShouldThrow() {
+        var employee = new EmployeeDTO(null, "valid@example.com", "Valid Name", LocalDate.of(1991, 2, 3), List.of());
+
+        assertThrows(InvalidRequestException.class, () -> employeeBatchService.upsertEmployees(List.of()));
+        assertThrows(InvalidRequestException.class,
+            () -> employeeBatchService.upsertEmployees(List.of(employee, employee, employee, employee)));
+    }
+
+    /**
+     * Employees with one of the given emails are updated to version 4, the others are created with the given id.
+     */
+    private void upsertExisting(final Map<String, UUID> existingIds) {
+        when(employeeRepository.upsertAll(anyList())).thenAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            return employees.stream()
+                .map(employee -> existingIds.containsKey(employee.getEmail())
+                    ? new EmployeeCommandRepository.UpsertResult(existingIds.get(employee.getEmail()), 4L, false)
+                    : new EmployeeCommandRepository.UpsertResult(employee.getId(), 0L, true))
+                .toList();
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.dstolis.employeeapi.service;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import com.dstolis.employeeapi.EmployeeApiApplication;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.repository.EmployeeRepository;
+
+/**
+ * Runs a second replica next to the test context, both publishing to and consuming from the same embedded broker, and
+ * checks that a write on one replica evicts the employee cached by the other.
+ */
+@SpringBootTest(properties = "outbox.relay.poll-interval-seconds=1")
+@EmbeddedKafka(partitions = 1, topics = PublisherService.TOPIC,
+    brokerProperties = {"listeners=PLAINTEXT://localhost:9092", "port=9092"})
+class EmployeeCacheInvalidationTest {
+
+    private static ConfigurableApplicationContext otherReplica;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @BeforeEach
+    void setup() {
+        employeeRepository.deleteAll();
+        if (otherReplica == null) {
+            // Started here rather than in @BeforeAll, the embedded broker only runs once the test context is up
+            otherReplica = new SpringApplicationBuilder(EmployeeApiApplication.class)
+                .properties("server.port=0", "outbox.relay.poll-interval-seconds=1")
+                .run();
+        }
+        // Consumers of a new group start at the latest offset, so events sent before the assignment would be missed
+        waitForAssignment(listenerRegistry);
+        waitForAssignment(otherReplica.getBean(KafkaListenerEndpointRegistry.class));
+    }
+
+    @AfterAll
+    static void stopOtherReplica() {
+        if (otherReplica != null) {
+            otherReplica.close();
+        }
+    }
+
+    @Test
+    void updateOnOneReplica_shouldEvictEmployeeCachedByTheOther() {
+        var created = employeeService.createEmployee(new EmployeeDTO(
+            null, "cached@sample.com", "Cached Name",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        ));
+        var otherEmployeeService = otherReplica.getBean(EmployeeService.class);
+        assertEquals("Cached Name", otherEmployeeService.getEmployeeById(created.id()).fullName());
+
+        employeeService.updateEmployee(created.id(), new EmployeeDTO(
+            created.id(), "cached@sample.com", "Renamed",
+            LocalDate.of(1990, 1, 1), List.of("hiking")
+        ), null);
+
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(
+            () -> assertEquals("Renamed", otherEmployeeService.getEmployeeById(created.id()).fullName()));
+    }
+
+    private static void waitForAssignment(final KafkaListenerEndpointRegistry registry) {
+        registry.getListenerContainers()
+            .forEach(container -> ContainerTestUtils.waitForAssignment(container, 1));
+    }
+}
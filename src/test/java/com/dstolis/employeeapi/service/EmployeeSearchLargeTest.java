@@ -0,0 +1,82 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.Latencies;
+import com.dstolis.employeeapi.model.dto.EmployeeSearch;
+
+/**
+ * Measures search latency against a million employees with two hobbies each. Run with {@code ./gradlew largeTest};
+ * the median of each filter combination must stay below 10 ms and is logged together with the upper percentiles.
+ */
+@LargeTest
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EmployeeSearchLargeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeSearchLargeTest.class);
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int RUNS = 50;
+
+    private static final long MAX_MEDIAN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void setup() {
+        cleanup();
+        LargeTestData.insertEmployees(jdbcTemplate, ROWS, LargeTestData.RANDOM_NAMES, LocalDate.of(1960, 1, 1));
+        LargeTestData.insertHobbies(jdbcTemplate, 50, 1);
+    }
+
+    @AfterAll
+    void cleanup() {
+        LargeTestData.deleteAll(jdbcTemplate);
+    }
+
+    static Stream<Arguments> searches() {
+        return Stream.of(
+            Arguments.of("name", new EmployeeSearch("a3f9", null, null, null)),
+            Arguments.of("birthday month", new EmployeeSearch(null, LocalDate.of(1980, 5, 1), LocalDate.of(1980, 5, 31),
+                null)),
+            Arguments.of("hobby", new EmployeeSearch(null, null, null, "hobby7")),
+            Arguments.of("name and hobby", new EmployeeSearch("b2c", null, null, "hobby7")),
+            Arguments.of("birthday year and hobby", new EmployeeSearch(null, LocalDate.of(1975, 1, 1),
+                LocalDate.of(1975, 12, 31), "hobby13"))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("searches")
+    void searchEmployees_shouldAnswerWithinTenMilliseconds(String label, EmployeeSearch search) {
+        // Warm up the plan cache and the buffer cache
+        var latencies = Latencies.measure(5, RUNS, i -> employeeService.searchEmployees(search, null, 100));
+
+        LOGGER.info("Search by {}: {}", label, latencies);
+        assertTrue(latencies.median() < MAX_MEDIAN_NANOS, "Search by " + label + ": " + latencies);
+    }
+}
@@ -0,0 +1,215 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.dto.EmployeePatch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.OptimisticLockException;
+
+/**
+ * Guards the read paths: the number of statements must not grow with the number of employees, and no entity may be
+ * hydrated. Creates and updates must take a single round trip.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EmployeeServiceQueryCountTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        cleanup();
+        jdbcTemplate.update("INSERT INTO hobbies (name) VALUES ('hiking'), ('reading') ON CONFLICT (name) DO NOTHING");
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM employee_hobby");
+        jdbcTemplate.update("DELETE FROM employees");
+        jdbcTemplate.update("DELETE FROM outbox");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void getEmployeePage_shouldLoadEmployeesAndHobbiesWithOneStatement(int employees) {
+        insertEmployees(employees);
+        statistics.clear();
+
+        var page = employeeService.getEmployeePage(null, 100);
+
+        assertEquals(employees, page.employees().size());
+        page.employees().forEach(employee -> assertEquals(2, employee.hobbies().size()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10})
+    void getEmployeeById_shouldLoadEmployeeAndHobbiesWithOneStatement(int employees) {
+        var id = insertEmployees(employees);
+        statistics.clear();
+
+        var employee = employeeService.getEmployeeById(id);
+
+        assertEquals(2, employee.hobbies().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void createEmployee_shouldWriteEmployeeHobbiesAndEventWithOneStatement() {
+        statistics.clear();
+
+        var employee = employeeService.createEmployee(new EmployeeDTO(null, "new@sample.com", "New Employee",
+            LocalDate.of(1990, 1, 1), List.of("hiking", "reading")));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(List.of("hiking", "reading"), employeeService.getEmployeeById(employee.id()).hobbies());
+        assertEquals(1, countEvents(employee.id(), "CREATED"));
+    }
+
+    @Test
+    void createEmployee_withExistingEmail_shouldWriteNothing() {
+        insertEmployees(1);
+        statistics.clear();
+
+        assertThrows(EntityExistsException.class, () -> employeeService.createEmployee(new EmployeeDTO(null,
+            "employee0@sample.com", "New Employee", LocalDate.of(1990, 1, 1), List.of("hiking"))));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM employee_hobby", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM outbox", Integer.class));
+    }
+
+    @Test
+    void updateEmployee_shouldReplaceEmployeeHobbiesAndWriteEventWithOneStatement() {
+        var id = insertEmployees(1);
+        statistics.clear();
+
+        var employee = employeeService.updateEmployee(id, new EmployeeDTO(null, "updated@sample.com",
+            "Updated Employee", LocalDate.of(1991, 2, 3), List.of("chess")), 0L);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1L, employee.version());
+        assertEquals(employee, employeeService.getEmployeeById(id));
+        assertEquals(1, countEvents(id, "UPDATED"));
+    }
+
+    @Test
+    void updateEmployee_shouldOnlyWriteChangedHobbies() {
+        var id = insertEmployees(1);
+        var hikingRow = hobbyRowVersion(id, "hiking");
+
+        var employee = employeeService.updateEmployee(id, new EmployeeDTO(null, "employee0@sample.com",
+            "Employee 0", LocalDate.of(1990, 1, 1), List.of("hiking", "chess", "chess")), null);
+
+        assertEquals(List.of("hiking", "chess"), employee.hobbies());
+        assertEquals(List.of("hiking", "chess"), employeeService.getEmployeeById(id).hobbies());
+        // The kept hobby was not rewritten
+        assertEquals(hikingRow, hobbyRowVersion(id, "hiking"));
+    }
+
+    @Test
+    void updateEmployee_withOutdatedVersion_shouldWriteNothing() {
+        var id = insertEmployees(1);
+
+        assertThrows(OptimisticLockException.class, () -> employeeService.updateEmployee(id, new EmployeeDTO(null,
+            "updated@sample.com", "Updated Employee", LocalDate.of(1991, 2, 3), List.of("chess")), 5L));
+
+        assertEquals("employee0@sample.com", employeeService.getEmployeeById(id).email());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM outbox", Integer.class));
+    }
+
+    @Test
+    void patchEmployee_withoutChanges_shouldOnlyRead() throws Exception {
+        var id = insertEmployees(1);
+        statistics.clear();
+
+        var employee = employeeService.patchEmployee(id,
+            patch("{\"fullName\": \"Employee 0\", \"hobbies\": [\"hiking\", \"reading\"]}"), 0L);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0L, employee.version());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM outbox", Integer.class));
+    }
+
+    @Test
+    void patchEmployee_shouldLeaveHobbiesAloneUnlessPatched() throws Exception {
+        var id = insertEmployees(1);
+        var hikingRow = hobbyRowVersion(id, "hiking");
+        statistics.clear();
+
+        var employee = employeeService.patchEmployee(id, patch("{\"fullName\": \"Patched Employee\"}"), null);
+
+        // The read and the update with its event
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1L, employee.version());
+        assertEquals(List.of("hiking", "reading"), employee.hobbies());
+        assertEquals(hikingRow, hobbyRowVersion(id, "hiking"));
+        assertEquals(1, countEvents(id, "UPDATED"));
+    }
+
+    private static EmployeePatch patch(final String json) throws Exception {
+        return EmployeePatch.of(new ObjectMapper().readTree(json));
+    }
+
+    private int countEvents(final UUID id, final String eventType) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM outbox WHERE aggregate_id = ? AND event_type = ?",
+            Integer.class, id, eventType);
+    }
+
+    private String hobbyRowVersion(final UUID id, final String hobby) {
+        return jdbcTemplate.queryForObject("""
+            SELECT eh.xmin::text
+            FROM employee_hobby eh
+                     JOIN hobbies h ON h.id = eh.hobby_id
+            WHERE eh.employee_id = ? AND h.name = ?""", String.class, id, hobby);
+    }
+
+    /**
+     * @return the id of the last inserted employee
+     */
+    private UUID insertEmployees(final int count) {
+        UUID id = null;
+        for (int i = 0; i < count; i++) {
+            id = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO employees (id, email, full_name, birthday) VALUES (?, ?, ?, DATE '1990-01-01')",
+                id, "employee" + i + "@sample.com", "Employee " + i);
+            jdbcTemplate.update("""
+                INSERT INTO employee_hobby (employee_id, hobby_id, position)
+                SELECT ?, h.id, row_number() OVER (ORDER BY h.name)
+                FROM hobbies h
+                WHERE h.name IN ('hiking', 'reading')""", id);
+        }
+        return id;
+    }
+}
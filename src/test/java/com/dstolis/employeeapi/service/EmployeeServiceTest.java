@@ -3,39 +3,62 @@ package com.dstolis.employeeapi.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.dstolis.employeeapi.model.dto.BirthdayCursor;
+import com.dstolis.employeeapi.model.dto.EmployeeCursor;
 import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.dto.EmployeePatch;
+import com.dstolis.employeeapi.model.dto.EmployeeSearch;
 import com.dstolis.employeeapi.model.entity.Employee;
 import com.dstolis.employeeapi.model.entity.OutboxEvent;
+import com.dstolis.employeeapi.repository.EmployeeCommandRepository;
 import com.dstolis.employeeapi.repository.EmployeeRepository;
 import com.dstolis.employeeapi.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.validation.Validation;
 
 @ExtendWith(MockitoExtension.class)
 class EmployeeServiceTest {
 
-    @InjectMocks
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private EmployeeService employeeService;
 
     @Mock
@@ -44,9 +67,28 @@ class EmployeeServiceTest {
     @Mock
     OutboxRepository outboxRepository;
 
+    @Mock
+    private HobbyIndex hobbyIndex;
+
+    @Spy
+    private OutboxEventFactory outboxEventFactory = new OutboxEventFactory(false);
+
     @Captor
     private ArgumentCaptor<OutboxEvent> outboxEventCaptor;
 
+    @Captor
+    private ArgumentCaptor<Employee> employeeCaptor;
+
+    @BeforeEach
+    void setup() {
+        var validator = Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory()
+            .getValidator();
+        employeeService = new EmployeeService(employeeRepository, outboxRepository, outboxEventFactory,
+            new EmployeeCache(new SimpleMeterRegistry(), 100, 60), hobbyIndex, validator, MAX_PAGE_SIZE);
+    }
 
     @Test
     void testGetEmployeeById() {
@@ -55,17 +97,59 @@ class EmployeeServiceTest {
 
         var mockEmployee = createMockEmployee(uuid);
 
-        when(employeeRepository.findById(uuid)).thenReturn(Optional.of(mockEmployee));
+        when(employeeRepository.findDtoById(uuid)).thenReturn(Optional.of(new EmployeeDTO(mockEmployee)));
 
         // When
         var employeeDTO = employeeService.getEmployeeById(uuid);
 
         // Then
-        verify(employeeRepository, times(1)).findById(uuid);
+        verify(employeeRepository, times(1)).findDtoById(uuid);
 
         assertEmployeeDTO(mockEmployee, employeeDTO);
     }
 
+    @Test
+    void testGetEmployeeById_ShouldServeRepeatedReadsFromCache() {
+        // Given
+        var uuid = UUID.randomUUID();
+
+        when(employeeRepository.findDtoById(uuid)).thenReturn(Optional.of(new EmployeeDTO(createMockEmployee(uuid))));
+
+        // When
+        employeeService.getEmployeeById(uuid);
+        employeeService.getEmployeeById(uuid);
+
+        // Then
+        verify(employeeRepository, times(1)).findDtoById(uuid);
+    }
+
+    @Test
+    void testUpdateEmployee_ShouldEvictCachedEmployee() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var mockEmployee = createMockEmployee(uuid);
+
+        // Reads the employee as it is at the time of the call, like the projection query does
+        when(employeeRepository.findDtoById(uuid)).thenAnswer(invocation -> Optional.of(new EmployeeDTO(mockEmployee)));
+        when(employeeRepository.updateWithEvent(any(Employee.class), isNull(), eq(true), any(OutboxEvent.class)))
+            .thenAnswer(invocation -> {
+                mockEmployee.setFullName(invocation.<Employee>getArgument(0).getFullName());
+                return new EmployeeCommandRepository.UpdateResult(true, 1L);
+            });
+        employeeService.getEmployeeById(uuid);
+
+        // When
+        employeeService.updateEmployee(uuid, new EmployeeDTO(
+            uuid, "new_email@example.com", "Updated Name",
+            LocalDate.of(1995, 5, 5), List.of("new_hobby")
+        ), null);
+        var employeeDTO = employeeService.getEmployeeById(uuid);
+
+        // Then
+        verify(employeeRepository, times(2)).findDtoById(uuid);
+        assertEquals("Updated Name", employeeDTO.fullName());
+    }
+
     @Test
     void testUpdateEmployee() {
         // Given
@@ -76,25 +160,57 @@ class EmployeeServiceTest {
             LocalDate.of(1995, 5, 5), List.of("new_hobby")
         );
 
-        var mockEmployee = createMockEmployee(uuid);
-
-        when(employeeRepository.findById(uuid)).thenReturn(Optional.of(mockEmployee));
-        when(employeeRepository.save(mockEmployee)).thenReturn(mockEmployee);
+        when(employeeRepository.updateWithEvent(employeeCaptor.capture(), eq(3L), eq(true),
+            outboxEventCaptor.capture()))
+            .thenReturn(new EmployeeCommandRepository.UpdateResult(true, 4L));
 
         // When
-        var newEmployeeDTO = employeeService.updateEmployee(uuid, updatedEmployeeDTO);
+        var newEmployeeDTO = employeeService.updateEmployee(uuid, updatedEmployeeDTO, 3L);
 
         // Then
-        verify(employeeRepository, times(1)).findById(uuid);
-        verify(employeeRepository, times(1)).save(mockEmployee);
-        verify(outboxRepository, times(1)).save(outboxEventCaptor.capture());
+        verify(employeeRepository, never()).findById(any(UUID.class));
+        verify(outboxRepository, never()).save(any(OutboxEvent.class));
 
         OutboxEvent capturedEvent = outboxEventCaptor.getValue();
         assertEquals("Employee", capturedEvent.getAggregateType());
         assertEquals("UPDATED", capturedEvent.getEventType());
+        assertEquals(uuid, capturedEvent.getAggregateId());
         assertEquals(OutboxEvent.Status.PENDING, capturedEvent.getStatus());
+        verify(hobbyIndex, times(1)).putAfterCommit(uuid, List.of("new_hobby"));
 
-        assertEmployeeDTO(mockEmployee, newEmployeeDTO);
+        assertEquals(uuid, employeeCaptor.getValue().getId());
+        assertEmployeeDTO(employeeCaptor.getValue(), newEmployeeDTO);
+        assertEquals(4L, newEmployeeDTO.version());
+    }
+
+    @Test
+    void testUpdateEmployee_WithEmailOfAnotherEmployee_ShouldThrow() {
+        // Given
+        var uuid = UUID.randomUUID();
+
+        when(employeeRepository.updateWithEvent(any(Employee.class), isNull(), eq(true), any(OutboxEvent.class)))
+            .thenThrow(uniqueViolation(Employee.EMAIL_CONSTRAINT));
+
+        // When & Then
+        var exception = assertThrows(EntityExistsException.class, () -> employeeService.updateEmployee(uuid,
+            new EmployeeDTO(uuid, "taken@example.com", "Updated Name", LocalDate.of(1995, 5, 5), List.of()), null));
+        assertEquals("Email taken@example.com already exists for a different employee!", exception.getMessage());
+        verify(hobbyIndex, never()).putAfterCommit(any(UUID.class), anyList());
+    }
+
+    @Test
+    void testUpdateEmployee_WithOtherConstraintViolation_ShouldNotReportTakenEmail() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var violation = uniqueViolation("employee_hobby_pkey");
+
+        when(employeeRepository.updateWithEvent(any(Employee.class), isNull(), eq(true), any(OutboxEvent.class)))
+            .thenThrow(violation);
+
+        // When & Then
+        var exception = assertThrows(DataIntegrityViolationException.class, () -> employeeService.updateEmployee(uuid,
+            new EmployeeDTO(uuid, "free@example.com", "Updated Name", LocalDate.of(1995, 5, 5), List.of()), null));
+        assertEquals(violation, exception);
     }
 
     @Test
@@ -105,23 +221,47 @@ class EmployeeServiceTest {
             LocalDate.parse("1992-03-14"), List.of("yoga", "football")
         );
 
-        var mockEmployee = createMockEmployee(null);
-
-        when(employeeRepository.save(mockEmployee)).thenReturn(mockEmployee);
+        when(employeeRepository.insertWithEvent(employeeCaptor.capture(), outboxEventCaptor.capture()))
+            .thenReturn(true);
 
         // When
         var createdEmployeeDTO = employeeService.createEmployee(newEmployeeDTO);
 
         // Then
-        verify(employeeRepository, times(1)).save(mockEmployee);
-        verify(outboxRepository, times(1)).save(outboxEventCaptor.capture());
+        verify(employeeRepository, never()).save(any(Employee.class));
+        verify(outboxRepository, never()).save(any(OutboxEvent.class));
 
+        var insertedEmployee = employeeCaptor.getValue();
         OutboxEvent capturedEvent = outboxEventCaptor.getValue();
         assertEquals("Employee", capturedEvent.getAggregateType());
         assertEquals("CREATED", capturedEvent.getEventType());
+        assertEquals(insertedEmployee.getId(), capturedEvent.getAggregateId());
         assertEquals(OutboxEvent.Status.PENDING, capturedEvent.getStatus());
 
-        assertEmployeeDTO(mockEmployee, createdEmployeeDTO);
+        assertEmployeeDTO(insertedEmployee, createdEmployeeDTO);
+        assertEquals(0L, createdEmployeeDTO.version());
+        verify(hobbyIndex, times(1)).putAfterCommit(insertedEmployee.getId(), List.of("yoga", "football"));
+    }
+
+    @Test
+    void testCreateEmployee_WithRepeatedHobby_ShouldKeepItOnceAtItsFirstPosition() {
+        // Given
+        var newEmployeeDTO = new EmployeeDTO(
+            null, "test@example.com", "Jane Doe",
+            LocalDate.parse("1992-03-14"), List.of("yoga", "football", "yoga")
+        );
+
+        when(employeeRepository.insertWithEvent(employeeCaptor.capture(), any(OutboxEvent.class))).thenReturn(true);
+
+        // When
+        var createdEmployeeDTO = employeeService.createEmployee(newEmployeeDTO);
+
+        // Then
+        var insertedEmployee = employeeCaptor.getValue();
+        assertEquals(List.of("yoga", "football"), insertedEmployee.getHobbies());
+        assertEquals(List.of("yoga", "football"), createdEmployeeDTO.hobbies());
+        verify(outboxEventFactory).created(insertedEmployee);
+        verify(hobbyIndex).putAfterCommit(insertedEmployee.getId(), List.of("yoga", "football"));
     }
 
     @Test
@@ -132,36 +272,98 @@ class EmployeeServiceTest {
             LocalDate.parse("1992-03-14"), List.of("yoga", "football")
         );
 
-        var existingEmployee = createMockEmployee(UUID.randomUUID());
-        existingEmployee.setEmail("existing_email@example.com");
-
-        when(employeeRepository.findByEmail("existing_email@example.com")).thenReturn(Optional.of(existingEmployee));
+        when(employeeRepository.insertWithEvent(any(Employee.class), any(OutboxEvent.class))).thenReturn(false);
 
         // When & Then
         assertThrows(EntityExistsException.class,
             () -> employeeService.createEmployee(newEmployeeDTO));
 
-        verify(employeeRepository, times(1)).findByEmail("existing_email@example.com");
-        verify(employeeRepository, never()).save(any(Employee.class));
-        verify(outboxRepository, never()).save(any(OutboxEvent.class));
+        verify(employeeRepository, times(1)).insertWithEvent(any(Employee.class), any(OutboxEvent.class));
+        verify(hobbyIndex, never()).putAfterCommit(any(UUID.class), anyList());
     }
 
     @Test
-    void testGetAllEmployees() {
+    void testGetEmployeePage_WhenMoreEmployeesExist_ShouldReturnCursorOfLastEmployee() {
         // Given
-        var mockEmployees = createMockEmployeeList();
-        when(employeeRepository.findAll()).thenReturn(mockEmployees);
+        var mockEmployees = createMockEmployeeList().stream().map(EmployeeDTO::new).toList();
+        when(employeeRepository.findDtoPageAfter(EmployeeCursor.START, 3)).thenReturn(mockEmployees);
 
         // When
-        var employeeDTOs = employeeService.getAllEmployees();
+        var page = employeeService.getEmployeePage(null, 2);
 
         // Then
-        verify(employeeRepository, times(1)).findAll();
+        assertEquals(2, page.employees().size());
+        assertEquals(mockEmployees.get(1), page.employees().get(1));
+        assertEquals(mockEmployees.get(1).id(), EmployeeCursor.decode(page.nextCursor()));
+    }
 
-        assertEquals(mockEmployees.size(), employeeDTOs.size());
-        for (int i = 0; i < mockEmployees.size(); i++) {
-            assertEmployeeDTO(mockEmployees.get(i), employeeDTOs.get(i));
-        }
+    @Test
+    void testGetEmployeePage_WhenLastPage_ShouldNotReturnCursor() {
+        // Given
+        var after = UUID.randomUUID();
+        var mockEmployees = createMockEmployeeList().stream().map(EmployeeDTO::new).toList();
+        when(employeeRepository.findDtoPageAfter(after, 4)).thenReturn(mockEmployees);
+
+        // When
+        var page = employeeService.getEmployeePage(EmployeeCursor.encode(after), 3);
+
+        // Then
+        assertEquals(3, page.employees().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testGetEmployeePage_WithInvalidLimitOrCursor_ShouldThrow() {
+        assertThrows(InvalidRequestException.class, () -> employeeService.getEmployeePage(null, 0));
+        assertThrows(InvalidRequestException.class, () -> employeeService.getEmployeePage(null, MAX_PAGE_SIZE + 1));
+        assertThrows(InvalidRequestException.class, () -> employeeService.getEmployeePage("not-a-cursor", 10));
+    }
+
+    @Test
+    void testSearchEmployees_ShouldPassTrimmedFiltersToRepository() {
+        // Given
+        var search = new EmployeeSearch("Jane", LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31), "yoga");
+        var mockEmployees = createMockEmployeeList().stream().map(EmployeeDTO::new).toList();
+        when(employeeRepository.searchDtoPageAfter(search, EmployeeCursor.START, 11)).thenReturn(mockEmployees);
+
+        // When
+        var page = employeeService.searchEmployees(
+            new EmployeeSearch("  Jane ", search.birthdayFrom(), search.birthdayTo(), "yoga"), null, 10);
+
+        // Then
+        assertEquals(mockEmployees, page.employees());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testSearchEmployees_WithInvalidFilters_ShouldThrow() {
+        assertThrows(InvalidRequestException.class,
+            () -> employeeService.searchEmployees(new EmployeeSearch("ja", null, null, null), null, 10));
+        assertThrows(InvalidRequestException.class, () -> employeeService.searchEmployees(
+            new EmployeeSearch(null, LocalDate.of(2000, 1, 1), LocalDate.of(1990, 1, 1), null), null, 10));
+        verify(employeeRepository, never()).searchDtoPageAfter(any(), any(), anyInt());
+    }
+
+    @Test
+    void testGetUpcomingBirthdays_AcrossEndOfYear_ShouldContinueInJanuary() {
+        // Given
+        var december = new EmployeeDTO(UUID.randomUUID(), "dec@example.com", "December Born",
+            LocalDate.of(1990, 12, 30), List.of());
+        var january = new EmployeeDTO(UUID.randomUUID(), "jan@example.com", "January Born",
+            LocalDate.of(1991, 1, 2), List.of());
+        when(employeeRepository.findDtoPageByBirthMonthDay(1228, 1231, BirthdayCursor.START, 3))
+            .thenReturn(List.of(december));
+        when(employeeRepository.findDtoPageByBirthMonthDay(101, 104, BirthdayCursor.START, 2))
+            .thenReturn(List.of(january, january));
+
+        // When
+        var page = employeeService.getUpcomingBirthdays(LocalDate.of(2023, 12, 28), 7, null, 2);
+
+        // Then
+        assertEquals(List.of(december, january), page.employees());
+        assertEquals(new BirthdayCursor(102, january.id()), BirthdayCursor.decode(page.nextCursor()));
+        assertThrows(InvalidRequestException.class, () -> employeeService.getUpcomingBirthdays(
+            LocalDate.of(2023, 6, 1), 7, new BirthdayCursor(1231, december.id()).encode(), 2));
     }
 
     @Test
@@ -174,17 +376,153 @@ class EmployeeServiceTest {
             LocalDate.of(1995, 5, 5), List.of("new_hobby")
         );
 
-        var mockEmployee = createMockEmployee(id);
-
-        when(employeeRepository.findById(id)).thenReturn(Optional.empty());
+        when(employeeRepository.updateWithEvent(any(Employee.class), isNull(), eq(true), any(OutboxEvent.class)))
+            .thenReturn(new EmployeeCommandRepository.UpdateResult(false, null));
 
         // When & Then
         assertThrows(EntityNotFoundException.class,
-            () -> employeeService.updateEmployee(id, updatedEmployeeDTO));
+            () -> employeeService.updateEmployee(id, updatedEmployeeDTO, null));
 
-        verify(employeeRepository, times(1)).findById(id);
-        verify(employeeRepository, never()).save(any(Employee.class));
-        verify(outboxRepository, times(0)).save(any(OutboxEvent.class));
+        verify(hobbyIndex, never()).putAfterCommit(any(UUID.class), anyList());
+    }
+
+    @Test
+    void testUpdateEmployee_WithOutdatedVersion_ShouldThrow() {
+        // Given
+        var uuid = UUID.randomUUID();
+
+        when(employeeRepository.updateWithEvent(any(Employee.class), eq(1L), eq(true), any(OutboxEvent.class)))
+            .thenReturn(new EmployeeCommandRepository.UpdateResult(true, null));
+
+        // When & Then
+        assertThrows(OptimisticLockException.class, () -> employeeService.updateEmployee(uuid, new EmployeeDTO(
+            uuid, "new_email@example.com", "Updated Name",
+            LocalDate.of(1995, 5, 5), List.of("new_hobby")
+        ), 1L));
+
+        verify(hobbyIndex, never()).putAfterCommit(any(UUID.class), anyList());
+    }
+
+    @Test
+    void testPatchEmployee_ShouldOnlyChangePatchedFields() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var mockEmployee = createMockEmployee(uuid);
+        mockEmployee.setVersion(2L);
+
+        when(employeeRepository.findDtoById(uuid)).thenReturn(Optional.of(new EmployeeDTO(mockEmployee)));
+        when(employeeRepository.updateWithEvent(employeeCaptor.capture(), eq(2L), eq(false),
+            outboxEventCaptor.capture()))
+            .thenReturn(new EmployeeCommandRepository.UpdateResult(true, 3L));
+
+        // When
+        var patched = employeeService.patchEmployee(uuid, patch("{\"fullName\": \"Jane Smith\"}"), null);
+
+        // Then
+        assertEquals("Jane Smith", patched.fullName());
+        assertEquals("test@example.com", patched.email());
+        assertEquals(List.of("yoga", "football"), patched.hobbies());
+        assertEquals(3L, patched.version());
+        assertEquals(List.of("yoga", "football"), employeeCaptor.getValue().getHobbies());
+        assertEquals("UPDATED", outboxEventCaptor.getValue().getEventType());
+        verify(hobbyIndex, never()).putAfterCommit(any(UUID.class), anyList());
+    }
+
+    @Test
+    void testPatchEmployee_WithHobbies_ShouldReplaceHobbies() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var mockEmployee = createMockEmployee(uuid);
+        mockEmployee.setVersion(2L);
+
+        when(employeeRepository.findDtoById(uuid)).thenReturn(Optional.of(new EmployeeDTO(mockEmployee)));
+        when(employeeRepository.updateWithEvent(any(Employee.class), eq(2L), eq(true), any(OutboxEvent.class)))
+            .thenReturn(new EmployeeCommandRepository.UpdateResult(true, 3L));
+
+        // When
+        var patched = employeeService.patchEmployee(uuid, patch("{\"hobbies\": null}"), null);
+
+        // Then
+        assertEquals(List.of(), patched.hobbies());
+        verify(hobbyIndex, times(1)).putAfterCommit(uuid, List.of());
+    }
+
+    @Test
+    void testPatchEmployee_WithoutChanges_ShouldWriteNothing() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var mockEmployee = createMockEmployee(uuid);
+        mockEmployee.setVersion(2L);
+
+        when(employeeRepository.findDtoById(uuid)).thenReturn(Optional.of(new EmployeeDTO(mockEmployee)));
+
+        // When
+        var patched = employeeService.patchEmployee(uuid, patch(
+            "{\"email\": \"test@example.com\", \"hobbies\": [\"yoga\", \"football\"], \"version\": 7}"), 2L);
+
+        // Then
+        assertEquals(2L, patched.version());
+        verify(employeeRepository, never()).updateWithEvent(any(Employee.class), any(), anyBoolean(),
+            any(OutboxEvent.class));
+        verify(outboxEventFactory, never()).updated(any(Employee.class));
+        verify(hobbyIndex, never()).putAfterCommit(any(UUID.class), anyList());
+    }
+
+    @Test
+    void testPatchEmployee_WithOutdatedVersion_ShouldThrow() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var mockEmployee = createMockEmployee(uuid);
+        mockEmployee.setVersion(2L);
+
+        when(employeeRepository.findDtoById(uuid)).thenReturn(Optional.of(new EmployeeDTO(mockEmployee)));
+
+        // When & Then
+        assertThrows(OptimisticLockException.class,
+            () -> employeeService.patchEmployee(uuid, patch("{\"fullName\": \"Jane Smith\"}"), 1L));
+        verify(employeeRepository, never()).updateWithEvent(any(Employee.class), any(), anyBoolean(),
+            any(OutboxEvent.class));
+    }
+
+    @Test
+    void testPatchEmployee_WhenModifiedConcurrently_ShouldPatchLatestVersion() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var stale = createMockEmployee(uuid);
+        stale.setVersion(2L);
+        var latest = createMockEmployee(uuid);
+        latest.setEmail("latest@example.com");
+        latest.setVersion(3L);
+
+        when(employeeRepository.findDtoById(uuid))
+            .thenReturn(Optional.of(new EmployeeDTO(stale)), Optional.of(new EmployeeDTO(latest)));
+        when(employeeRepository.updateWithEvent(any(Employee.class), eq(2L), eq(false), any(OutboxEvent.class)))
+            .thenReturn(new EmployeeCommandRepository.UpdateResult(true, null));
+        when(employeeRepository.updateWithEvent(any(Employee.class), eq(3L), eq(false), any(OutboxEvent.class)))
+            .thenReturn(new EmployeeCommandRepository.UpdateResult(true, 4L));
+
+        // When
+        var patched = employeeService.patchEmployee(uuid, patch("{\"fullName\": \"Jane Smith\"}"), null);
+
+        // Then
+        assertEquals("latest@example.com", patched.email());
+        assertEquals("Jane Smith", patched.fullName());
+        assertEquals(4L, patched.version());
+    }
+
+    @Test
+    void testPatchEmployee_RemovingRequiredField_ShouldThrow() {
+        // Given
+        var uuid = UUID.randomUUID();
+        var mockEmployee = createMockEmployee(uuid);
+        mockEmployee.setVersion(2L);
+
+        when(employeeRepository.findDtoById(uuid)).thenReturn(Optional.of(new EmployeeDTO(mockEmployee)));
+
+        // When & Then
+        var exception = assertThrows(InvalidRequestException.class,
+            () -> employeeService.patchEmployee(uuid, patch("{\"email\": null}"), null));
+        assertEquals("Email is required", exception.getMessage());
     }
 
     @Test
@@ -192,13 +530,13 @@ class EmployeeServiceTest {
         // Given
         var id = UUID.randomUUID();
 
-        when(employeeRepository.findById(id)).thenReturn(Optional.empty());
+        when(employeeRepository.findDtoById(id)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(EntityNotFoundException.class,
             () -> employeeService.getEmployeeById(id));
 
-        verify(employeeRepository, times(1)).findById(id);
+        verify(employeeRepository, times(1)).findDtoById(id);
     }
 
     @Test
@@ -221,6 +559,7 @@ class EmployeeServiceTest {
         assertEquals("Employee", capturedEvent.getAggregateType());
         assertEquals("DELETED", capturedEvent.getEventType());
         assertEquals(OutboxEvent.Status.PENDING, capturedEvent.getStatus());
+        verify(hobbyIndex, times(1)).removeAfterCommit(id);
     }
 
     @Test
@@ -239,6 +578,14 @@ class EmployeeServiceTest {
         verify(outboxRepository, never()).delete(any(OutboxEvent.class));
     }
 
+    private static EmployeePatch patch(final String json) {
+        try {
+            return EmployeePatch.of(new ObjectMapper().readTree(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
     private Employee createMockEmployee(UUID uuid) {
         var mockEmployee = new Employee();
         mockEmployee.setId(uuid);
@@ -265,4 +612,9 @@ class EmployeeServiceTest {
         assertEquals(expectedEmployee.getHobbies(), actualEmployeeDTO.hobbies());
     }
 
+    private static DataIntegrityViolationException uniqueViolation(final String constraint) {
+        var cause = new SQLException("duplicate key value violates unique constraint \"" + constraint + "\"", "23505");
+        return new DataIntegrityViolationException("could not execute statement",
+            new ConstraintViolationException("could not execute statement", cause, constraint));
+    }
 }
@@ -0,0 +1,225 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.Latencies;
+import com.dstolis.employeeapi.model.dto.EmployeeDTO;
+import com.dstolis.employeeapi.model.entity.Employee;
+
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+
+/**
+ * Creates and then updates employees one by one next to a million existing ones, once through the former write path,
+ * which looked up the email, loaded the employee and wrote it, its hobbies and the event with a statement each, and
+ * once through {@link EmployeeService}. Both are warmed up first. Logs the statements per write and the latencies of
+ * both, and asserts that the service takes a single statement per write, answers within 10 ms at p99 and is not
+ * slower than the former path. Run with {@code ./gradlew largeTest}.
+ */
+@LargeTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EmployeeWriteLargeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmployeeWriteLargeTest.class);
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int WARMUPS = 500;
+
+    private static final int RUNS = 2_000;
+
+    private static final long MAX_P99_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private OutboxEventFactory outboxEventFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeAll
+    void setup() {
+        cleanup();
+        LargeTestData.insertEmployees(jdbcTemplate, ROWS, LargeTestData.NUMBERED_NAMES, LocalDate.of(1960, 1, 1));
+        jdbcTemplate.update("""
+            INSERT INTO hobbies (name) VALUES ('hiking'), ('reading'), ('chess') ON CONFLICT (name) DO NOTHING""");
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    void cleanup() {
+        LargeTestData.deleteAll(jdbcTemplate);
+    }
+
+    @Test
+    void createAndUpdate_shouldTakeOneStatementAndAnswerWithinTenMilliseconds() {
+        var former = measure("former", this::formerCreate, this::formerUpdate);
+        var current = measure("current", employeeService::createEmployee, employeeService::updateEmployee);
+
+        assertEquals(1, current.createStatements());
+        assertEquals(1, current.updateStatements());
+        assertP99("Create", current.creates(), former.creates());
+        assertP99("Update", current.updates(), former.updates());
+    }
+
+    private WritePath measure(final String path, final UnaryOperator<EmployeeDTO> create, final Update update) {
+        // Warm-ups and measured runs both count from zero, so the employees are numbered across both
+        var created = new EmployeeDTO[WARMUPS + RUNS];
+        var createCount = new AtomicInteger();
+        var creates = Latencies.measure(WARMUPS, RUNS, i -> {
+            int n = createCount.getAndIncrement();
+            created[n] = create.apply(newEmployee(path, n));
+        });
+        var updateCount = new AtomicInteger();
+        var updates = Latencies.measure(WARMUPS, RUNS, i -> {
+            int n = updateCount.getAndIncrement();
+            update.apply(created[n].id(), updatedEmployee(path, n), created[n].version());
+        });
+
+        statistics.clear();
+        var counted = create.apply(newEmployee(path + "-counted", 0));
+        long createStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        update.apply(counted.id(), updatedEmployee(path + "-counted", 0), counted.version());
+        long updateStatements = statistics.getPrepareStatementCount();
+
+        LOGGER.info("Write path {}: create {} statements, {}; update {} statements, {}", path, createStatements,
+            creates, updateStatements, updates);
+        return new WritePath(creates, updates, createStatements, updateStatements);
+    }
+
+    /**
+     * The create of {@link EmployeeService} before it took a single statement.
+     */
+    private EmployeeDTO formerCreate(final EmployeeDTO employeeDto) {
+        return transactionTemplate.execute(status -> {
+            if (findByEmail(employeeDto.email()) != null) {
+                throw new EntityExistsException("Email " + employeeDto.email() + " already exists!");
+            }
+            var employee = new Employee(employeeDto);
+            entityManager.persist(employee);
+            entityManager.flush();
+            insertHobbies(employee.getId(), employeeDto.hobbies());
+            entityManager.persist(outboxEventFactory.created(employee));
+            return new EmployeeDTO(employee);
+        });
+    }
+
+    /**
+     * The update of {@link EmployeeService} before it took a single statement.
+     */
+    private EmployeeDTO formerUpdate(final UUID id, final EmployeeDTO employeeDto, final Long expectedVersion) {
+        return transactionTemplate.execute(status -> {
+            var sameEmail = findByEmail(employeeDto.email());
+            if (sameEmail != null && !sameEmail.getId().equals(id)) {
+                throw new EntityExistsException("Email " + employeeDto.email() + " already exists!");
+            }
+            var employee = entityManager.find(Employee.class, id);
+            if (employee == null) {
+                throw new EntityNotFoundException("Employee with ID " + id + " not found.");
+            }
+            if (expectedVersion != null && !expectedVersion.equals(employee.getVersion())) {
+                throw new OptimisticLockException("Employee with ID " + id + " has been modified meanwhile.");
+            }
+            employee.setEmail(employeeDto.email());
+            employee.setFullName(employeeDto.fullName());
+            employee.setBirthday(employeeDto.birthday());
+            // Flushing increments the version before it is written into the event
+            entityManager.flush();
+            entityManager.createNativeQuery("DELETE FROM employee_hobby WHERE employee_id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+            insertHobbies(id, employeeDto.hobbies());
+            employee.setHobbies(employeeDto.hobbies());
+            entityManager.persist(outboxEventFactory.updated(employee));
+            return new EmployeeDTO(employee);
+        });
+    }
+
+    private Employee findByEmail(final String email) {
+        return entityManager.createQuery("SELECT e FROM Employee e WHERE e.email = :email", Employee.class)
+            .setParameter("email", email)
+            .getResultStream()
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * One insert per hobby, the way the former element collection wrote them.
+     */
+    private void insertHobbies(final UUID id, final List<String> hobbies) {
+        for (int i = 0; i < hobbies.size(); i++) {
+            entityManager.createNativeQuery("""
+                    INSERT INTO employee_hobby (employee_id, hobby_id, position)
+                    SELECT :id, h.id, :position FROM hobbies h WHERE h.name = :name""")
+                .setParameter("id", id)
+                .setParameter("position", i + 1)
+                .setParameter("name", hobbies.get(i))
+                .executeUpdate();
+        }
+    }
+
+    private static EmployeeDTO newEmployee(final String path, final int i) {
+        return new EmployeeDTO(null, path + "-new" + i + "@sample.com", "New Employee " + i, LocalDate.of(1990, 1, 1),
+            List.of("hiking", "reading"));
+    }
+
+    private static EmployeeDTO updatedEmployee(final String path, final int i) {
+        return new EmployeeDTO(null, path + "-updated" + i + "@sample.com", "Updated Employee " + i,
+            LocalDate.of(1991, 2, 3), List.of("chess"));
+    }
+
+    private static void assertP99(final String operation, final Latencies current, final Latencies former) {
+        assertTrue(current.percentile(99) < MAX_P99_NANOS, operation + " employee: " + current);
+        assertTrue(current.percentile(99) <= former.percentile(99),
+            operation + " employee: " + current + ", formerly " + former);
+    }
+
+    @FunctionalInterface
+    private interface Update {
+        EmployeeDTO apply(UUID id, EmployeeDTO employeeDto, Long expectedVersion);
+    }
+
+    private record WritePath(Latencies creates, Latencies updates, long createStatements, long updateStatements) {
+    }
+}
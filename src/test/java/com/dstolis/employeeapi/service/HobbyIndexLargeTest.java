@@ -0,0 +1,99 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.Latencies;
+
+/**
+ * Builds the hobby index over a million employees with two of fifty hobbies each, reports rebuild time and retained
+ * heap, and checks that facet counts and intersections are answered in well under a millisecond. Run with
+ * {@code ./gradlew largeTest}.
+ * <p>
+ * It runs before all other large tests and closes its context afterwards, so that it measures the heap without the
+ * cached contexts of other tests around and leaves none of its own behind.
+ */
+@LargeTest
+@Order(1)
+@DirtiesContext
+@SpringBootTest(properties = "employees.hobby-index.events.enabled=false")
+class HobbyIndexLargeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HobbyIndexLargeTest.class);
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int RUNS = 200;
+
+    private static final long MAX_MEDIAN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    @Autowired
+    private HobbyIndex hobbyIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        cleanup();
+        LargeTestData.insertEmployees(jdbcTemplate, ROWS, LargeTestData.NUMBERED_NAMES, LocalDate.of(1970, 1, 1));
+        LargeTestData.insertHobbies(jdbcTemplate, 50, 7);
+    }
+
+    @AfterEach
+    void cleanup() {
+        LargeTestData.deleteAll(jdbcTemplate);
+        hobbyIndex.rebuild();
+    }
+
+    @Test
+    void rebuild_shouldIndexAMillionEmployeesCompactly() {
+        long heapBefore = usedHeapAfterGc();
+        long rebuildMillis = TimeUnit.NANOSECONDS.toMillis(Latencies.time(hobbyIndex::rebuild));
+        long retainedBytes = usedHeapAfterGc() - heapBefore;
+
+        var counts = hobbyIndex.countEmployeesByHobby();
+        assertEquals(50, counts.size());
+        assertEquals(2L * ROWS, counts.stream().mapToLong(count -> count.count()).sum());
+
+        var employee = jdbcTemplate.queryForObject("SELECT id FROM employees LIMIT 1", UUID.class);
+        long countNanos = median(() -> hobbyIndex.countEmployeesByHobby());
+        long intersectionNanos = median(
+            () -> hobbyIndex.findEmployeesWithAllHobbies(List.of("hobby3", "hobby10"), 100));
+        long sharedNanos = median(() -> hobbyIndex.findEmployeesSharingHobbiesWith(employee, 100));
+
+        LOGGER.info("Hobby index: rebuild {} ms, retained {} KB; counts {} us, intersection {} us, shared {} us",
+            rebuildMillis, retainedBytes / 1000, countNanos / 1000, intersectionNanos / 1000, sharedNanos / 1000);
+        assertTrue(countNanos < MAX_MEDIAN_NANOS, "Counting took " + countNanos / 1e3 + " us");
+        assertTrue(intersectionNanos < MAX_MEDIAN_NANOS, "Intersecting took " + intersectionNanos / 1e3 + " us");
+    }
+
+    private static long median(final Supplier<?> query) {
+        return Latencies.measure(RUNS, RUNS, i -> query.get()).median();
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
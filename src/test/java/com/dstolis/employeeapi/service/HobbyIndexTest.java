@@ -0,0 +1,114 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.dstolis.employeeapi.exception.InvalidRequestException;
+import com.dstolis.employeeapi.model.dto.HobbyCount;
+import com.dstolis.employeeapi.model.dto.HobbyMatches;
+
+@ExtendWith(MockitoExtension.class)
+class HobbyIndexTest {
+
+    private static final UUID ALICE = UUID.randomUUID();
+
+    private static final UUID BOB = UUID.randomUUID();
+
+    private static final UUID CAROL = UUID.randomUUID();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HobbyIndex hobbyIndex;
+
+    @BeforeEach
+    void setup() {
+        hobbyIndex = new HobbyIndex(jdbcTemplate, transactionManager, 100, 1000);
+        hobbyIndex.put(ALICE, List.of("chess", "hiking", "yoga"));
+        hobbyIndex.put(BOB, List.of("hiking", "yoga"));
+        hobbyIndex.put(CAROL, List.of("chess"));
+    }
+
+    @Test
+    void countEmployeesByHobby_shouldReturnMostPopularHobbiesFirst() {
+        hobbyIndex.put(UUID.randomUUID(), List.of("hiking"));
+
+        assertEquals(List.of(new HobbyCount("hiking", 3), new HobbyCount("chess", 2), new HobbyCount("yoga", 2)),
+            hobbyIndex.countEmployeesByHobby());
+    }
+
+    @Test
+    void findEmployeesWithAllHobbies_shouldIntersect() {
+        var matches = hobbyIndex.findEmployeesWithAllHobbies(List.of("hiking", "chess"), 10);
+
+        assertEquals(new HobbyMatches(1, List.of(ALICE)), matches);
+        assertEquals(HobbyMatches.NONE, hobbyIndex.findEmployeesWithAllHobbies(List.of("hiking", "unknown"), 10));
+    }
+
+    @Test
+    void findEmployeesSharingHobbiesWith_shouldExcludeTheEmployeeItself() {
+        var matches = hobbyIndex.findEmployeesSharingHobbiesWith(BOB, 10);
+
+        assertEquals(new HobbyMatches(1, List.of(ALICE)), matches);
+        assertEquals(Set.of(BOB, CAROL),
+            Set.copyOf(hobbyIndex.findEmployeesSharingHobbiesWith(ALICE, 10).employeeIds()));
+    }
+
+    @Test
+    void findEmployees_shouldReturnAtMostLimitIdsButCountAll() {
+        var matches = hobbyIndex.findEmployeesSharingHobbiesWith(ALICE, 1);
+
+        assertEquals(2, matches.count());
+        assertEquals(1, matches.employeeIds().size());
+        assertThrows(InvalidRequestException.class, () -> hobbyIndex.findEmployeesSharingHobbiesWith(ALICE, 0));
+    }
+
+    @Test
+    void put_shouldReplaceAndRemoveHobbies() {
+        hobbyIndex.put(ALICE, List.of("chess"));
+        hobbyIndex.put(CAROL, List.of());
+
+        assertEquals(List.of(new HobbyCount("chess", 1), new HobbyCount("hiking", 1), new HobbyCount("yoga", 1)),
+            hobbyIndex.countEmployeesByHobby());
+        assertEquals(HobbyMatches.NONE, hobbyIndex.findEmployeesSharingHobbiesWith(CAROL, 10));
+        assertEquals(HobbyMatches.NONE, hobbyIndex.findEmployeesSharingHobbiesWith(ALICE, 10));
+    }
+
+    @Test
+    void compact_shouldRebuildOnceMoreThanAQuarterOfTheOrdinalsIsUnused() {
+        hobbyIndex.put(UUID.randomUUID(), List.of("hiking"));
+        hobbyIndex.put(BOB, List.of());
+        // Getting hobbies again makes the ordinal used again
+        hobbyIndex.put(CAROL, List.of());
+        hobbyIndex.put(CAROL, List.of("yoga"));
+
+        hobbyIndex.compact();
+        verify(jdbcTemplate, never()).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        hobbyIndex.removeAfterCommit(CAROL);
+        hobbyIndex.compact();
+        verify(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        // Rebuilt from the database, which the mock leaves empty
+        assertEquals(List.of(), hobbyIndex.countEmployeesByHobby());
+    }
+}
@@ -0,0 +1,186 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dstolis.employeeapi.service.IdempotencyStore.State;
+import com.dstolis.employeeapi.service.IdempotencyStore.StoredResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs two stores against the real {@code idempotency_key} table, standing in for two replicas. Neither is the store
+ * of the test context, so no heartbeat runs in between unless a test calls it.
+ */
+@SpringBootTest
+class IdempotencyStoreTest {
+
+    private static final String PRINCIPAL = "store-test";
+
+    private static final String OTHER_PRINCIPAL = "store-test-other";
+
+    private static final long TTL_SECONDS = 3600;
+
+    private static final long IN_PROGRESS_TIMEOUT_SECONDS = 60;
+
+    private static final byte[] REQUEST_HASH = "request".getBytes(StandardCharsets.UTF_8);
+
+    private static final StoredResponse CREATED =
+        new StoredResponse(200, "application/json", "\"1\"", "{}".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private IdempotencyStore replicaA;
+
+    private IdempotencyStore replicaB;
+
+    private String key;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE principal IN (?, ?)", PRINCIPAL, OTHER_PRINCIPAL);
+        replicaA = store();
+        replicaB = store();
+        key = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void claim_whileAnotherRequestRuns_shouldBeInProgress() {
+        assertEquals(State.ACQUIRED, replicaA.claim(PRINCIPAL, key, REQUEST_HASH).state());
+
+        assertEquals(State.IN_PROGRESS, replicaB.claim(PRINCIPAL, key, REQUEST_HASH).state());
+        assertEquals(State.MISMATCH, replicaB.claim(PRINCIPAL, key, "other".getBytes(StandardCharsets.UTF_8)).state());
+    }
+
+    @Test
+    void claim_afterComplete_shouldReplayOnEveryReplica() {
+        var claim = replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+        replicaA.complete(PRINCIPAL, key, claim.owner(), REQUEST_HASH, CREATED);
+
+        for (var replica : new IdempotencyStore[] {replicaA, replicaB}) {
+            var replay = replica.claim(PRINCIPAL, key, REQUEST_HASH);
+            assertEquals(State.REPLAY, replay.state());
+            assertEquals(CREATED.status(), replay.response().status());
+            assertArrayEquals(CREATED.body(), replay.response().body());
+        }
+    }
+
+    @Test
+    void claim_afterRelease_shouldBeAcquiredAgain() {
+        var claim = replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+        replicaA.release(PRINCIPAL, key, claim.owner());
+
+        assertEquals(State.ACQUIRED, replicaB.claim(PRINCIPAL, key, REQUEST_HASH).state());
+    }
+
+    @Test
+    void claim_ofOtherPrincipal_shouldNotSeeTheKey() {
+        var claim = replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+        replicaA.complete(PRINCIPAL, key, claim.owner(), REQUEST_HASH, CREATED);
+
+        assertEquals(State.ACQUIRED, replicaA.claim(OTHER_PRINCIPAL, key, REQUEST_HASH).state());
+        assertEquals(State.IN_PROGRESS, replicaB.claim(OTHER_PRINCIPAL, key, REQUEST_HASH).state());
+        assertEquals(State.REPLAY, replicaB.claim(PRINCIPAL, key, REQUEST_HASH).state());
+    }
+
+    @Test
+    void claim_afterLockRanOut_shouldTakeOverAndFenceOffTheFormerOwner() {
+        var staleClaim = replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+        // replica-a died without renewing the lock
+        expireLock();
+
+        var takeover = replicaB.claim(PRINCIPAL, key, REQUEST_HASH);
+        assertEquals(State.ACQUIRED, takeover.state());
+
+        // replica-a comes back, but neither its release nor its response count any more
+        replicaA.release(PRINCIPAL, key, staleClaim.owner());
+        assertEquals(State.IN_PROGRESS, replicaA.claim(PRINCIPAL, key, REQUEST_HASH).state());
+        replicaA.complete(PRINCIPAL, key, staleClaim.owner(), REQUEST_HASH,
+            new StoredResponse(400, null, null, null));
+        assertEquals(State.IN_PROGRESS, replicaA.claim(PRINCIPAL, key, REQUEST_HASH).state());
+
+        replicaB.complete(PRINCIPAL, key, takeover.owner(), REQUEST_HASH, CREATED);
+        var replay = replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+        assertEquals(State.REPLAY, replay.state());
+        assertEquals(CREATED.status(), replay.response().status());
+    }
+
+    @Test
+    void heartbeat_shouldKeepSlowRequestFromBeingTakenOver() {
+        replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+        // The request takes longer than the timeout
+        expireLock();
+
+        replicaA.heartbeat();
+
+        assertEquals(State.IN_PROGRESS, replicaB.claim(PRINCIPAL, key, REQUEST_HASH).state());
+        assertTrue(jdbcTemplate.queryForObject("""
+                SELECT locked_until > now() + make_interval(secs => ?)
+                FROM idempotency_key WHERE principal = ? AND idempotency_key = ?""",
+            Boolean.class, IN_PROGRESS_TIMEOUT_SECONDS / 2, PRINCIPAL, key));
+    }
+
+    @Test
+    void complete_whenResponseCannotBeStored_shouldNeverLetTheKeyBeTakenOver() {
+        var claim = replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+
+        // Longer than content_type holds
+        replicaA.complete(PRINCIPAL, key, claim.owner(), REQUEST_HASH,
+            new StoredResponse(200, "application/" + "x".repeat(300), null, null));
+        replicaA.heartbeat();
+
+        assertEquals(State.IN_PROGRESS, replicaA.claim(PRINCIPAL, key, REQUEST_HASH).state());
+        assertEquals(State.IN_PROGRESS, replicaB.claim(PRINCIPAL, key, REQUEST_HASH).state());
+        assertEquals("infinity", jdbcTemplate.queryForObject(
+            "SELECT locked_until::text FROM idempotency_key WHERE principal = ? AND idempotency_key = ?",
+            String.class, PRINCIPAL, key));
+    }
+
+    @Test
+    void deleteExpired_shouldOnlyDeleteKeysOlderThanTheTtl() {
+        var expiredKey = UUID.randomUUID().toString();
+        var expiredClaim = replicaA.claim(PRINCIPAL, expiredKey, REQUEST_HASH);
+        replicaA.complete(PRINCIPAL, expiredKey, expiredClaim.owner(), REQUEST_HASH, CREATED);
+        jdbcTemplate.update("""
+                UPDATE idempotency_key SET created_at = now() - make_interval(secs => ?)
+                WHERE principal = ? AND idempotency_key = ?""",
+            TTL_SECONDS + 60, PRINCIPAL, expiredKey);
+        replicaA.claim(PRINCIPAL, key, REQUEST_HASH);
+
+        replicaA.deleteExpired();
+
+        assertEquals(0, countKeys(expiredKey));
+        assertEquals(1, countKeys(key));
+        // replica-b never cached the response, so it runs the request again
+        assertEquals(State.ACQUIRED, replicaB.claim(PRINCIPAL, expiredKey, REQUEST_HASH).state());
+    }
+
+    private IdempotencyStore store() {
+        return new IdempotencyStore(jdbcTemplate, new SimpleMeterRegistry(), TTL_SECONDS, IN_PROGRESS_TIMEOUT_SECONDS,
+            100);
+    }
+
+    private void expireLock() {
+        jdbcTemplate.update("""
+                UPDATE idempotency_key SET locked_until = now() - INTERVAL '1 second'
+                WHERE principal = ? AND idempotency_key = ?""",
+            PRINCIPAL, key);
+    }
+
+    private int countKeys(final String idempotencyKey) {
+        return jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM idempotency_key WHERE principal = ? AND idempotency_key = ?", Integer.class,
+            PRINCIPAL, idempotencyKey);
+    }
+}
@@ -0,0 +1,95 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+/**
+ * Checks that a dead-lettered event holds back the later events of its aggregate, whether it is still in
+ * {@code outbox} or already moved to {@code outbox_dead_letter}, and nothing else.
+ */
+@OutboxSchemaTest
+class OutboxDeadLetterTest {
+
+    private static final String OWNER = "relay-test";
+
+    private static final int PARTITION_COUNT = 16;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime eventTime = LocalDateTime.now().minusMinutes(1);
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM outbox");
+        jdbcTemplate.update("DELETE FROM outbox_dead_letter");
+        jdbcTemplate.update("UPDATE outbox_lease SET owner = ?, lease_until = now() + interval '1 hour', epoch = 1",
+            OWNER);
+    }
+
+    @Test
+    void claimPendingBatch_shouldHoldBackLaterEventsOfAggregateWithFailedEvent() {
+        var blockedAggregate = UUID.randomUUID();
+        insertEvent(blockedAggregate, eventTime, "FAILED");
+        insertEvent(blockedAggregate, eventTime.plusSeconds(1), "PENDING");
+        var otherEvent = insertEvent(UUID.randomUUID(), eventTime.plusSeconds(1), "PENDING");
+
+        assertEquals(List.of(otherEvent), claim());
+    }
+
+    @Test
+    void claimPendingBatch_shouldHoldBackLaterEventsOfAggregateWithMovedDeadLetter() {
+        var blockedAggregate = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO outbox_dead_letter (id, aggregate_id, aggregate_type, event_type, payload, event_time,
+                                                attempts, last_error)
+                VALUES (?, ?, 'Employee', 'CREATED', ?, ?, 12, 'broker down')""",
+            UUID.randomUUID(), blockedAggregate, new byte[] {1}, eventTime);
+        insertEvent(blockedAggregate, eventTime.plusSeconds(1), "PENDING");
+
+        assertEquals(List.of(), claim());
+    }
+
+    @Test
+    void claimPendingBatch_shouldNotHoldBackEarlierEventsOfAggregateWithFailedEvent() {
+        var aggregateId = UUID.randomUUID();
+        var earlierEvent = insertEvent(aggregateId, eventTime, "PENDING");
+        insertEvent(aggregateId, eventTime.plusSeconds(1), "FAILED");
+
+        assertEquals(List.of(earlierEvent), claim());
+    }
+
+    private List<UUID> claim() {
+        return transactionTemplate.execute(status -> outboxRepository.claimPendingBatch(PARTITION_COUNT, OWNER, 1, 10)
+            .stream()
+            .map(OutboxEvent::getId)
+            .toList());
+    }
+
+    private UUID insertEvent(final UUID aggregateId, final LocalDateTime time, final String status) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO outbox (id, aggregate_id, aggregate_type, event_type, payload, event_time, status)
+                VALUES (?, ?, 'Employee', 'CREATED', ?, ?, ?)""",
+            id, aggregateId, new byte[] {1}, time, status);
+        return id;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+
+class OutboxEventCoalescerTest {
+
+    private final OutboxEventCoalescer coalescer = new OutboxEventCoalescer(true, false);
+
+    @Test
+    void coalesce_shouldKeepOnlyLastOfConsecutiveUpdates() {
+        var id = UUID.randomUUID();
+        var created = createEvent(id, "CREATED");
+        var lastUpdate = createEvent(id, "UPDATED");
+
+        var result = coalescer.coalesce(List.of(created, createEvent(id, "UPDATED"), createEvent(id, "UPDATED"),
+            lastUpdate));
+
+        assertEquals(List.of(created, lastUpdate), result);
+    }
+
+    @Test
+    void coalesce_shouldDropUpdatesBeforeDelete() {
+        var id = UUID.randomUUID();
+        var deleted = createEvent(id, "DELETED");
+
+        var result = coalescer.coalesce(List.of(createEvent(id, "UPDATED"), createEvent(id, "UPDATED"), deleted));
+
+        assertEquals(List.of(deleted), result);
+    }
+
+    @Test
+    void coalesce_whenCreatedAndDeletedInWindow_shouldKeepSingleDelete() {
+        var id = UUID.randomUUID();
+        var deleted = createEvent(id, "DELETED");
+
+        var result = coalescer.coalesce(List.of(createEvent(id, "CREATED"), createEvent(id, "UPDATED"), deleted));
+
+        assertEquals(List.of(deleted), result);
+    }
+
+    @Test
+    void coalesce_whenCreatedAndDeletedInWindowAndConfiguredToDrop_shouldKeepNothing() {
+        var id = UUID.randomUUID();
+
+        var result = new OutboxEventCoalescer(true, true).coalesce(
+            List.of(createEvent(id, "CREATED"), createEvent(id, "DELETED")));
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void coalesce_shouldPreserveOrderAcrossAggregates() {
+        var first = UUID.randomUUID();
+        var second = UUID.randomUUID();
+        var secondCreated = createEvent(second, "CREATED");
+        var firstUpdate = createEvent(first, "UPDATED");
+        var secondUpdate = createEvent(second, "UPDATED");
+
+        var result = coalescer.coalesce(List.of(createEvent(first, "UPDATED"), secondCreated, firstUpdate,
+            secondUpdate));
+
+        assertEquals(List.of(secondCreated, firstUpdate, secondUpdate), result);
+    }
+
+    @Test
+    void coalesce_whenDisabled_shouldReturnAllEvents() {
+        var id = UUID.randomUUID();
+        var events = List.of(createEvent(id, "UPDATED"), createEvent(id, "UPDATED"));
+
+        assertEquals(events, new OutboxEventCoalescer(false, false).coalesce(events));
+    }
+
+    private OutboxEvent createEvent(final UUID aggregateId, final String type) {
+        var event = new OutboxEvent(aggregateId, "Employee", type, new byte[0], OffsetDateTime.now(),
+            OutboxEvent.Status.PENDING);
+        event.setId(UUID.randomUUID());
+        return event;
+    }
+}
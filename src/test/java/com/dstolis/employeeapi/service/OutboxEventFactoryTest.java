@@ -0,0 +1,61 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.dstolis.employeeapi.model.dto.EmployeeEventCodec;
+import com.dstolis.employeeapi.model.entity.Employee;
+
+class OutboxEventFactoryTest {
+
+    @Test
+    void updated_whenThin_shouldOnlyCarryIdAndType() {
+        var employee = createEmployee();
+
+        var outboxEvent = new OutboxEventFactory(false).updated(employee);
+
+        var event = EmployeeEventCodec.decode(outboxEvent.getPayload());
+        assertEquals(employee.getId(), event.id());
+        assertNull(event.employee());
+        assertNull(event.version());
+    }
+
+    @Test
+    void updated_whenFullState_shouldCarrySnapshotAndVersion() {
+        var employee = createEmployee();
+
+        var outboxEvent = new OutboxEventFactory(true).updated(employee);
+
+        var event = EmployeeEventCodec.decode(outboxEvent.getPayload());
+        assertEquals(3L, event.version());
+        assertEquals(employee.getEmail(), event.employee().email());
+        assertEquals(employee.getHobbies(), event.employee().hobbies());
+        assertEquals("UPDATED", outboxEvent.getEventType());
+    }
+
+    @Test
+    void deleted_whenFullState_shouldBeTombstone() {
+        var outboxEvent = new OutboxEventFactory(true).deleted(UUID.randomUUID());
+
+        assertTrue(EmployeeEventCodec.isTombstone(outboxEvent.getPayload()));
+        assertEquals("DELETED", outboxEvent.getEventType());
+    }
+
+    private Employee createEmployee() {
+        var employee = new Employee();
+        employee.setId(UUID.randomUUID());
+        employee.setEmail("jane@example.com");
+        employee.setFullName("Jane Doe");
+        employee.setBirthday(LocalDate.of(1992, 3, 14));
+        employee.setHobbies(List.of("yoga", "football"));
+        employee.setVersion(3L);
+        return employee;
+    }
+}
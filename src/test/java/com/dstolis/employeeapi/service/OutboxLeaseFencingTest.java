@@ -0,0 +1,169 @@
+package com.dstolis.employeeapi.service;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dstolis.employeeapi.repository.OutboxLeaseRepository;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+/**
+ * Runs two lease managers against the real lease table, checking that they split the partitions, that a relay which
+ * stopped heartbeating loses its leases, and that a relay whose lease changed hands can no longer claim or mark events.
+ */
+@OutboxSchemaTest
+class OutboxLeaseFencingTest {
+
+    private static final int PARTITION_COUNT = 16;
+
+    private static final int TTL_SECONDS = 3;
+
+    private static boolean contextRelayStopped;
+
+    @Autowired
+    private OutboxLeaseManager contextLeaseManager;
+
+    @Autowired
+    private OutboxLeaseRepository leaseRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private OutboxLeaseManager relayA;
+
+    private OutboxLeaseManager relayB;
+
+    @BeforeEach
+    void setup() {
+        if (!contextRelayStopped) {
+            // The relay of the test context rebalances once at startup and then not again within the test
+            await().atMost(Duration.ofSeconds(30)).until(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_relay_member WHERE owner = ?", Long.class,
+                contextLeaseManager.getInstanceId()) == 1);
+            contextRelayStopped = true;
+        }
+        jdbcTemplate.update("UPDATE outbox_lease SET owner = NULL, lease_until = NULL");
+        jdbcTemplate.update("DELETE FROM outbox_relay_member");
+        jdbcTemplate.update("DELETE FROM outbox");
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        relayA = new OutboxLeaseManager(leaseRepository, transactionTemplate, "relay-a", TTL_SECONDS);
+        relayB = new OutboxLeaseManager(leaseRepository, transactionTemplate, "relay-b", TTL_SECONDS);
+    }
+
+    @Test
+    void rebalance_withTwoRelays_shouldSplitPartitionsAndTakeOverLeasesOfStoppedRelay() {
+        assertEquals(PARTITION_COUNT, relayA.rebalance().size());
+        // relay-b joins while relay-a still holds everything, so it only gets partitions once relay-a released them
+        assertEquals(List.of(), relayB.rebalance());
+        assertEquals(PARTITION_COUNT / 2, relayA.rebalance().size());
+        var partitionsB = relayB.rebalance();
+        var partitionsA = relayA.rebalance();
+
+        assertEquals(PARTITION_COUNT / 2, partitionsB.size());
+        var all = new HashSet<>(partitionsA);
+        all.addAll(partitionsB);
+        assertEquals(PARTITION_COUNT, all.size(), "Partitions owned twice: " + partitionsA + " " + partitionsB);
+
+        // relay-b stops heartbeating, relay-a picks up its partitions once they expired
+        await().atMost(Duration.ofSeconds(10)).until(() -> relayA.rebalance().size() == PARTITION_COUNT);
+        assertEquals(List.of(), leaseRepository.findOwnedPartitions("relay-b"));
+    }
+
+    @Test
+    void rebalance_whileBatchHoldsExpiredLeases_shouldNotTakeThemOver() {
+        relayA.rebalance();
+
+        var takenOverDuringBatch = transactionTemplate.execute(status -> {
+            var leases = relayA.renew();
+            assertEquals(PARTITION_COUNT, leases.partitions().size());
+            // The batch outlives its leases, for example because the broker is slow
+            sleepPastTtl();
+            return CompletableFuture.supplyAsync(relayB::rebalance).join();
+        });
+
+        assertEquals(List.of(), takenOverDuringBatch);
+        assertEquals(PARTITION_COUNT, relayB.rebalance().size());
+    }
+
+    @Test
+    void claimAndMark_afterLeaseChangedHands_shouldLeaveEventsToNewOwner() {
+        var eventId = insertPendingEvent();
+        relayA.rebalance();
+        var staleLeases = relayA.renew();
+
+        // relay-a stalls past its leases, relay-b takes them over with new epochs
+        sleepPastTtl();
+        relayB.rebalance();
+        var leasesB = relayB.renew();
+        assertTrue(leasesB.fencingToken() > staleLeases.fencingToken());
+
+        var claimedByStaleRelay = transactionTemplate.execute(status -> outboxRepository.claimPendingBatch(
+            PARTITION_COUNT, "relay-a", staleLeases.fencingToken(), 10));
+        var markedByStaleRelay = transactionTemplate.execute(status -> outboxRepository.markProcessed(
+            List.of(eventId), PARTITION_COUNT, "relay-a", staleLeases.fencingToken()));
+        assertEquals(List.of(), claimedByStaleRelay);
+        assertEquals(0, markedByStaleRelay);
+
+        var claimedByNewOwner = transactionTemplate.execute(status -> outboxRepository.claimPendingBatch(
+            PARTITION_COUNT, "relay-b", leasesB.fencingToken(), 10));
+        assertEquals(1, claimedByNewOwner.size());
+        assertEquals(eventId, claimedByNewOwner.get(0).getId());
+    }
+
+    @Test
+    void claim_shouldGiveEveryTakeoverHigherEpoch() {
+        relayA.rebalance();
+        var epochsA = epochs();
+        sleepPastTtl();
+        relayB.rebalance();
+        var epochsB = epochs();
+
+        IntStream.range(0, PARTITION_COUNT).forEach(partition -> assertTrue(
+            epochsB.get(partition) > epochsA.get(partition), "Epoch of partition " + partition + " did not grow"));
+    }
+
+    private List<Long> epochs() {
+        return jdbcTemplate.queryForList("SELECT epoch FROM outbox_lease ORDER BY partition_id", Long.class);
+    }
+
+    private UUID insertPendingEvent() {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO outbox (id, aggregate_id, aggregate_type, event_type, payload)
+                VALUES (?, ?, 'Employee', 'CREATED', ?)""",
+            id, UUID.randomUUID(), new byte[] {1});
+        return id;
+    }
+
+    private static void sleepPastTtl() {
+        try {
+            Thread.sleep(Duration.ofSeconds(TTL_SECONDS).plusMillis(500).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.dstolis.employeeapi.repository.OutboxLeaseRepository;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxLeaseManagerTest {
+
+    private static final String INSTANCE_ID = "relay-a";
+
+    private static final int TTL = 60;
+
+    @Mock
+    private OutboxLeaseRepository leaseRepository;
+
+    private OutboxLeaseManager leaseManager;
+
+    @BeforeEach
+    void setup() {
+        leaseManager = new OutboxLeaseManager(leaseRepository, TransactionOperations.withoutTransaction(),
+            INSTANCE_ID, TTL);
+        when(leaseRepository.count()).thenReturn(16L);
+    }
+
+    @Test
+    void rebalance_whenBelowFairShare_shouldClaimMissingPartitions() {
+        // Given two live relays and no partitions owned yet
+        when(leaseRepository.countActiveMembers()).thenReturn(2L);
+        when(leaseRepository.findOwnedPartitions(INSTANCE_ID)).thenReturn(List.of(),
+            List.of(0, 1, 2, 3, 4, 5, 6, 7));
+
+        // When
+        var partitions = leaseManager.rebalance();
+
+        // Then
+        verify(leaseRepository).heartbeat(INSTANCE_ID, TTL);
+        verify(leaseRepository).claim(INSTANCE_ID, TTL, 8);
+        verify(leaseRepository, never()).release(anyString(), anyInt());
+        assertEquals(8, partitions.size());
+        assertEquals(16, leaseManager.getPartitionCount());
+    }
+
+    @Test
+    void rebalance_whenAnotherRelayJoins_shouldReleaseSurplusPartitions() {
+        // Given a relay owning everything while a second one is alive
+        var all = List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+        when(leaseRepository.countActiveMembers()).thenReturn(2L);
+        when(leaseRepository.findOwnedPartitions(INSTANCE_ID)).thenReturn(all, all.subList(0, 8));
+
+        // When
+        var partitions = leaseManager.rebalance();
+
+        // Then
+        verify(leaseRepository).release(INSTANCE_ID, 8);
+        verify(leaseRepository, never()).claim(anyString(), anyInt(), anyInt());
+        assertEquals(all.subList(0, 8), partitions);
+    }
+
+    @Test
+    void rebalance_whenAtFairShare_shouldOnlyRenew() {
+        var owned = List.of(0, 1, 2, 3, 4, 5);
+        when(leaseRepository.countActiveMembers()).thenReturn(3L);
+        when(leaseRepository.findOwnedPartitions(INSTANCE_ID)).thenReturn(owned);
+
+        // When
+        var partitions = leaseManager.rebalance();
+
+        // Then
+        verify(leaseRepository).renew(INSTANCE_ID, TTL);
+        verify(leaseRepository, never()).claim(anyString(), anyInt(), anyInt());
+        verify(leaseRepository, never()).release(anyString(), anyInt());
+        assertEquals(owned, partitions);
+    }
+
+    @Test
+    void renew_beforeFirstRebalance_shouldReadPartitionCount() {
+        // Given leases still held from before a restart with the same instance id
+        when(leaseRepository.findOwnedPartitions(INSTANCE_ID)).thenReturn(List.of(3, 4));
+        when(leaseRepository.findFencingToken(INSTANCE_ID)).thenReturn(7L);
+
+        // When
+        var leases = leaseManager.renew();
+
+        // Then
+        assertEquals(new OutboxLeaseManager.Leases(16, List.of(3, 4), 7), leases);
+    }
+}
@@ -0,0 +1,97 @@
+package com.dstolis.employeeapi.service;
+
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Runs a listener against the real database with a relay stub that never polls, so every relay run has to come from a
+ * notification or from the catch-up after (re)connecting.
+ */
+@SpringBootTest
+class OutboxNotificationListenerTest {
+
+    private static final String APPLICATION_NAME = "outbox-listener-test";
+
+    private static final long WAKEUP_MILLIS = 5000;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private PublisherService publisherService;
+
+    private OutboxNotificationListener listener;
+
+    private UUID aggregateId;
+
+    @BeforeEach
+    void setup() {
+        aggregateId = UUID.randomUUID();
+        publisherService = mock(PublisherService.class);
+
+        // Named connection, so that the test can terminate it without touching the listeners of other contexts
+        var listenerProperties = new DataSourceProperties();
+        listenerProperties.setUrl(dataSourceProperties.determineUrl()
+            + (dataSourceProperties.determineUrl().contains("?") ? "&" : "?") + "ApplicationName=" + APPLICATION_NAME);
+        listenerProperties.setUsername(dataSourceProperties.determineUsername());
+        listenerProperties.setPassword(dataSourceProperties.determinePassword());
+        listener = new OutboxNotificationListener(listenerProperties, publisherService, 100);
+        listener.start();
+
+        // Catches up once connected
+        verify(publisherService, timeout(WAKEUP_MILLIS).atLeast(1)).publishEvents();
+    }
+
+    @AfterEach
+    void cleanup() {
+        listener.stop();
+        jdbcTemplate.update("DELETE FROM outbox WHERE aggregate_id = ?", aggregateId);
+    }
+
+    @Test
+    void insert_shouldWakeRelayWithoutWaitingForPoll() {
+        insertEvent();
+
+        verify(publisherService, timeout(WAKEUP_MILLIS).atLeast(2)).publishEvents();
+    }
+
+    @Test
+    void connectionLoss_shouldReconnectCatchUpAndListenAgain() {
+        await().atMost(Duration.ofSeconds(5)).until(() -> terminateListenerConnection() > 0);
+
+        // Catches up after reconnecting, then wakes up on the next insert again
+        verify(publisherService, timeout(WAKEUP_MILLIS).atLeast(2)).publishEvents();
+        insertEvent();
+        verify(publisherService, timeout(WAKEUP_MILLIS).atLeast(3)).publishEvents();
+    }
+
+    private void insertEvent() {
+        // Already processed, so that the relays of other test contexts leave it alone
+        jdbcTemplate.update("""
+                INSERT INTO outbox (id, aggregate_id, aggregate_type, event_type, payload, status)
+                VALUES (?, ?, 'Employee', 'CREATED', ?, 'PROCESSED')""",
+            UUID.randomUUID(), aggregateId, new byte[] {1});
+    }
+
+    private int terminateListenerConnection() {
+        return jdbcTemplate.queryForList("""
+                SELECT pg_terminate_backend(pid) FROM pg_stat_activity
+                WHERE application_name = ? AND query LIKE 'LISTEN%'""",
+            Boolean.class, APPLICATION_NAME).size();
+    }
+}
@@ -0,0 +1,155 @@
+package com.dstolis.employeeapi.service;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.Latencies;
+import com.dstolis.employeeapi.repository.OutboxLeaseRepository;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Relays the same backlog of outbox events to an embedded broker twice: once sending every event only after the
+ * previous one was acknowledged, the way a single ordered send path works, and once with the pipelined send of
+ * {@link PublisherService}. Logs the events per second of both and asserts that pipelining is at least five times
+ * faster. Run with {@code ./gradlew largeTest}.
+ */
+@LargeTest
+@SpringBootTest
+@EmbeddedKafka(partitions = 8, topics = PublisherService.TOPIC,
+    brokerProperties = {"listeners=PLAINTEXT://localhost:9092", "port=9092"})
+class OutboxRelayLargeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelayLargeTest.class);
+
+    /** Every aggregate gets a created and an updated event, which coalescing keeps both */
+    private static final int AGGREGATES = 10_000;
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final double MIN_SPEEDUP = 5;
+
+    private static boolean contextRelayStopped;
+
+    @Autowired
+    private OutboxLeaseManager contextLeaseManager;
+
+    @Autowired
+    private OutboxLeaseRepository leaseRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private ProducerFactory<String, byte[]> producerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void cleanup() {
+        resetLeases();
+        LargeTestData.deleteAll(jdbcTemplate);
+    }
+
+    @Test
+    void publishEvents_pipelined_shouldBeFiveTimesFasterThanOneEventAtATime() {
+        // A template that waits for every acknowledgement before the relay may send the next event
+        var oneAtATimeTemplate = new KafkaTemplate<>(producerFactory) {
+            @Override
+            public CompletableFuture<SendResult<String, byte[]>> send(final String topic, final String key,
+                final byte[] data) {
+                var ack = super.send(topic, key, data);
+                try {
+                    ack.join();
+                } catch (CompletionException e) {
+                    // The relay reads the failure from the future
+                }
+                return ack;
+            }
+        };
+        double oneAtATimeEventsPerSecond = relay("one-at-a-time", oneAtATimeTemplate);
+        double pipelinedEventsPerSecond = relay("pipelined", kafkaTemplate);
+
+        double speedup = pipelinedEventsPerSecond / oneAtATimeEventsPerSecond;
+        LOGGER.info("Outbox relay: one event at a time {} events/s, pipelined {} events/s, speedup {}",
+            String.format("%.0f", oneAtATimeEventsPerSecond), String.format("%.0f", pipelinedEventsPerSecond),
+            String.format("%.1f", speedup));
+        assertTrue(speedup >= MIN_SPEEDUP, "Pipelined relay is only " + speedup + " times faster");
+    }
+
+    /**
+     * Seeds the backlog and drains it with a relay of its own that holds every lease.
+     *
+     * @return events relayed per second
+     */
+    private double relay(final String instanceId, final KafkaTemplate<String, byte[]> template) {
+        resetLeases();
+        LargeTestData.deleteAll(jdbcTemplate);
+        jdbcTemplate.update("""
+            INSERT INTO outbox (id, aggregate_id, aggregate_type, event_type, payload, event_time)
+            SELECT gen_random_uuid(), a.id, 'Employee', t.type,
+                   '\\x01'::bytea || t.code || uuid_send(a.id),
+                   localtimestamp - make_interval(secs => 2 * (? - g) + 1 - t.n)
+            FROM (SELECT g, gen_random_uuid() AS id FROM generate_series(1, ?) g) a
+                     CROSS JOIN (VALUES (0, 'CREATED', '\\x01'::bytea),
+                                        (1, 'UPDATED', '\\x02'::bytea)) t (n, type, code)
+            """, AGGREGATES, AGGREGATES);
+        jdbcTemplate.execute("ANALYZE outbox");
+
+        var leaseManager = new OutboxLeaseManager(leaseRepository, transactionOperations, instanceId, 600);
+        leaseManager.rebalance();
+        var relay = new PublisherService(template, outboxRepository, transactionOperations, leaseManager,
+            new OutboxEventCoalescer(true, false), new OutboxMetrics(new SimpleMeterRegistry(), outboxRepository),
+            new OutboxRetryPolicy(12, 1, 900), BATCH_SIZE, 30_000);
+        try {
+            long nanos = Latencies.time(relay::publishEvents);
+            assertEquals(0, outboxRepository.countPending());
+            return 2.0 * AGGREGATES / (nanos / 1e9);
+        } finally {
+            relay.shutdown();
+            leaseManager.releaseAll();
+        }
+    }
+
+    private void resetLeases() {
+        if (!contextRelayStopped) {
+            // The relay of the test context rebalances once at startup and then not again within the test
+            await().atMost(Duration.ofSeconds(30)).until(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_relay_member WHERE owner = ?", Long.class,
+                contextLeaseManager.getInstanceId()) == 1);
+            contextRelayStopped = true;
+        }
+        jdbcTemplate.update("UPDATE outbox_lease SET owner = NULL, lease_until = NULL");
+        jdbcTemplate.update("DELETE FROM outbox_relay_member");
+    }
+}
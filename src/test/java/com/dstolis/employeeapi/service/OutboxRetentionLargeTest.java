@@ -0,0 +1,141 @@
+package com.dstolis.employeeapi.service;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.dstolis.employeeapi.LargeTest;
+import com.dstolis.employeeapi.LargeTestData;
+import com.dstolis.employeeapi.Latencies;
+import com.dstolis.employeeapi.repository.OutboxLeaseRepository;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+/**
+ * Claims relay batches from a thousand pending events while the processed events of the last days grow to ten
+ * million, logs the latency at every step and asserts that its median stays within twice the median without processed
+ * events, plus a millisecond. Then drops the expired partitions and logs how long that took. Run with
+ * {@code ./gradlew largeTest}.
+ */
+@LargeTest
+@SpringBootTest
+class OutboxRetentionLargeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRetentionLargeTest.class);
+
+    private static final int[] PROCESSED_ROWS = {0, 1_000_000, 10_000_000};
+
+    private static final int PENDING_ROWS = 1_000;
+
+    private static final int DAYS = 5;
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final int RUNS = 50;
+
+    private static boolean contextRelayStopped;
+
+    @Autowired
+    private OutboxLeaseManager contextLeaseManager;
+
+    @Autowired
+    private OutboxLeaseRepository leaseRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private OutboxRetentionService retentionService;
+
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void cleanup() {
+        if (!contextRelayStopped) {
+            // The relay of the test context rebalances once at startup and then not again within the test
+            await().atMost(Duration.ofSeconds(30)).until(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_relay_member WHERE owner = ?", Long.class,
+                contextLeaseManager.getInstanceId()) == 1);
+            contextRelayStopped = true;
+        }
+        jdbcTemplate.update("UPDATE outbox_lease SET owner = NULL, lease_until = NULL");
+        jdbcTemplate.update("DELETE FROM outbox_relay_member");
+        LargeTestData.deleteAll(jdbcTemplate);
+        retentionService.dropExpiredPartitions(LocalDate.now());
+    }
+
+    @Test
+    void claimPendingBatch_shouldStayFlatWhileProcessedEventsGrowToTenMillion() {
+        var today = LocalDate.now();
+        retentionService.createUpcomingPartitions(today.minusDays(DAYS));
+        insertEvents(PENDING_ROWS, "PENDING", 0, 0);
+        var leaseManager = new OutboxLeaseManager(leaseRepository, transactionOperations, "claim-benchmark", 3600);
+        leaseManager.rebalance();
+
+        Latencies baseline = null;
+        int inserted = 0;
+        for (var processedRows : PROCESSED_ROWS) {
+            insertEvents(processedRows - inserted, "PROCESSED", DAYS, 1);
+            inserted = processedRows;
+            jdbcTemplate.execute("ANALYZE outbox");
+
+            var latencies = Latencies.measure(5, RUNS, i -> claim(leaseManager));
+            LOGGER.info("Claim of {} pending events next to {} processed ones: {}", BATCH_SIZE, processedRows,
+                latencies);
+            if (baseline == null) {
+                baseline = latencies;
+            }
+            assertTrue(latencies.median() < 2 * baseline.median() + TimeUnit.MILLISECONDS.toNanos(1),
+                "Claim next to " + processedRows + " processed events: " + latencies + ", baseline: " + baseline);
+        }
+
+        long dropNanos = Latencies.time(() -> retentionService.dropExpiredPartitions(today));
+        LOGGER.info("Dropped {} days of {} processed events in {} ms", DAYS, inserted,
+            TimeUnit.NANOSECONDS.toMillis(dropNanos));
+        assertEquals(PENDING_ROWS, jdbcTemplate.queryForObject("SELECT count(*) FROM outbox", Integer.class));
+        leaseManager.releaseAll();
+    }
+
+    /**
+     * Claims a batch and rolls back, so that every run finds the same pending events.
+     */
+    private void claim(final OutboxLeaseManager leaseManager) {
+        var claimed = transactionOperations.execute(status -> {
+            status.setRollbackOnly();
+            var leases = leaseManager.renew();
+            return outboxRepository.claimPendingBatch(leases.partitionCount(), leaseManager.getInstanceId(),
+                leases.fencingToken(), BATCH_SIZE).size();
+        });
+        assertEquals(BATCH_SIZE, claimed);
+    }
+
+    /**
+     * Spreads the events evenly over the {@code days} days before today, or puts them on today with no days.
+     */
+    private void insertEvents(final int rows, final String status, final int days, final int firstDayBack) {
+        jdbcTemplate.update("""
+                INSERT INTO outbox (id, aggregate_id, aggregate_type, event_type, payload, event_time, status)
+                SELECT gen_random_uuid(), gen_random_uuid(), 'Employee', 'CREATED', '\\x01'::bytea,
+                       current_date - make_interval(days => ? + g % greatest(?, 1)) + INTERVAL '1 hour', ?
+                FROM generate_series(1, ?) g""",
+            firstDayBack, days, status, rows);
+    }
+}
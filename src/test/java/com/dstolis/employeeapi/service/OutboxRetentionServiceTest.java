@@ -0,0 +1,135 @@
+package com.dstolis.employeeapi.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dstolis.employeeapi.Latencies;
+
+/**
+ * Creates and drops daily partitions far in the future, where no other test writes events, and checks that a detach
+ * waiting for its lock holds up outbox writes only until its lock timeout.
+ */
+@OutboxSchemaTest
+class OutboxRetentionServiceTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2100, 1, 1);
+
+    @Autowired
+    private OutboxRetentionService retentionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.update("DELETE FROM outbox");
+        jdbcTemplate.update("DELETE FROM outbox_dead_letter");
+    }
+
+    @Test
+    void createUpcomingPartitions_shouldCreateDailyPartitionsThatReceiveTheirEvents() {
+        retentionService.createUpcomingPartitions(FIRST_DAY);
+        // Creating them again is a no-op
+        retentionService.createUpcomingPartitions(FIRST_DAY);
+
+        for (int i = 0; i <= 7; i++) {
+            assertTrue(partitionExists(FIRST_DAY.plusDays(i)), "Missing partition of " + FIRST_DAY.plusDays(i));
+        }
+        var id = insertEvent(FIRST_DAY.plusDays(2), "PENDING");
+        assertEquals("outbox_p21000103", jdbcTemplate.queryForObject(
+            "SELECT tableoid::regclass::text FROM outbox WHERE id = ?", String.class, id));
+    }
+
+    @Test
+    void dropExpiredPartitions_shouldDropOnlyExpiredPartitionsWithoutPendingEvents() {
+        retentionService.createUpcomingPartitions(FIRST_DAY);
+        insertEvent(FIRST_DAY.plusDays(1), "PROCESSED");
+        var pendingId = insertEvent(FIRST_DAY.plusDays(2), "PENDING");
+
+        retentionService.dropExpiredPartitions(FIRST_DAY.plusDays(3));
+
+        assertFalse(partitionExists(FIRST_DAY));
+        assertFalse(partitionExists(FIRST_DAY.plusDays(1)));
+        assertTrue(partitionExists(FIRST_DAY.plusDays(2)), "Partition with a pending event was dropped");
+        assertTrue(partitionExists(FIRST_DAY.plusDays(3)), "Partition inside the retention period was dropped");
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM outbox WHERE id = ?", Integer.class,
+            pendingId));
+        assertTrue(jdbcTemplate.queryForObject("SELECT to_regclass('outbox_default') IS NOT NULL", Boolean.class),
+            "The default partition must never be dropped");
+    }
+
+    @Test
+    void dropExpiredPartitions_shouldMoveDeadLetteredEventsOutAndDropTheirPartition() {
+        retentionService.createUpcomingPartitions(FIRST_DAY);
+        insertEvent(FIRST_DAY, "PROCESSED");
+        var failedId = insertEvent(FIRST_DAY, "FAILED");
+
+        retentionService.dropExpiredPartitions(FIRST_DAY.plusDays(1));
+
+        assertFalse(partitionExists(FIRST_DAY), "Partition with a dead-lettered event was kept");
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_dead_letter WHERE id = ?",
+            Integer.class, failedId));
+    }
+
+    @Test
+    void dropExpiredPartitions_whileOutboxIsLocked_shouldKeepPartitionAndHoldUpWritesOnlyBriefly() {
+        retentionService.createUpcomingPartitions(FIRST_DAY);
+        insertEvent(FIRST_DAY, "PROCESSED");
+        var impatientRetention = new OutboxRetentionService(jdbcTemplate, 7, 7, 100, 3);
+
+        var writeNanos = new ArrayList<Long>();
+        transactionTemplate.executeWithoutResult(status -> {
+            // An open transaction writing to outbox, such as a relay batch, keeps the detach from getting its lock
+            jdbcTemplate.execute("LOCK TABLE outbox IN ROW EXCLUSIVE MODE");
+            var retention = CompletableFuture.runAsync(
+                () -> impatientRetention.dropExpiredPartitions(FIRST_DAY.plusDays(1)));
+            // Writes queue behind the waiting detach, but only until its lock timeout
+            while (!retention.isDone()) {
+                writeNanos.add(Latencies.time(() -> CompletableFuture.runAsync(
+                    () -> insertEvent(FIRST_DAY.plusDays(5), "PROCESSED")).join()));
+            }
+            retention.join();
+        });
+
+        assertTrue(partitionExists(FIRST_DAY), "Partition was detached while outbox was locked");
+        var slowestWriteMillis = TimeUnit.NANOSECONDS.toMillis(Collections.max(writeNanos));
+        assertTrue(slowestWriteMillis < 1000, "A write waited " + slowestWriteMillis + " ms for the detach");
+
+        // The next run gets the lock
+        retentionService.dropExpiredPartitions(FIRST_DAY.plusDays(1));
+        assertFalse(partitionExists(FIRST_DAY));
+    }
+
+    private boolean partitionExists(final LocalDate day) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+            "outbox_p" + day.toString().replace("-", ""));
+    }
+
+    private UUID insertEvent(final LocalDate day, final String status) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO outbox (id, aggregate_id, aggregate_type, event_type, payload, event_time, status)
+                VALUES (?, ?, 'Employee', 'CREATED', ?, ?, ?)""",
+            id, UUID.randomUUID(), new byte[] {1}, LocalDateTime.of(day, LocalTime.NOON), status);
+        return id;
+    }
+}
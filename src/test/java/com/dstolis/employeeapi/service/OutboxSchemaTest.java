@@ -0,0 +1,25 @@
+package com.dstolis.employeeapi.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs a test against an {@code outbox_test} schema of its own, migrated by Flyway like the default one. Tests that
+ * rebalance leases or create and drop outbox partitions use it, so that neither the relays of other cached test
+ * contexts nor their events get in the way. The relay of the test context itself only runs once at startup.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:postgresql://localhost:5443/employee?currentSchema=outbox_test,public",
+    "spring.flyway.schemas=outbox_test",
+    "spring.flyway.default-schema=outbox_test",
+    "outbox.relay.rebalance-interval-seconds=3600",
+    "outbox.relay.poll-interval-seconds=3600",
+    "outbox.relay.listen.enabled=false"})
+@interface OutboxSchemaTest {
+}
@@ -0,0 +1,197 @@
+package com.dstolis.employeeapi.service;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.dstolis.employeeapi.model.entity.OutboxEvent;
+import com.dstolis.employeeapi.repository.OutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Publishes a batch against a broker stub that only acknowledges once the test says so, checking that the next event
+ * of every aggregate is sent at once, that an event is only sent after the previous one of its aggregate was
+ * acknowledged, and that nothing after a failed event of an aggregate is sent.
+ */
+@ExtendWith(MockitoExtension.class)
+class PublisherServiceAsyncSendTest {
+
+    private static final int AGGREGATES = 64;
+
+    private static final int EVENTS_PER_AGGREGATE = 5;
+
+    private static final int BATCH_SIZE = AGGREGATES * EVENTS_PER_AGGREGATE + 1;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private OutboxLeaseManager leaseManager;
+
+    private PublisherService publisherService;
+
+    private final Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+
+    private final List<CompletableFuture<Object>> pendingAcks = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        publisherService = new PublisherService(kafkaTemplate, outboxRepository,
+            TransactionOperations.withoutTransaction(), leaseManager, new OutboxEventCoalescer(false, false),
+            new OutboxMetrics(new SimpleMeterRegistry(), outboxRepository), new OutboxRetryPolicy(3, 1, 60),
+            BATCH_SIZE, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisherService.shutdown();
+    }
+
+    @Test
+    void publishEvents_shouldSendNextEventOfEveryAggregateAtOnceAndKeepOrderWithinEveryAggregate() {
+        var batch = createBatch();
+        stubRelay(batch);
+        when(outboxRepository.markProcessed(any(), anyInt(), anyString(), anyLong())).thenReturn(batch.size());
+
+        // Act
+        var relay = CompletableFuture.runAsync(publisherService::publishEvents);
+
+        // Assert: every round holds one event of every aggregate, sent while none of them is acknowledged yet
+        for (int round = 1; round <= EVENTS_PER_AGGREGATE; round++) {
+            var expected = round * AGGREGATES;
+            await().atMost(Duration.ofSeconds(5)).until(() -> pendingAcks.size() == expected);
+            ackShuffled(ack -> ack.complete(null));
+        }
+        relay.join();
+
+        assertEquals(AGGREGATES, received.size());
+        assertOrderedWithinEveryAggregate(received);
+        verify(outboxRepository).markProcessed(eq(batch.stream().map(OutboxEvent::getId).toList()), eq(1),
+            eq("relay-a"), eq(1L));
+    }
+
+    @Test
+    void publishEvents_whenFirstRoundFails_shouldNotSendLaterEventsOfFailedAggregates() {
+        var batch = createBatch();
+        stubRelay(batch);
+        when(outboxRepository.markProcessed(any(), anyInt(), anyString(), anyLong()))
+            .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+
+        // Act
+        var relay = CompletableFuture.runAsync(publisherService::publishEvents);
+
+        // Assert: the broker fails every other aggregate in the first round, those see no further event
+        await().atMost(Duration.ofSeconds(5)).until(() -> pendingAcks.size() == AGGREGATES);
+        for (int i = 0; i < AGGREGATES; i++) {
+            if (i % 2 == 0) {
+                pendingAcks.get(i).completeExceptionally(new IllegalStateException("broker down"));
+            } else {
+                pendingAcks.get(i).complete(null);
+            }
+        }
+        for (int round = 2; round <= EVENTS_PER_AGGREGATE; round++) {
+            var expected = AGGREGATES + (round - 1) * AGGREGATES / 2;
+            await().atMost(Duration.ofSeconds(5)).until(() -> pendingAcks.size() == expected);
+            ackShuffled(ack -> ack.complete(null));
+        }
+        relay.join();
+
+        var failedAggregates = AGGREGATES / 2;
+        assertEquals(failedAggregates, received.values().stream().filter(sequences -> sequences.size() == 1).count());
+        assertEquals(AGGREGATES - failedAggregates,
+            received.values().stream().filter(sequences -> sequences.size() == EVENTS_PER_AGGREGATE).count());
+        verify(outboxRepository).scheduleRetry(argThat(ids -> ids.size() == failedAggregates),
+            contains("broker down"), anyLong(), anyLong());
+        verify(outboxRepository).scheduleRetry(
+            argThat(ids -> ids.size() == failedAggregates * (EVENTS_PER_AGGREGATE - 1)),
+            eq("An earlier event of the aggregate failed"), anyLong(), anyLong());
+    }
+
+    private void stubRelay(final List<OutboxEvent> batch) {
+        when(leaseManager.renew()).thenReturn(new OutboxLeaseManager.Leases(1, List.of(0), 1));
+        when(leaseManager.getInstanceId()).thenReturn("relay-a");
+        when(outboxRepository.claimPendingBatch(anyInt(), anyString(), anyLong(), anyInt()))
+            .thenReturn(batch, List.of());
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class))).thenAnswer(invocation -> {
+            String key = invocation.getArgument(1);
+            byte[] value = invocation.getArgument(2);
+            received.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(ByteBuffer.wrap(value).getInt());
+            var ack = new CompletableFuture<Object>();
+            pendingAcks.add(ack);
+            return ack;
+        });
+    }
+
+    /**
+     * Completes the acknowledgements still pending in random order.
+     */
+    private void ackShuffled(final Consumer<CompletableFuture<Object>> completion) {
+        var acks = new ArrayList<>(pendingAcks.stream().filter(ack -> !ack.isDone()).toList());
+        Collections.shuffle(acks);
+        acks.forEach(completion);
+    }
+
+    private static void assertOrderedWithinEveryAggregate(final Map<String, List<Integer>> received) {
+        received.forEach((aggregateId, sequences) -> {
+            for (int i = 1; i < sequences.size(); i++) {
+                assertTrue(sequences.get(i - 1) < sequences.get(i),
+                    "Events of aggregate " + aggregateId + " were reordered: " + sequences);
+            }
+            assertEquals(EVENTS_PER_AGGREGATE, sequences.size());
+        });
+    }
+
+    private static List<OutboxEvent> createBatch() {
+        var aggregateIds = new ArrayList<UUID>();
+        for (int i = 0; i < AGGREGATES; i++) {
+            aggregateIds.add(UUID.randomUUID());
+        }
+        var batch = new ArrayList<OutboxEvent>();
+        var eventTime = OffsetDateTime.now();
+        for (int sequence = 0; sequence < EVENTS_PER_AGGREGATE; sequence++) {
+            for (var aggregateId : aggregateIds) {
+                var payload = ByteBuffer.allocate(Integer.BYTES).putInt(sequence).array();
+                var event = new OutboxEvent(aggregateId, "Employee", "UPDATED", payload, eventTime,
+                    OutboxEvent.Status.PENDING);
+                event.setId(UUID.randomUUID());
+                batch.add(event);
+            }
+        }
+        return batch;
+    }
+}
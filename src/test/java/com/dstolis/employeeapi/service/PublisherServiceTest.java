@@ -1,8 +1,14 @@
-
 package com.dstolis.employeeapi.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -10,50 +16,237 @@ import static org.mockito.Mockito.when;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionOperations;
 
 import com.dstolis.employeeapi.model.entity.OutboxEvent;
 import com.dstolis.employeeapi.repository.OutboxRepository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class PublisherServiceTest {
 
+    private static final int BATCH_SIZE = 3;
+
+    private static final int PARTITION_COUNT = 16;
+
+    private static final byte[] PAYLOAD = {1, 2, 3};
+
+    private static final String INSTANCE_ID = "relay-a";
+
+    private static final long FENCING_TOKEN = 42;
+
+    private static final OutboxLeaseManager.Leases LEASES =
+        new OutboxLeaseManager.Leases(PARTITION_COUNT, List.of(0, 1), FENCING_TOKEN);
+
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
 
     @Mock
     private OutboxRepository outboxRepository;
 
-    @InjectMocks
+    @Mock
+    private OutboxLeaseManager leaseManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private PublisherService publisherService;
 
+    @AfterEach
+    void tearDown() {
+        publisherService.shutdown();
+    }
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        publisherService = new PublisherService(kafkaTemplate, outboxRepository,
+            TransactionOperations.withoutTransaction(), leaseManager, new OutboxEventCoalescer(true, false),
+            new OutboxMetrics(meterRegistry, outboxRepository), new OutboxRetryPolicy(3, 1, 60), BATCH_SIZE, 1000);
+    }
+
     @Test
-    void publishEvents_whenThereArePendingEvents_shouldPublishEachEvent() {
-        var eventId = UUID.randomUUID();
-        var createdEvent = new OutboxEvent(eventId, "Employee", "CREATED", "Event Payload", OffsetDateTime.now(), OutboxEvent.Status.PENDING);
-        var updatedEvent = new OutboxEvent(eventId, "Employee", "UPDATED", "Event Payload", OffsetDateTime.now(), OutboxEvent.Status.PENDING);
-        var deletedEvent = new OutboxEvent(eventId, "Employee", "DELETED", "Event Payload", OffsetDateTime.now(), OutboxEvent.Status.PENDING);
+    void publishEvents_whenNoPartitionIsLeased_shouldNotClaimEvents() {
+        when(leaseManager.renew()).thenReturn(new OutboxLeaseManager.Leases(0, List.of(), 0));
 
-        var pendingEvents = List.of(createdEvent, updatedEvent, deletedEvent);
+        // Act
+        publisherService.publishEvents();
 
-        when(outboxRepository.findAllByStatus(OutboxEvent.Status.PENDING)).thenReturn(pendingEvents);
+        // Assert
+        verify(outboxRepository, never()).claimPendingBatch(anyInt(), anyString(), anyLong(), anyInt());
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any(byte[].class));
+    }
+
+    @Test
+    void publishEvents_whenThereArePendingEvents_shouldPublishKeyedBatchAndMarkItProcessed() {
+        var aggregateId = UUID.randomUUID();
+        var createdEvent = createEvent(aggregateId, "CREATED");
+        var updatedEvent = createEvent(aggregateId, "UPDATED");
+
+        stubLeases();
+        when(outboxRepository.claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE))
+            .thenReturn(List.of(createdEvent, updatedEvent));
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+            .thenReturn(CompletableFuture.completedFuture(null));
 
         // Act
         publisherService.publishEvents();
 
         // Assert
-        verify(outboxRepository, times(1)).findAllByStatus(OutboxEvent.Status.PENDING);
-        verify(kafkaTemplate, times(3)).send("employee-events", "Event Payload");
-        verify(outboxRepository, times(3)).save(any(OutboxEvent.class));
+        verify(outboxRepository, times(1)).claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE);
+        verify(kafkaTemplate, times(2)).send("employee-events", aggregateId.toString(), PAYLOAD);
+        verify(outboxRepository, times(1)).markProcessed(List.of(createdEvent.getId(), updatedEvent.getId()),
+            PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN);
+    }
+
+    @Test
+    void publishEvents_whenEventsAreSuperseded_shouldSendOnlyLatestAndMarkAllProcessed() {
+        var aggregateId = UUID.randomUUID();
+        var firstUpdate = createEvent(aggregateId, "UPDATED");
+        var secondUpdate = createEvent(aggregateId, "UPDATED");
+        var lastUpdate = createEvent(aggregateId, "UPDATED");
+
+        stubLeases();
+        when(outboxRepository.claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE))
+            .thenReturn(List.of(firstUpdate, secondUpdate, lastUpdate), List.of());
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+            .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Act
+        publisherService.publishEvents();
+
+        // Assert
+        verify(kafkaTemplate, times(1)).send("employee-events", aggregateId.toString(), PAYLOAD);
+        verify(outboxRepository, times(1)).markProcessed(
+            List.of(firstUpdate.getId(), secondUpdate.getId(), lastUpdate.getId()), PARTITION_COUNT, INSTANCE_ID,
+            FENCING_TOKEN);
+        assertEquals(2.0, meterRegistry.get("outbox.coalesced.events").counter().count());
+        assertEquals(1L, meterRegistry.get("outbox.publish.latency").timer().count());
+    }
+
+    @Test
+    void publishEvents_whenBatchIsFull_shouldClaimNextBatch() {
+        var firstBatch = List.of(createEvent(UUID.randomUUID(), "CREATED"), createEvent(UUID.randomUUID(), "CREATED"),
+            createEvent(UUID.randomUUID(), "CREATED"));
+
+        stubLeases();
+        when(outboxRepository.claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE))
+            .thenReturn(firstBatch, List.of());
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+            .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Act
+        publisherService.publishEvents();
+
+        // Assert
+        verify(outboxRepository, times(2)).claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE);
+        verify(outboxRepository, times(1)).markProcessed(anyCollection(), anyInt(), anyString(), anyLong());
+    }
+
+    @Test
+    void publishEvents_whenSendFails_shouldScheduleRetryInsteadOfMarkingProcessed() {
+        var event = createEvent(UUID.randomUUID(), "CREATED");
+
+        stubLeases();
+        when(outboxRepository.claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE))
+            .thenReturn(List.of(event));
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        // Act
+        publisherService.publishEvents();
+
+        // Assert
+        verify(outboxRepository, times(1)).scheduleRetry(eq(List.of(event.getId())), anyString(), eq(1L), eq(60L));
+        verify(outboxRepository, never()).markProcessed(anyCollection(), anyInt(), anyString(), anyLong());
+        verify(outboxRepository, never()).markFailed(anyCollection(), anyString());
+        assertEquals(1.0, meterRegistry.get("outbox.publish.failures").counter().count());
+    }
+
+    @Test
+    void publishEvents_whenSendFails_shouldRunAgainOnceRetryIsDue() {
+        var event = createEvent(UUID.randomUUID(), "CREATED");
+
+        stubLeases();
+        when(outboxRepository.claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE))
+            .thenReturn(List.of(event), List.of());
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        // Act
+        publisherService.publishEvents();
+
+        // Assert: the first retry waits 1 second, far less than a poll interval
+        verify(outboxRepository, timeout(3000).times(2))
+            .claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE);
+    }
+
+    @Test
+    void publishEvents_whenSendOfAggregateFails_shouldNotSendItsLaterEventsAndProcessOthers() {
+        var failingAggregate = UUID.randomUUID();
+        var failedCreate = createEvent(failingAggregate, "CREATED");
+        var laterDelete = createEvent(failingAggregate, "DELETED");
+        var otherEvent = createEvent(UUID.randomUUID(), "CREATED");
+
+        stubLeases();
+        when(outboxRepository.claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE))
+            .thenReturn(List.of(failedCreate, otherEvent, laterDelete), List.of());
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaTemplate.send(anyString(), eq(failingAggregate.toString()), any(byte[].class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        // Act
+        publisherService.publishEvents();
+
+        // Assert: the delete is never sent after the create failed, it is retried after the create
+        verify(kafkaTemplate, times(1)).send("employee-events", failingAggregate.toString(), PAYLOAD);
+        verify(outboxRepository, times(1)).markProcessed(List.of(otherEvent.getId()), PARTITION_COUNT, INSTANCE_ID,
+            FENCING_TOKEN);
+        verify(outboxRepository, times(1)).scheduleRetry(eq(List.of(failedCreate.getId())), anyString(), anyLong(),
+            anyLong());
+        verify(outboxRepository, times(1)).scheduleRetry(eq(List.of(laterDelete.getId())), anyString(), anyLong(),
+            anyLong());
+    }
+
+    @Test
+    void publishEvents_whenAttemptsAreExhausted_shouldDeadLetterEvent() {
+        var event = createEvent(UUID.randomUUID(), "CREATED");
+        event.setAttempts(2);
+
+        stubLeases();
+        when(outboxRepository.claimPendingBatch(PARTITION_COUNT, INSTANCE_ID, FENCING_TOKEN, BATCH_SIZE))
+            .thenReturn(List.of(event));
+        when(kafkaTemplate.send(anyString(), anyString(), any(byte[].class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        // Act
+        publisherService.publishEvents();
+
+        // Assert
+        verify(outboxRepository, times(1)).markFailed(eq(List.of(event.getId())), anyString());
+        verify(outboxRepository, never()).scheduleRetry(anyCollection(), anyString(), anyLong(), anyLong());
+        assertEquals(1.0, meterRegistry.get("outbox.dead.lettered.events").counter().count());
+    }
+
+    private void stubLeases() {
+        when(leaseManager.renew()).thenReturn(LEASES);
+        when(leaseManager.getInstanceId()).thenReturn(INSTANCE_ID);
+    }
 
-        assertEquals(OutboxEvent.Status.PROCESSED, createdEvent.getStatus());
-        assertEquals(OutboxEvent.Status.PROCESSED, updatedEvent.getStatus());
-        assertEquals(OutboxEvent.Status.PROCESSED, deletedEvent.getStatus());
+    private OutboxEvent createEvent(final UUID aggregateId, final String type) {
+        var event = new OutboxEvent(aggregateId, "Employee", type, PAYLOAD, OffsetDateTime.now(),
+            OutboxEvent.Status.PENDING);
+        event.setId(UUID.randomUUID());
+        return event;
     }
 }
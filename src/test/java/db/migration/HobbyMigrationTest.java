@@ -0,0 +1,140 @@
+package db.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Migrates a {@code hobby_migration_test} schema of its own step by step, so that {@link V14__Copy_employee_hobbies}
+ * finds {@code employee_hobbies} rows that were written before the hobby dictionary existed, and checks that the
+ * mirror triggers keep the old and the new hobby tables in sync in both directions.
+ */
+class HobbyMigrationTest {
+
+    private static final String SCHEMA = "hobby_migration_test";
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+        "jdbc:postgresql://localhost:5443/employee?currentSchema=" + SCHEMA + ",public", "test", "test");
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @BeforeEach
+    void setup() {
+        flyway(null).clean();
+    }
+
+    @Test
+    void copyEmployeeHobbies_shouldKeepRepeatedHobbiesOnceAtTheirFirstPositionAcrossBatches() {
+        flyway("13").migrate();
+        // Written by the previous release before the mirror existed
+        jdbcTemplate.execute("ALTER TABLE employee_hobbies DISABLE TRIGGER employee_hobbies_mirror");
+        var repeating = insertEmployee("repeating@sample.com");
+        insertOldHobbies(repeating, "reading", "hiking", "reading", "chess", "hiking");
+        // More employees than one batch of the migration holds
+        jdbcTemplate.update("""
+            INSERT INTO employees (id, email, full_name, birthday, version)
+            SELECT gen_random_uuid(), 'employee' || g || '@sample.com', 'Employee ' || g, DATE '1990-01-01', 0
+            FROM generate_series(1, 2500) g""");
+        jdbcTemplate.update("""
+            INSERT INTO employee_hobbies (employee_id, hobby)
+            SELECT e.id, h.hobby
+            FROM employees e
+                     CROSS JOIN (VALUES ('yoga'), ('chess')) h (hobby)
+            WHERE e.email LIKE 'employee%'""");
+        jdbcTemplate.execute("ALTER TABLE employee_hobbies ENABLE TRIGGER employee_hobbies_mirror");
+
+        flyway("14").migrate();
+
+        assertEquals(List.of("reading", "hiking", "chess"), newHobbies(repeating));
+        assertEquals(5000, jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM employee_hobby eh JOIN employees e ON e.id = eh.employee_id
+                WHERE e.email LIKE 'employee%'""", Integer.class));
+        assertEquals(List.of("chess", "hiking", "reading", "yoga"),
+            jdbcTemplate.queryForList("SELECT name FROM hobbies ORDER BY name", String.class));
+    }
+
+    @Test
+    void mirrors_shouldKeepOldAndNewHobbyTablesInSync() {
+        flyway(null).migrate();
+        var employee = insertEmployee("mirrored@sample.com");
+
+        // Written by the previous release
+        insertOldHobbies(employee, "reading", "hiking");
+        assertEquals(List.of("reading", "hiking"), newHobbies(employee));
+        assertEquals(List.of("reading", "hiking"), oldHobbies(employee));
+
+        // Written by this release: a hobby is added and the existing ones swap places
+        jdbcTemplate.update("INSERT INTO hobbies (name) VALUES ('chess')");
+        jdbcTemplate.update("""
+            INSERT INTO employee_hobby (employee_id, hobby_id, position)
+            SELECT ?, id, 1000000 FROM hobbies WHERE name = 'chess'""", employee);
+        jdbcTemplate.update("""
+            UPDATE employee_hobby eh SET position = CASE h.name WHEN 'hiking' THEN 1 ELSE 2000000 END
+            FROM hobbies h
+            WHERE h.id = eh.hobby_id AND eh.employee_id = ? AND h.name IN ('hiking', 'reading')""", employee);
+        assertEquals(List.of("hiking", "chess", "reading"), newHobbies(employee));
+        assertEquals(List.of("hiking", "chess", "reading"), oldHobbies(employee));
+
+        jdbcTemplate.update("""
+            DELETE FROM employee_hobby eh USING hobbies h
+            WHERE h.id = eh.hobby_id AND eh.employee_id = ? AND h.name = 'chess'""", employee);
+        assertEquals(List.of("hiking", "reading"), oldHobbies(employee));
+
+        // Removed by the previous release
+        jdbcTemplate.update("DELETE FROM employee_hobbies WHERE employee_id = ? AND hobby = 'hiking'", employee);
+        assertEquals(List.of("reading"), newHobbies(employee));
+        assertEquals(List.of("reading"), oldHobbies(employee));
+
+        jdbcTemplate.update("DELETE FROM employees WHERE id = ?", employee);
+        assertEquals(List.of(), newHobbies(employee));
+        assertEquals(List.of(), oldHobbies(employee));
+    }
+
+    /**
+     * @param target version to migrate to, {@code null} for the latest
+     */
+    private Flyway flyway(final String target) {
+        var configuration = Flyway.configure()
+            .dataSource(dataSource)
+            .schemas(SCHEMA)
+            .defaultSchema(SCHEMA)
+            .cleanDisabled(false);
+        if (target != null) {
+            configuration.target(target);
+        }
+        return configuration.load();
+    }
+
+    private UUID insertEmployee(final String email) {
+        var id = UUID.randomUUID();
+        jdbcTemplate.update("""
+            INSERT INTO employees (id, email, full_name, birthday)
+            VALUES (?, ?, 'Sample Name', DATE '1990-01-01')""", id, email);
+        return id;
+    }
+
+    private void insertOldHobbies(final UUID employee, final String... hobbies) {
+        for (var hobby : hobbies) {
+            jdbcTemplate.update("INSERT INTO employee_hobbies (employee_id, hobby) VALUES (?, ?)", employee, hobby);
+        }
+    }
+
+    private List<String> oldHobbies(final UUID employee) {
+        return jdbcTemplate.queryForList("SELECT hobby FROM employee_hobbies WHERE employee_id = ? ORDER BY id",
+            String.class, employee);
+    }
+
+    private List<String> newHobbies(final UUID employee) {
+        return jdbcTemplate.queryForList("""
+            SELECT h.name FROM employee_hobby eh JOIN hobbies h ON h.id = eh.hobby_id
+            WHERE eh.employee_id = ?
+            ORDER BY eh.position""", String.class, employee);
+    }
+}